@@ -0,0 +1,550 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a pattern for a number of generations without a window, for CI and
+ * compute nodes, and prints the population, the speed and the final board.
+ * Nothing here touches AWT or Swing, so it starts quickly and works without a
+ * display.
+ *
+ * java BatchRunner [rows columns] [--engine name] [--rule notation]
+ *     [--parallelism threads] [--config file] [--pattern name] [--density d] [--seed n]
+ *     [--generations n] [--until-stable] [--fast-forward] [--max-period n]
+ *     [--checkpoint file] [--checkpoint-every n] [--compress]
+ *     [--restore file] [--save file] [--record target]
+ *     [--record-policy drop|slow|block] [--print]
+ *
+ * With --until-stable the run stops early once the board dies out or repeats
+ * itself with a period of up to --max-period generations (64 by default).
+ * --fast-forward also stops computing a repeating board, but then jumps to
+ * the generation limit by stepping only the rest of the last period. Sparse
+ * and hashlife are compared within the rows x columns window.
+ *
+ * --checkpoint saves the board to file every --checkpoint-every generations
+ * and at the end, in the background; --restore continues from such a file,
+ * taking the board size and rule from it.
+ *
+ * --pattern also takes a .rle, .cells or .mc file, which is centred on the
+ * board, and --save writes the live part of the final board in the format
+ * of its extension.
+ *
+ * --record writes every generation as an image, into an animated GIF when
+ * target ends in .gif and otherwise as PNGs into the target directory. By
+ * default the run waits for the encoders; drop or slow record fewer frames
+ * instead.
+ */
+public class BatchRunner {
+
+	private final BoardConfig config;
+	private String[] picture;
+	private double density = 0.2;
+	private long seed = System.nanoTime();
+	private long generations = 1000;
+	private boolean untilStable = false;
+	private boolean fastForward = false;
+	private int maxPeriod = CycleDetector.DEFAULT_MAX_PERIOD;
+	private Path checkpoint;
+	private long checkpointEvery;
+	private boolean compress;
+	private Path record;
+	private FrameRecorder.Policy recordPolicy = FrameRecorder.Policy.BLOCK;
+
+	private LifeEngine engine;
+	// generation of the restored checkpoint, engines count from 0 again
+	private long startGeneration;
+	private boolean restored;
+	// the engine was filled from a pattern file
+	private boolean loaded;
+	private long checkpoints;
+	private IOException checkpointError;
+	private long recorded;
+	private long recordDropped;
+	private IOException recordError;
+	private long period;
+	private long cycleStart;
+	// generations skipped by fast-forwarding
+	private long skipped;
+	private double seconds;
+
+	public BatchRunner(BoardConfig config) {
+		this.config = config;
+	}
+
+	public static void main(String[] args) {
+		BatchRunner runner;
+		boolean print = false;
+		String save = null;
+		try {
+			List<String> boardArgs = new ArrayList<String>();
+			String pattern = "random";
+			String density = null;
+			String seed = null;
+			String generations = null;
+			String maxPeriod = null;
+			String checkpoint = null;
+			String checkpointEvery = null;
+			String restore = null;
+			String record = null;
+			String recordPolicy = null;
+			boolean untilStable = false;
+			boolean fastForward = false;
+			boolean compress = false;
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals("--until-stable")) {
+					untilStable = true;
+				} else if (arg.equals("--fast-forward")) {
+					fastForward = true;
+				} else if (arg.equals("--compress")) {
+					compress = true;
+				} else if (arg.equals("--print")) {
+					print = true;
+				} else if (arg.equals("--pattern") || arg.equals("--density")
+						|| arg.equals("--seed") || arg.equals("--generations")
+						|| arg.equals("--max-period")
+						|| arg.equals("--checkpoint")
+						|| arg.equals("--checkpoint-every")
+						|| arg.equals("--restore") || arg.equals("--save")
+						|| arg.equals("--record")
+						|| arg.equals("--record-policy")) {
+					if (i + 1 >= args.length) {
+						throw new IllegalArgumentException("Missing value for "
+								+ arg);
+					}
+					String value = args[++i];
+					if (arg.equals("--pattern")) {
+						pattern = value;
+					} else if (arg.equals("--density")) {
+						density = value;
+					} else if (arg.equals("--seed")) {
+						seed = value;
+					} else if (arg.equals("--max-period")) {
+						maxPeriod = value;
+					} else if (arg.equals("--checkpoint")) {
+						checkpoint = value;
+					} else if (arg.equals("--checkpoint-every")) {
+						checkpointEvery = value;
+					} else if (arg.equals("--restore")) {
+						restore = value;
+					} else if (arg.equals("--save")) {
+						save = value;
+					} else if (arg.equals("--record")) {
+						record = value;
+					} else if (arg.equals("--record-policy")) {
+						recordPolicy = value;
+					} else {
+						generations = value;
+					}
+				} else {
+					boardArgs.add(arg);
+				}
+			}
+			BoardConfig config = BoardConfig.parse(boardArgs
+					.toArray(new String[boardArgs.size()]));
+			runner = new BatchRunner(config);
+			if (!Patterns.isFile(pattern)) {
+				runner.setPattern(Patterns.get(pattern));
+			}
+			if (density != null) {
+				runner.setDensity(Double.parseDouble(density));
+			}
+			if (seed != null) {
+				runner.setSeed(Long.parseLong(seed));
+			}
+			if (generations != null) {
+				runner.setGenerations(Long.parseLong(generations));
+			}
+			if (maxPeriod != null) {
+				runner.setMaxPeriod(Integer.parseInt(maxPeriod));
+			}
+			runner.setUntilStable(untilStable);
+			runner.setFastForward(fastForward);
+			if (checkpoint != null) {
+				runner.setCheckpoint(Paths.get(checkpoint),
+						checkpointEvery == null ? 0 : Long
+								.parseLong(checkpointEvery), compress);
+			}
+			if (record != null) {
+				runner.setRecord(Paths.get(record), recordPolicy == null
+						? FrameRecorder.Policy.BLOCK : FrameRecorder.Policy
+								.valueOf(recordPolicy.toUpperCase()));
+			}
+			// restore() checks again once it knows the saved board's size
+			runner.checkMemory(BoardConfig.availableMemory());
+			if (restore != null) {
+				try {
+					runner.restore(Paths.get(restore));
+				} catch (IOException e) {
+					System.err.println("Cannot restore: " + e.getMessage());
+					System.exit(1);
+					return;
+				}
+			} else if (Patterns.isFile(pattern)) {
+				try {
+					runner.load(Paths.get(pattern));
+				} catch (IOException e) {
+					System.err.println("Cannot read pattern: "
+							+ e.getMessage());
+					System.exit(1);
+					return;
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read config: " + e.getMessage());
+			System.exit(1);
+			return;
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		runner.run();
+		runner.report(System.out);
+		if (print) {
+			runner.printBoard(System.out);
+		}
+		if (save != null) {
+			try {
+				runner.save(Paths.get(save));
+			} catch (IOException e) {
+				System.err.println("Cannot save pattern: " + e.getMessage());
+				runner.shutdown();
+				System.exit(1);
+				return;
+			}
+		}
+		runner.shutdown();
+		if (runner.getCheckpointError() != null) {
+			System.err.println("Checkpoint failed: "
+					+ runner.getCheckpointError().getMessage());
+			System.exit(1);
+		}
+		if (runner.getRecordError() != null) {
+			System.err.println("Recording failed: "
+					+ runner.getRecordError().getMessage());
+			System.exit(1);
+		}
+	}
+
+	// continue from a checkpoint instead of a pattern; the board size and
+	// rule of the configuration are replaced by the saved ones
+	public void restore(Path file) throws IOException {
+		Checkpoint saved = Checkpoint.open(file);
+		config.setSize(saved.getRows(), saved.getColumns());
+		config.setRule(saved.getRule());
+		checkMemory(BoardConfig.availableMemory());
+		engine = config.createEngine();
+		saved.restore(engine);
+		startGeneration = saved.getGeneration();
+		restored = true;
+	}
+
+	// heap the run needs: the engine, the snapshot the checkpoint writer
+	// keeps and the recorder's pool of frames
+	public long estimateBytes() {
+		int rows = config.getRows();
+		int columns = config.getColumns();
+		long bytes = Engines.estimateBytes(config.getEngine(), rows, columns,
+				config.getRule());
+		if (checkpoint != null) {
+			bytes += BoardSnapshot.estimateBytes(rows, columns);
+		}
+		if (record != null) {
+			boolean gif = record.getFileName().toString().toLowerCase()
+					.endsWith(".gif");
+			bytes += FrameRecorder.estimateBytes(rows, columns, FrameRecorder
+					.defaultScale(rows, columns), gif ? 1 : FrameRecorder
+					.defaultThreads());
+		}
+		return bytes;
+	}
+
+	// throws if the run needs more than the given number of bytes
+	public void checkMemory(long available) {
+		long needed = estimateBytes();
+		if (needed > available) {
+			throw new IllegalArgumentException("A " + config.getRows() + "x"
+					+ config.getColumns() + " run on the " + config.getEngine()
+					+ " engine needs about " + ((needed + (1 << 20) - 1) >> 20)
+					+ " MB but only " + (available >> 20) + " MB of heap is "
+					+ "free; raise -Xmx or use a smaller board");
+		}
+	}
+
+	// start from a .rle, .cells or .mc file centred on the board, in the
+	// configured rule
+	public void load(Path file) throws IOException {
+		engine = config.createEngine();
+		Patterns.load(file, engine, config.getRows(), config.getColumns());
+		loaded = true;
+	}
+
+	// write the live part of the board in the format of the file's
+	// extension
+	public void save(Path file) throws IOException {
+		Patterns.save(file, engine, findBounds(), null);
+	}
+
+	// set up the board and step it until the limit or until it is stable
+	public void run() {
+		int rows = config.getRows();
+		int columns = config.getColumns();
+		if (!restored && !loaded) {
+			engine = config.createEngine();
+			if (picture == null) {
+				Patterns.random(engine, rows, columns, density, new Random(
+						seed));
+			} else {
+				Patterns.placeCentred(engine, picture, rows, columns);
+			}
+		}
+		CheckpointWriter writer = checkpoint != null ? new CheckpointWriter(
+				compress) : null;
+
+		CycleDetector detector = untilStable || fastForward ? new CycleDetector(
+				maxPeriod) : null;
+		period = 0;
+		cycleStart = 0;
+		skipped = 0;
+		checkpoints = 0;
+		checkpointError = null;
+		FrameRecorder recorder = null;
+		recorded = 0;
+		recordDropped = 0;
+		recordError = null;
+		if (record != null) {
+			try {
+				recorder = new FrameRecorder(record, rows, columns,
+						FrameRecorder.defaultScale(rows, columns), recordPolicy);
+				recorder.capture(engine);
+			} catch (IOException e) {
+				recordError = e;
+			}
+		}
+		long start = System.nanoTime();
+		while (getGeneration() < generations) {
+			if (detector != null) {
+				if (engine.getPopulation() == 0) {
+					break;
+				}
+				if (detector.observe(engine, rows, columns)) {
+					period = detector.getPeriod();
+					cycleStart = startGeneration + detector.getStart();
+					break;
+				}
+			}
+			engine.step();
+			if (recorder != null) {
+				recorder.capture(engine);
+			}
+			if (writer != null && checkpointEvery > 0
+					&& getGeneration() % checkpointEvery == 0
+					&& writer.save(engine, rows, columns, getGeneration(),
+							checkpoint)) {
+				checkpoints++;
+			}
+		}
+		if (period > 0 && fastForward) {
+			// every period generations the board is back where it is now, so
+			// only what is left over after the whole periods is computed
+			long left = generations - getGeneration();
+			for (long i = 0; i < left % period; i++) {
+				engine.step();
+			}
+			skipped = left - left % period;
+		}
+		seconds = (System.nanoTime() - start) / 1e9;
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				recordError = e;
+			}
+			recorded = recorder.getWritten();
+			recordDropped = recorder.getDropped();
+		}
+		if (writer != null) {
+			try {
+				writer.await();
+				writer.save(engine, rows, columns, getGeneration(), checkpoint);
+				checkpoints++;
+				writer.close();
+			} catch (IOException e) {
+				checkpointError = e;
+			}
+		}
+	}
+
+	public void report(PrintStream out) {
+		out.println("engine " + config.getEngine() + ", rule "
+				+ config.getRule() + ", board " + config.getRows() + "x"
+				+ config.getColumns());
+		out.println("generation " + getGeneration() + ", population "
+				+ engine.getPopulation());
+		if (engine.getPopulation() == 0) {
+			out.println("stopped: died out");
+		} else if (period == 1) {
+			out.println("stopped: still life since generation " + cycleStart);
+		} else if (period > 1) {
+			out.println("stopped: oscillating with period " + period
+					+ " since generation " + cycleStart);
+		} else {
+			out.println("stopped: generation limit");
+		}
+		if (skipped > 0) {
+			out.println("fast-forwarded over " + skipped + " generations");
+		}
+		if (restored) {
+			out.println("restored at generation " + startGeneration);
+		}
+		if (checkpoint != null) {
+			out.println(checkpoints + " checkpoints to " + checkpoint);
+		}
+		if (record != null) {
+			out.println(recorded + " frames to " + record
+					+ (recordDropped > 0 ? ", " + recordDropped + " dropped"
+							: ""));
+		}
+		double rate = seconds > 0 ? engine.getGeneration() / seconds : 0;
+		out.printf("%.3f s, %.0f generations/s%n", seconds, rate);
+	}
+
+	// the live part of the board in plaintext, 'O' alive and '.' dead
+	public void printBoard(PrintStream out) {
+		Bounds bounds = findBounds();
+		if (bounds.isEmpty()) {
+			return;
+		}
+		int top = bounds.getTop();
+		int bottom = bounds.getBottom();
+		int left = bounds.getLeft();
+		int right = bounds.getRight();
+		out.println("#C rows " + top + ".." + bottom + ", columns " + left
+				+ ".." + right);
+		StringBuilder line = new StringBuilder(right - left + 1);
+		for (int i = top; i <= bottom; i++) {
+			line.setLength(0);
+			for (int j = left; j <= right; j++) {
+				line.append(engine.isAlive(i, j) ? 'O' : '.');
+			}
+			out.println(line);
+		}
+	}
+
+	private Bounds findBounds() {
+		return Patterns.findBounds(engine, config.getRows(), config.getColumns());
+	}
+
+	// release the worker threads of the parallel engine
+	public void shutdown() {
+		if (engine instanceof ParallelEngine) {
+			((ParallelEngine) engine).shutdown();
+		}
+	}
+
+	public LifeEngine getEngine() {
+		return engine;
+	}
+
+	// the period the board settled into, 0 if it did not
+	public long getPeriod() {
+		return period;
+	}
+
+	// first generation of the cycle, when getPeriod() is not 0
+	public long getCycleStart() {
+		return cycleStart;
+	}
+
+	// the generation the board is at, counting restored and fast-forwarded
+	// ones
+	public long getGeneration() {
+		return startGeneration + engine.getGeneration() + skipped;
+	}
+
+	public double getSeconds() {
+		return seconds;
+	}
+
+	// a picture to centre on the board, or null for a random fill; throws
+	// if it does not fit on the configured board
+	public void setPattern(String[] picture) {
+		if (picture != null) {
+			Patterns.checkFits(Patterns.getHeight(picture), Patterns
+					.getWidth(picture), config.getRows(), config.getColumns());
+		}
+		this.picture = picture;
+	}
+
+	public void setDensity(double density) {
+		if (density < 0 || density > 1) {
+			throw new IllegalArgumentException("Density must be in 0..1: "
+					+ density);
+		}
+		this.density = density;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public void setGenerations(long generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Bad generation count "
+					+ generations);
+		}
+		this.generations = generations;
+	}
+
+	public void setUntilStable(boolean untilStable) {
+		this.untilStable = untilStable;
+	}
+
+	// save the board to file every so many generations, 0 for only at the
+	// end of the run
+	public void setCheckpoint(Path file, long every, boolean compress) {
+		if (every < 0) {
+			throw new IllegalArgumentException("Bad checkpoint interval "
+					+ every);
+		}
+		this.checkpoint = file;
+		this.checkpointEvery = every;
+		this.compress = compress;
+	}
+
+	// the last checkpoint that could not be written, or null
+	public IOException getCheckpointError() {
+		return checkpointError;
+	}
+
+	// write the generations as images into target, see FrameRecorder
+	public void setRecord(Path target, FrameRecorder.Policy policy) {
+		this.record = target;
+		this.recordPolicy = policy;
+	}
+
+	// the reason recording stopped, or null
+	public IOException getRecordError() {
+		return recordError;
+	}
+
+	// skip whole periods of a repeating board up to the generation limit
+	public void setFastForward(boolean fastForward) {
+		this.fastForward = fastForward;
+	}
+
+	// longest period looked for, which is also how many hashes are kept
+	public void setMaxPeriod(int maxPeriod) {
+		if (maxPeriod < 1) {
+			throw new IllegalArgumentException("Bad maximum period "
+					+ maxPeriod);
+		}
+		this.maxPeriod = maxPeriod;
+	}
+}
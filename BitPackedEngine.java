@@ -0,0 +1,391 @@
+/**
+ * Keeps every row of the torus as packed 64-cell long words and advances a
+ * whole word per operation with a bit-parallel adder, so one generation costs
+ * roughly rows * columns / 64 word operations instead of one GameCell call
+ * per cell. Any life-like rule runs on it; B3/S23 has a shorter path.
+ */
+public class BitPackedEngine implements LifeEngine, ChangeTracking {
+	protected final int rows;
+	protected final int columns;
+	protected final int wordsPerRow;
+
+	// bit index of the last column inside the last word of a row
+	private final int lastBit;
+	private final long lastWordMask;
+
+	protected final Rule rule;
+	private final boolean conway;
+	// all ones where the rule births or keeps a cell with n neighbours
+	private final long[] birthWords = new long[9];
+	private final long[] survivalWords = new long[9];
+
+	protected long[] current;
+	protected long[] next;
+	protected long generation;
+	protected final DirtyRows dirty;
+
+	// live cells on the board and in every row, kept up to date as words
+	// change so population queries never scan the board
+	private long population;
+	private final int[] rowPopulation;
+	// Zobrist-style hash of every row: the XOR of a hash of each non-zero
+	// word and its position, so a changed word is swapped out in O(1)
+	private final long[] rowHash;
+	// smallest box around the live cells, null until asked for again
+	private Bounds bounds;
+	// XOR of the row hashes, valid while hashed is set
+	private long hash;
+	private boolean hashed;
+
+	public BitPackedEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public BitPackedEngine(int rows, int columns, Rule rule) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Board must be at least 1x1: "
+					+ rows + "x" + columns);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.wordsPerRow = (columns + 63) >>> 6;
+		this.lastBit = (columns - 1) & 63;
+		this.lastWordMask = lastBit == 63 ? -1L : (1L << (lastBit + 1)) - 1;
+		this.current = new long[rows * wordsPerRow];
+		this.next = new long[rows * wordsPerRow];
+		this.dirty = new DirtyRows(rows, columns);
+		this.rowPopulation = new int[rows];
+		this.rowHash = new long[rows];
+		this.rule = rule.requireLifeLike(getClass().getName());
+		this.conway = rule.equals(Rule.CONWAY);
+		for (int n = 0; n < 9; n++) {
+			birthWords[n] = ((rule.getBirthMask() >>> n) & 1) != 0 ? -1L : 0L;
+			survivalWords[n] = ((rule.getSurvivalMask() >>> n) & 1) != 0 ? -1L
+					: 0L;
+		}
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		return (current[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		// a column past the edge would land in the padding bits of the row
+		if (row < 0 || row >= rows || col < 0 || col >= columns) {
+			throw new IndexOutOfBoundsException("Cell (" + row + ", " + col
+					+ ") is outside the " + rows + "x" + columns + " board");
+		}
+		int index = row * wordsPerRow + (col >>> 6);
+		long before = current[index];
+		if (alive) {
+			current[index] |= 1L << col;
+		} else {
+			current[index] &= ~(1L << col);
+		}
+		if (current[index] != before) {
+			addPopulation(markWord(row, col >>> 6, before, current[index]));
+		}
+	}
+
+	@Override
+	public void step() {
+		long[] cur = current;
+		long delta = stepRows(cur, next, 0, rows);
+		current = next;
+		next = cur;
+		generation++;
+		addPopulation(delta);
+	}
+
+	// write the next generation of rows [from, to) of cur into nxt and
+	// return the change in population
+	protected final long stepRows(long[] cur, long[] nxt, int from, int to) {
+		int wpr = wordsPerRow;
+		long delta = 0;
+		for (int r = from; r < to; r++) {
+			int up = (r == 0 ? rows - 1 : r - 1) * wpr;
+			int mid = r * wpr;
+			int down = (r == rows - 1 ? 0 : r + 1) * wpr;
+
+			for (int w = 0; w < wpr; w++) {
+				long word = nextWord(cur, up, mid, down, w);
+				if (word != cur[mid + w]) {
+					delta += markWord(r, w, cur[mid + w], word);
+				}
+				nxt[mid + w] = word;
+			}
+		}
+		return delta;
+	}
+
+	// record that word w in row r changed from before to after; returns
+	// the change in population. Bands may call this concurrently as long as
+	// they own different rows.
+	protected final int markWord(int r, int w, long before, long after) {
+		dirty.mark(r, w << 6, (w << 6) + 63);
+		int index = r * wordsPerRow + w;
+		rowHash[r] ^= wordHash(index, before) ^ wordHash(index, after);
+		int delta = Long.bitCount(after) - Long.bitCount(before);
+		rowPopulation[r] += delta;
+		return delta;
+	}
+
+	// 0 for an empty word, so an empty board hashes to 0
+	private static long wordHash(int index, long word) {
+		if (word == 0) {
+			return 0;
+		}
+		long h = (word ^ (index * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		return h ^ (h >>> 29);
+	}
+
+	// add the population change of a step or an edit, once all the words
+	// are written, and drop the cached bounds and hash
+	protected final void addPopulation(long delta) {
+		population += delta;
+		bounds = null;
+		hashed = false;
+	}
+
+	// next generation of word w in the row starting at mid, given the
+	// starting offsets of the rows above and below
+	protected final long nextWord(long[] cur, int up, int mid, int down, int w) {
+		long above = cur[up + w];
+		long upW = west(cur, up, w);
+		long upE = east(cur, up, w);
+		long midW = west(cur, mid, w);
+		long midE = east(cur, mid, w);
+		long downW = west(cur, down, w);
+		long downE = east(cur, down, w);
+		long below = cur[down + w];
+		long alive = cur[mid + w];
+
+		// column sums of the rows above and below (0..3 each)
+		long u0 = upW ^ above ^ upE;
+		long u1 = (upW & above) | (upE & (upW ^ above));
+		long l0 = downW ^ below ^ downE;
+		long l1 = (downW & below) | (downE & (downW ^ below));
+
+		// add them together (0..6)
+		long t0 = u0 ^ l0;
+		long c0 = u0 & l0;
+		long t1 = u1 ^ l1 ^ c0;
+		long t2 = (u1 & l1) | (c0 & (u1 ^ l1));
+
+		// add the left and right neighbours of the same row (0..2)
+		long m0 = midW ^ midE;
+		long m1 = midW & midE;
+		long s0 = t0 ^ m0;
+		long c1 = t0 & m0;
+		long s1 = t1 ^ m1 ^ c1;
+		long c2 = (t1 & m1) | (c1 & (t1 ^ m1));
+
+		if (conway) {
+			// B3/S23: exactly 3, or exactly 2 and already alive
+			return s1 & ~(t2 | c2) & (s0 | alive);
+		}
+		return applyRule(w, alive, s0, s1, t2 ^ c2, t2 & c2);
+	}
+
+	// decode the four count bits of every cell into the nine possible counts
+	// and pick birth or survival from the rule masks
+	private long applyRule(int w, long alive, long b0, long b1, long b2,
+			long b3) {
+		long n0 = ~b0;
+		long n1 = ~b1;
+		long low0 = n0 & n1;
+		long low1 = b0 & n1;
+		long low2 = n0 & b1;
+		long low3 = b0 & b1;
+		long under4 = ~b2 & ~b3;
+		long under8 = b2 & ~b3;
+
+		long e0 = low0 & under4;
+		long e1 = low1 & under4;
+		long e2 = low2 & under4;
+		long e3 = low3 & under4;
+		long e4 = low0 & under8;
+		long e5 = low1 & under8;
+		long e6 = low2 & under8;
+		long e7 = low3 & under8;
+		long e8 = b3;
+
+		long[] b = birthWords;
+		long[] s = survivalWords;
+		long born = (e0 & b[0]) | (e1 & b[1]) | (e2 & b[2]) | (e3 & b[3])
+				| (e4 & b[4]) | (e5 & b[5]) | (e6 & b[6]) | (e7 & b[7])
+				| (e8 & b[8]);
+		long kept = (e0 & s[0]) | (e1 & s[1]) | (e2 & s[2]) | (e3 & s[3])
+				| (e4 & s[4]) | (e5 & s[5]) | (e6 & s[6]) | (e7 & s[7])
+				| (e8 & s[8]);
+		long word = (born & ~alive) | (kept & alive);
+		// B0 would otherwise switch on the padding bits past the last column
+		return (w == wordsPerRow - 1) ? word & lastWordMask : word;
+	}
+
+	// word w of the row starting at base, shifted so each bit sees its left
+	// neighbour; column 0 wraps around to the last column
+	private long west(long[] cur, int base, int w) {
+		long carry = (w == 0) ? (cur[base + wordsPerRow - 1] >>> lastBit) & 1L
+				: cur[base + w - 1] >>> 63;
+		long word = (cur[base + w] << 1) | carry;
+		return (w == wordsPerRow - 1) ? word & lastWordMask : word;
+	}
+
+	// word w of the row starting at base, shifted so each bit sees its right
+	// neighbour; the last column wraps around to column 0
+	private long east(long[] cur, int base, int w) {
+		long carry = (w == wordsPerRow - 1) ? (cur[base] & 1L) << lastBit
+				: cur[base + w + 1] << 63;
+		return (cur[base + w] >>> 1) | carry;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < current.length; i++) {
+			current[i] = 0L;
+		}
+		for (int r = 0; r < rows; r++) {
+			rowPopulation[r] = 0;
+			rowHash[r] = 0;
+		}
+		population = 0;
+		bounds = null;
+		hashed = false;
+		generation = 0;
+		dirty.markAll();
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	// live cells in one row
+	public int getRowPopulation(int row) {
+		return rowPopulation[row];
+	}
+
+	// hash of one row's cells, equal for equal rows, so a row that hashes
+	// the same as before has most likely not changed
+	public long getRowHash(int row) {
+		return rowHash[row];
+	}
+
+	// a 64-bit hash of the cells, equal for equal boards; kept up to date
+	// word by word, so this costs one XOR per row at most once a generation
+	public long getHash() {
+		if (!hashed) {
+			long h = 0;
+			for (int r = 0; r < rows; r++) {
+				h ^= rowHash[r];
+			}
+			hash = h;
+			hashed = true;
+		}
+		return hash;
+	}
+
+	// the smallest box holding every live cell, worked out at most once per
+	// generation: empty rows are skipped by their count and the columns come
+	// from OR-ing the words of the others together
+	public Bounds getBounds() {
+		if (bounds == null) {
+			bounds = findBounds();
+		}
+		return bounds;
+	}
+
+	private Bounds findBounds() {
+		if (population == 0) {
+			return Bounds.EMPTY;
+		}
+		long[] columnBits = new long[wordsPerRow];
+		int top = -1;
+		int bottom = -1;
+		for (int r = 0; r < rows; r++) {
+			if (rowPopulation[r] == 0) {
+				continue;
+			}
+			if (top < 0) {
+				top = r;
+			}
+			bottom = r;
+			for (int w = 0; w < wordsPerRow; w++) {
+				columnBits[w] |= current[r * wordsPerRow + w];
+			}
+		}
+		int first = 0;
+		while (columnBits[first] == 0) {
+			first++;
+		}
+		int last = wordsPerRow - 1;
+		while (columnBits[last] == 0) {
+			last--;
+		}
+		int left = (first << 6) + Long.numberOfTrailingZeros(columnBits[first]);
+		int right = (last << 6) + 63
+				- Long.numberOfLeadingZeros(columnBits[last]);
+		return new Bounds(top, left, bottom, right);
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public DirtyRows getDirtyRows() {
+		return dirty;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	// replace the 64 cells of columns w * 64 .. w * 64 + 63 of a row at once,
+	// bits past the last column are dropped
+	public void setWord(int row, int w, long word) {
+		if (w == wordsPerRow - 1) {
+			word &= lastWordMask;
+		}
+		int index = row * wordsPerRow + w;
+		long before = current[index];
+		if (word != before) {
+			current[index] = word;
+			addPopulation(markWord(row, w, before, word));
+		}
+	}
+
+	// the packed cells of columns w * 64 .. w * 64 + 63 of a row
+	public long getWord(int row, int w) {
+		return current[row * wordsPerRow + w];
+	}
+
+	// copy the packed cells, getWordsPerRow() longs per row, into words
+	public void copyWords(long[] words) {
+		System.arraycopy(current, 0, words, 0, current.length);
+	}
+}
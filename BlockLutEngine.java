@@ -0,0 +1,221 @@
+/**
+ * Advances the torus in 2x2 blocks. The 4x4 neighbourhood of a block is read
+ * as a 16-bit index into a 65,536-entry table that holds the next state of
+ * the block's four cells, so one lookup replaces four per-cell rule
+ * evaluations. Rows are bit-packed with a one-cell ghost border that is
+ * refreshed from the opposite edges before every generation; the board needs
+ * an even number of rows and columns.
+ */
+public class BlockLutEngine implements LifeEngine {
+	private final int rows;
+	private final int columns;
+	private final int wordsPerRow;
+	private final Rule rule;
+
+	// next state of the centre 2x2 of every 4x4 neighbourhood: bit y * 4 + x
+	// of the index is the cell at (y, x), bit 0..3 of the entry are the
+	// centre cells (1,1), (1,2), (2,1), (2,2)
+	private final byte[] lut;
+
+	// (rows + 2) padded rows of (columns + 2) bits, cell (r, c) at padded
+	// row r + 1, bit c + 1
+	private long[] current;
+	private long[] next;
+	private long generation;
+	// live cells, not counting the ghost border
+	private long population;
+
+	public BlockLutEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public BlockLutEngine(int rows, int columns, Rule rule) {
+		if (rows < 2 || columns < 2 || (rows & 1) != 0
+				|| (columns & 1) != 0) {
+			throw new IllegalArgumentException(
+					"Block engine needs an even board of at least 2x2: " + rows
+							+ "x" + columns);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.wordsPerRow = (columns + 2 + 63) >>> 6;
+		this.rule = rule.requireLifeLike(getClass().getName());
+		this.lut = buildTable(rule);
+		this.current = new long[(rows + 2) * wordsPerRow];
+		this.next = new long[(rows + 2) * wordsPerRow];
+	}
+
+	static byte[] buildTable(Rule rule) {
+		byte[] table = new byte[1 << 16];
+		for (int index = 0; index < table.length; index++) {
+			int out = 0;
+			for (int k = 0; k < 4; k++) {
+				int y = 1 + (k >> 1);
+				int x = 1 + (k & 1);
+				int n = 0;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (dy != 0 || dx != 0) {
+							n += (index >>> ((y + dy) * 4 + x + dx)) & 1;
+						}
+					}
+				}
+				out |= rule.next((index >>> (y * 4 + x)) & 1, n) << k;
+			}
+			table[index] = (byte) out;
+		}
+		return table;
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		int bit = col + 1;
+		return (current[(row + 1) * wordsPerRow + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		if (getBit(current, row + 1, col + 1) != alive) {
+			setBit(current, row + 1, col + 1, alive);
+			population += alive ? 1 : -1;
+		}
+	}
+
+	private void setBit(long[] grid, int paddedRow, int bit, boolean alive) {
+		int index = paddedRow * wordsPerRow + (bit >>> 6);
+		if (alive) {
+			grid[index] |= 1L << bit;
+		} else {
+			grid[index] &= ~(1L << bit);
+		}
+	}
+
+	private boolean getBit(long[] grid, int paddedRow, int bit) {
+		return (grid[paddedRow * wordsPerRow + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	@Override
+	public void step() {
+		refreshGhosts();
+
+		long[] cur = current;
+		long[] nxt = next;
+		int wpr = wordsPerRow;
+		long count = 0;
+
+		// block rows r, r + 1 read padded rows r .. r + 3 and write padded
+		// rows r + 1 and r + 2
+		for (int r = 0; r < rows; r += 2) {
+			int row0 = r * wpr;
+			int row1 = row0 + wpr;
+			int row2 = row1 + wpr;
+			int row3 = row2 + wpr;
+			// cells of the last block of a word that fall into the next
+			long carryTop = 0L;
+			long carryBottom = 0L;
+			int w = 0;
+			for (int base = 0; base < columns; base += 64, w++) {
+				long a0 = cur[row0 + w];
+				long a1 = cur[row1 + w];
+				long a2 = cur[row2 + w];
+				long a3 = cur[row3 + w];
+				long top = carryTop;
+				long bottom = carryBottom;
+				carryTop = 0L;
+				carryBottom = 0L;
+				int end = Math.min(64, columns - base);
+				for (int s = 0; s < end; s += 2) {
+					int index;
+					if (s < 62) {
+						index = (int) ((a0 >>> s) & 15)
+								| (int) ((a1 >>> s) & 15) << 4
+								| (int) ((a2 >>> s) & 15) << 8
+								| (int) ((a3 >>> s) & 15) << 12;
+					} else {
+						// the neighbourhood straddles two words
+						index = nibble(cur, row0 + w, s)
+								| (nibble(cur, row1 + w, s) << 4)
+								| (nibble(cur, row2 + w, s) << 8)
+								| (nibble(cur, row3 + w, s) << 12);
+					}
+					int out = lut[index];
+					// the block's cells sit at bits s + 1 and s + 2; the
+					// second one of the last block is bit 0 of the next word
+					top |= (long) (out & 3) << (s + 1);
+					bottom |= (long) ((out >>> 2) & 3) << (s + 1);
+					if (s == 62) {
+						carryTop = (out >>> 1) & 1L;
+						carryBottom = (out >>> 3) & 1L;
+					}
+				}
+				nxt[row1 + w] = top;
+				nxt[row2 + w] = bottom;
+				count += Long.bitCount(top) + Long.bitCount(bottom);
+			}
+			// the word past the last column holds the ghost bit and maybe
+			// the carry
+			for (; w < wpr; w++) {
+				nxt[row1 + w] = carryTop;
+				nxt[row2 + w] = carryBottom;
+				count += carryTop + carryBottom;
+				carryTop = 0L;
+				carryBottom = 0L;
+			}
+		}
+
+		current = nxt;
+		next = cur;
+		generation++;
+		population = count;
+	}
+
+	// four bits starting at bit c of a padded row; they may straddle two words
+	private static int nibble(long[] grid, int word, int c) {
+		int s = c & 63;
+		long bits = grid[word] >>> s;
+		if (s > 60) {
+			bits |= grid[word + 1] << (64 - s);
+		}
+		return (int) bits & 0xF;
+	}
+
+	// copy the opposite edges into the ghost border so the torus wraps
+	private void refreshGhosts() {
+		for (int r = 1; r <= rows; r++) {
+			setBit(current, r, 0, getBit(current, r, columns));
+			setBit(current, r, columns + 1, getBit(current, r, 1));
+		}
+		System.arraycopy(current, rows * wordsPerRow, current, 0, wordsPerRow);
+		System.arraycopy(current, wordsPerRow, current, (rows + 1)
+				* wordsPerRow, wordsPerRow);
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < current.length; i++) {
+			current[i] = 0L;
+		}
+		population = 0;
+		generation = 0;
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
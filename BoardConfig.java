@@ -0,0 +1,255 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * The board RunFrame opens: its size, engine, rule and the threads of the
+ * parallel engine. Read from a properties file with the keys rows, columns,
+ * engine, rule and parallelism, and then from the command line, which wins:
+ *
+ * [rows columns] [--config file] [--engine name] [--rule notation]
+ * [--parallelism threads]
+ *
+ * The size is only limited by memory. estimateBytes() adds up what the
+ * engine, the view and the generation history will allocate, and
+ * checkMemory() refuses a board that would not fit in the heap instead of
+ * failing part way through with an OutOfMemoryError. The history's budget
+ * comes from -Dlife.history in MB, 0 to go without one. Without it the
+ * history is only kept for the engines that track their changes, as any
+ * other engine has to be copied whole every generation.
+ */
+public class BoardConfig {
+	public static final int DEFAULT_ROWS = 70;
+	public static final int DEFAULT_COLUMNS = 120;
+
+	private int rows = DEFAULT_ROWS;
+	private int columns = DEFAULT_COLUMNS;
+	private String engine = System.getProperty("life.engine", Engines.DEFAULT);
+	private Rule rule = Rule.CONWAY;
+	// threads of the parallel engine, -Dlife.parallelism or one a processor
+	private int parallelism = Integer.getInteger("life.parallelism", Runtime
+			.getRuntime().availableProcessors());
+	// memory for past generations, 0 for no history, -1 for the engine's
+	// default
+	private long historyBudget = Long.getLong("life.history", -1) < 0 ? -1
+			: Long.getLong("life.history") << 20;
+
+	public BoardConfig() {
+	}
+
+	public BoardConfig(int rows, int columns) {
+		setSize(rows, columns);
+	}
+
+	public static BoardConfig parse(String[] args) throws IOException {
+		BoardConfig config = new BoardConfig();
+		// the file first, so the other arguments override it
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--config")) {
+				config.load(args[i + 1]);
+			}
+		}
+		int position = 0;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--")) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for "
+							+ arg);
+				}
+				String value = args[++i];
+				if (arg.equals("--engine")) {
+					config.setEngine(value);
+				} else if (arg.equals("--rule")) {
+					config.setRule(Rule.parse(value));
+				} else if (arg.equals("--parallelism")) {
+					config.setParallelism(parseThreads(value));
+				} else if (!arg.equals("--config")) {
+					throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			} else if (position == 0) {
+				config.setSize(parseSize(arg), config.columns);
+				position++;
+			} else if (position == 1) {
+				config.setSize(config.rows, parseSize(arg));
+				position++;
+			} else {
+				throw new IllegalArgumentException("Unexpected argument "
+						+ arg);
+			}
+		}
+		if (position == 1) {
+			throw new IllegalArgumentException(
+					"Give both rows and columns, not just " + config.rows);
+		}
+		return config;
+	}
+
+	public void load(String file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public void load(InputStream in) throws IOException {
+		Properties properties = new Properties();
+		properties.load(in);
+		String value = properties.getProperty("rows");
+		if (value != null) {
+			setSize(parseSize(value.trim()), columns);
+		}
+		value = properties.getProperty("columns");
+		if (value != null) {
+			setSize(rows, parseSize(value.trim()));
+		}
+		value = properties.getProperty("engine");
+		if (value != null) {
+			setEngine(value.trim());
+		}
+		value = properties.getProperty("rule");
+		if (value != null) {
+			setRule(Rule.parse(value));
+		}
+		value = properties.getProperty("parallelism");
+		if (value != null) {
+			setParallelism(parseThreads(value.trim()));
+		}
+	}
+
+	private static int parseThreads(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad parallelism '" + value
+					+ "'");
+		}
+	}
+
+	private static int parseSize(String value) {
+		try {
+			return Integer.parseInt(value.replace("_", ""));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad board size '" + value
+					+ "'");
+		}
+	}
+
+	// heap the engine, the view and the history of this board will
+	// allocate, roughly
+	public long estimateBytes() {
+		long words = (long) rows * ((columns + 63) / 64);
+		if (words > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Board " + rows + "x"
+					+ columns + " is too large to display");
+		}
+		// four snapshots for the render loop and the pink trail, one bit a
+		// cell each, and the density pyramid at a long per 64x64 tile
+		long view = 5 * 8 * words + 2 * 8 * (words / 64 + 1);
+		long budget = getHistoryBudget();
+		long history = budget > 0 ? GenerationHistory.estimateBytes(rows,
+				columns, budget) : 0;
+		return Engines.estimateBytes(engine, rows, columns, rule) + view
+				+ history;
+	}
+
+	// throws if the board needs more than the given number of bytes
+	public void checkMemory(long available) {
+		long needed = estimateBytes();
+		if (needed > available) {
+			throw new IllegalArgumentException("A " + rows + "x" + columns
+					+ " board on the " + engine + " engine needs about "
+					+ megabytes(needed) + " MB but only " + megabytes(available)
+					+ " MB of heap is free; raise -Xmx or use a smaller board");
+		}
+	}
+
+	// heap this JVM can still allocate
+	public static long availableMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory()
+				- (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	private static long megabytes(long bytes) {
+		return (bytes + (1 << 20) - 1) >> 20;
+	}
+
+	public void setSize(int rows, int columns) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Board must be at least 1x1: "
+					+ rows + "x" + columns);
+		}
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+
+	public void setEngine(String engine) {
+		// fails early on unknown names
+		Engines.estimateBytes(engine, 1, 1, rule);
+		this.engine = engine;
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(
+					"Parallelism must be at least 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	// an empty board of this configuration
+	public LifeEngine createEngine() {
+		return Engines.create(engine, rows, columns, rule, parallelism);
+	}
+
+	// the budget set, or else the default one for engines that track their
+	// changes and 0 for the others
+	public long getHistoryBudget() {
+		if (historyBudget >= 0) {
+			return historyBudget;
+		}
+		return Engines.tracksChanges(engine) ? GenerationHistory.DEFAULT_BUDGET
+				: 0;
+	}
+
+	// bytes for past generations, 0 for no history
+	public void setHistoryBudget(long bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException("Bad history budget " + bytes);
+		}
+		this.historyBudget = bytes;
+	}
+
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	@Override
+	public String toString() {
+		return rows + "x" + columns + " " + engine + " " + rule;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * A copy of one generation of a board, packed 64 cells to a long per row,
+ * together with the cells that changed since the snapshot before it was
+ * taken. Snapshots are handed from the simulation thread to the renderer by
+ * a FramePublisher and reused, so taking one allocates nothing.
+ */
+public class BoardSnapshot {
+	private final int rows;
+	private final int columns;
+	private final int wordsPerRow;
+	private final long[] words;
+	private final DirtyRows dirty;
+	private long generation;
+	private long population;
+
+	public BoardSnapshot(int rows, int columns) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Bad snapshot size " + rows
+					+ "x" + columns);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.wordsPerRow = (columns + 63) >>> 6;
+		this.words = new long[rows * wordsPerRow];
+		this.dirty = new DirtyRows(rows, columns);
+	}
+
+	// heap one rows x columns snapshot takes: its words and change spans
+	public static long estimateBytes(int rows, int columns) {
+		return 8L * rows * ((columns + 63) >>> 6) + 8L * rows;
+	}
+
+	// copy the engine's cells and move its pending changes into this snapshot
+	public void capture(LifeEngine engine) {
+		copyCells(engine);
+		if (engine instanceof ChangeTracking) {
+			DirtyRows changes = ((ChangeTracking) engine).getDirtyRows();
+			dirty.include(changes);
+			changes.clear();
+		} else {
+			dirty.markAll();
+		}
+	}
+
+	// copy the engine's cells only, leaving its pending changes for the
+	// renderer
+	public void copyCells(LifeEngine engine) {
+		if (engine instanceof BitPackedEngine
+				&& ((BitPackedEngine) engine).getRows() == rows
+				&& ((BitPackedEngine) engine).getColumns() == columns) {
+			((BitPackedEngine) engine).copyWords(words);
+		} else {
+			for (int i = 0; i < rows; i++) {
+				int base = i * wordsPerRow;
+				for (int w = 0; w < wordsPerRow; w++) {
+					long word = 0L;
+					int last = Math.min(64, columns - (w << 6));
+					for (int b = 0; b < last; b++) {
+						if (engine.isAlive(i, (w << 6) + b)) {
+							word |= 1L << b;
+						}
+					}
+					words[base + w] = word;
+				}
+			}
+		}
+		generation = engine.getGeneration();
+		population = engine.getPopulation();
+	}
+
+	public boolean isAlive(int row, int col) {
+		return (words[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+	}
+
+	// the packed cells of columns w * 64 .. w * 64 + 63 of a row
+	public long getWord(int row, int w) {
+		return words[row * wordsPerRow + w];
+	}
+
+	// changes since the renderer last cleared them, across skipped snapshots
+	public DirtyRows getDirtyRows() {
+		return dirty;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+}
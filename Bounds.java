@@ -0,0 +1,68 @@
+/**
+ * The smallest box of rows and columns holding every live cell of a board,
+ * inclusive on all four sides. An empty board has an empty box.
+ */
+public final class Bounds {
+	public static final Bounds EMPTY = new Bounds(0, 0, -1, -1);
+
+	private final int top;
+	private final int left;
+	private final int bottom;
+	private final int right;
+
+	public Bounds(int top, int left, int bottom, int right) {
+		this.top = top;
+		this.left = left;
+		this.bottom = bottom;
+		this.right = right;
+	}
+
+	public boolean isEmpty() {
+		return bottom < top;
+	}
+
+	public int getTop() {
+		return top;
+	}
+
+	public int getLeft() {
+		return left;
+	}
+
+	public int getBottom() {
+		return bottom;
+	}
+
+	public int getRight() {
+		return right;
+	}
+
+	public int getHeight() {
+		return isEmpty() ? 0 : bottom - top + 1;
+	}
+
+	public int getWidth() {
+		return isEmpty() ? 0 : right - left + 1;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Bounds)) {
+			return false;
+		}
+		Bounds b = (Bounds) o;
+		return top == b.top && left == b.left && bottom == b.bottom
+				&& right == b.right;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((top * 31 + left) * 31 + bottom) * 31 + right;
+	}
+
+	@Override
+	public String toString() {
+		return isEmpty() ? "empty" : "rows " + top + ".." + bottom
+				+ ", columns " + left + ".." + right;
+	}
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Plaintext .cells patterns: lines starting with '!' are comments, 'O' (or
+ * '*') is a live cell and '.' a dead one, and a line may stop after its last
+ * live cell. Reading goes character by character straight into the engine,
+ * and measure() finds the size of a pattern the same way, so neither keeps
+ * more than a few counters however big the file is.
+ */
+public class CellsFormat {
+
+	// set the live cells with the first pattern line at row and its first
+	// column at col of a rows x columns board; returns how many there were
+	public static long read(Reader in, LifeEngine engine, int row, int col,
+			int rows, int columns) throws IOException {
+		return scan(in, engine, row, col, new int[] { rows, columns });
+	}
+
+	// the box around the live cells, relative to the first pattern line and
+	// column
+	public static Bounds measure(Reader in) throws IOException {
+		int[] box = { Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1 };
+		scan(in, null, 0, 0, box);
+		return box[2] < 0 ? Bounds.EMPTY : new Bounds(box[0], box[1], box[2],
+				box[3]);
+	}
+
+	// feed the live cells either to the engine, on a board of box[0] x
+	// box[1], or into box (top, left, bottom, right)
+	private static long scan(Reader in, LifeEngine engine, int row, int col,
+			int[] box) throws IOException {
+		long live = 0;
+		int r = 0;
+		int c = 0;
+		boolean comment = false;
+		int ch;
+		while ((ch = in.read()) >= 0) {
+			if (ch == '\n') {
+				if (!comment) {
+					r++;
+				}
+				c = 0;
+				comment = false;
+			} else if (comment || ch == '\r') {
+				continue;
+			} else if (ch == '!' && c == 0) {
+				comment = true;
+			} else if (ch == 'O' || ch == '*') {
+				if (engine != null) {
+					long i = (long) row + r;
+					long j = (long) col + c;
+					if (i < 0 || i >= box[0] || j < 0 || j >= box[1]) {
+						throw new IOException("Cell in line " + (r + 1)
+								+ " of a .cells pattern outside the board");
+					}
+					engine.setAlive((int) i, (int) j, true);
+				} else {
+					box[0] = Math.min(box[0], r);
+					box[1] = Math.min(box[1], c);
+					box[2] = r;
+					box[3] = Math.max(box[3], c);
+				}
+				live++;
+				c++;
+			} else if (ch == '.') {
+				c++;
+			} else if (!Character.isWhitespace(ch)) {
+				throw new IOException("Unexpected '" + (char) ch
+						+ "' in line " + (r + 1) + " of a .cells pattern");
+			}
+		}
+		return live;
+	}
+
+	// write the cells of area, one line per row without trailing dead cells
+	public static void write(LifeEngine engine, Bounds area, String name,
+			Writer out) throws IOException {
+		if (name != null) {
+			out.write("!Name: " + name + "\n");
+		}
+		StringBuilder line = new StringBuilder();
+		for (int i = area.getTop(); i <= area.getBottom(); i++) {
+			line.setLength(0);
+			int end = 0;
+			for (int j = area.getLeft(); j <= area.getRight(); j++) {
+				if (engine.isAlive(i, j)) {
+					line.append('O');
+					end = line.length();
+				} else {
+					line.append('.');
+				}
+			}
+			line.setLength(end);
+			line.append('\n');
+			out.write(line.toString());
+		}
+		out.flush();
+	}
+}
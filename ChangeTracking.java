@@ -0,0 +1,9 @@
+/**
+ * Implemented by engines that record which cells changed, so a renderer can
+ * redraw only those parts of the board.
+ */
+public interface ChangeTracking {
+
+	// changes since the consumer last cleared them
+	public DirtyRows getDirtyRows();
+}
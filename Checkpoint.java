@@ -0,0 +1,438 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A board saved to disk in a small versioned binary format. The board is cut
+ * into tiles of 64 rows by one 64-bit word, the same tiles TiledEngine
+ * sleeps on, and only tiles with a live cell are stored, so a sparse board
+ * costs little more than its live area. The payload can be deflated.
+ *
+ * Everything is little-endian:
+ *   8 bytes  "LIFECKPT"
+ *   int      format version
+ *   int      flags, COMPRESSED
+ *   int      rows, int columns
+ *   long     generation, long population
+ *   long     payload length in bytes
+ *   int      length of the rule notation, then its UTF-8 bytes
+ *   padding up to a multiple of 8
+ *   payload: one bit per tile, row-major, in longs; then the words of every
+ *            tile whose bit is set, row by row
+ *
+ * Loading maps the file with FileChannel.map and reads the words straight
+ * out of the mapping (or inflates from it), in windows, so boards larger
+ * than 2 GB load too. Only the live state is kept: the dying states of
+ * Generations rules are not.
+ */
+public class Checkpoint {
+	public static final int VERSION = 1;
+	public static final int COMPRESSED = 1;
+	public static final int TILE_ROWS = 64;
+
+	private static final byte[] MAGIC = "LIFECKPT"
+			.getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER_BYTES = 52;
+	private static final int BUFFER_BYTES = 1 << 20;
+	// how much of the file is mapped at a time
+	private static final long WINDOW_BYTES = 1L << 28;
+
+	private final Path file;
+	private final int flags;
+	private final int rows;
+	private final int columns;
+	private final long generation;
+	private final long population;
+	private final Rule rule;
+	private final long payloadStart;
+	private final long payloadBytes;
+
+	private Checkpoint(Path file, int flags, int rows, int columns,
+			long generation, long population, Rule rule, long payloadStart,
+			long payloadBytes) {
+		this.file = file;
+		this.flags = flags;
+		this.rows = rows;
+		this.columns = columns;
+		this.generation = generation;
+		this.population = population;
+		this.rule = rule;
+		this.payloadStart = payloadStart;
+		this.payloadBytes = payloadBytes;
+	}
+
+	// write the snapshot as the given generation to file, through a
+	// temporary file that replaces it only once everything is on disk, so a
+	// crash keeps the old checkpoint
+	public static void write(BoardSnapshot snapshot, Rule rule,
+			long generation, Path file, boolean compress) throws IOException {
+		int rows = snapshot.getRows();
+		int wpr = snapshot.getWordsPerRow();
+		int tileRows = (rows + TILE_ROWS - 1) / TILE_ROWS;
+		byte[] notation = rule.toString().getBytes(StandardCharsets.UTF_8);
+		int payloadStart = (HEADER_BYTES + notation.length + 7) & ~7;
+
+		// which tiles hold a live cell, read row by row
+		long[] tiles = new long[(int) (((long) tileRows * wpr + 63) >>> 6)];
+		for (int r = 0; r < rows; r++) {
+			int first = (r / TILE_ROWS) * wpr;
+			for (int w = 0; w < wpr; w++) {
+				if (snapshot.getWord(r, w) != 0) {
+					tiles[(first + w) >>> 6] |= 1L << (first + w);
+				}
+			}
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp,
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				channel.position(payloadStart);
+				Sink sink = new Sink(channel, compress);
+				for (long bits : tiles) {
+					sink.putLong(bits);
+				}
+				long live = 0;
+				for (int tr = 0; tr < tileRows; tr++) {
+					int lastRow = Math.min(rows, (tr + 1) * TILE_ROWS);
+					for (int w = 0; w < wpr; w++) {
+						int tile = tr * wpr + w;
+						if ((tiles[tile >>> 6] & (1L << tile)) == 0) {
+							continue;
+						}
+						for (int r = tr * TILE_ROWS; r < lastRow; r++) {
+							long word = snapshot.getWord(r, w);
+							live += Long.bitCount(word);
+							sink.putLong(word);
+						}
+					}
+				}
+				long payloadBytes = sink.finish();
+
+				ByteBuffer header = ByteBuffer.allocate(payloadStart).order(
+						ByteOrder.LITTLE_ENDIAN);
+				header.put(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(compress ? COMPRESSED : 0);
+				header.putInt(rows);
+				header.putInt(snapshot.getColumns());
+				header.putLong(generation);
+				header.putLong(live);
+				header.putLong(payloadBytes);
+				header.putInt(notation.length);
+				header.put(notation);
+				header.rewind();
+				long position = 0;
+				while (header.hasRemaining()) {
+					position += channel.write(header, position);
+				}
+				channel.force(false);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			// a half written checkpoint is of no use to anyone
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException again) {
+				e.addSuppressed(again);
+			}
+			throw e;
+		}
+	}
+
+	// read the header of a checkpoint; restore() loads the cells
+	public static Checkpoint open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(
+					ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			int version = header.getInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException(file + " has checkpoint version "
+						+ version + ", this build reads up to " + VERSION);
+			}
+			int flags = header.getInt();
+			int rows = header.getInt();
+			int columns = header.getInt();
+			long generation = header.getLong();
+			long population = header.getLong();
+			long payloadBytes = header.getLong();
+			int length = header.getInt();
+			if (rows < 1 || columns < 1 || length < 0 || length > 4096) {
+				throw new IOException(file + " has a damaged header");
+			}
+			ByteBuffer notation = ByteBuffer.allocate(length);
+			readFully(channel, notation, HEADER_BYTES);
+			Rule rule;
+			try {
+				rule = Rule.parse(new String(notation.array(),
+						StandardCharsets.UTF_8));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(file + ": " + e.getMessage(), e);
+			}
+			long payloadStart = (HEADER_BYTES + length + 7) & ~7;
+			if (payloadStart + payloadBytes > channel.size()) {
+				throw new EOFException(file + " is truncated");
+			}
+			return new Checkpoint(file, flags, rows, columns, generation,
+					population, rule, payloadStart, payloadBytes);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position);
+			if (n < 0) {
+				throw new EOFException("Checkpoint is truncated");
+			}
+			position += n;
+		}
+		buffer.flip();
+	}
+
+	// clear the engine and load the saved cells into it; the engine should be
+	// made with getRows(), getColumns() and getRule()
+	public void restore(LifeEngine engine) throws IOException {
+		BitPackedEngine packed = null;
+		if (engine instanceof BitPackedEngine) {
+			packed = (BitPackedEngine) engine;
+			if (packed.getRows() != rows || packed.getColumns() != columns) {
+				throw new IllegalArgumentException("Checkpoint of " + rows
+						+ "x" + columns + " does not fit a board of "
+						+ packed.getRows() + "x" + packed.getColumns());
+			}
+		}
+		engine.clear();
+
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			Source source = new Source(channel, payloadStart, payloadStart
+					+ payloadBytes, (flags & COMPRESSED) != 0);
+			try {
+				restore(engine, packed, source);
+			} finally {
+				source.close();
+			}
+		}
+	}
+
+	private void restore(LifeEngine engine, BitPackedEngine packed,
+			Source source) throws IOException {
+		int wpr = (columns + 63) >>> 6;
+		int tileRows = (rows + TILE_ROWS - 1) / TILE_ROWS;
+		long[] tiles = new long[(int) (((long) tileRows * wpr + 63) >>> 6)];
+		for (int i = 0; i < tiles.length; i++) {
+			tiles[i] = source.nextLong();
+		}
+		long live = 0;
+		for (int tr = 0; tr < tileRows; tr++) {
+			int lastRow = Math.min(rows, (tr + 1) * TILE_ROWS);
+			for (int w = 0; w < wpr; w++) {
+				int tile = tr * wpr + w;
+				if ((tiles[tile >>> 6] & (1L << tile)) == 0) {
+					continue;
+				}
+				for (int r = tr * TILE_ROWS; r < lastRow; r++) {
+					long word = source.nextLong();
+					live += Long.bitCount(word);
+					if (packed != null) {
+						packed.setWord(r, w, word);
+					} else {
+						for (long bits = word; bits != 0; bits &= bits - 1) {
+							engine.setAlive(r, (w << 6)
+									+ Long.numberOfTrailingZeros(bits), true);
+						}
+					}
+				}
+			}
+		}
+		if (live != population) {
+			throw new IOException(file + " is damaged: " + live
+					+ " live cells instead of " + population);
+		}
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	public boolean isCompressed() {
+		return (flags & COMPRESSED) != 0;
+	}
+
+	// longs out to the channel through a buffer, deflated or not
+	private static final class Sink {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		private final Deflater deflater;
+		private final ByteBuffer deflated;
+		private long written;
+
+		Sink(FileChannel channel, boolean compress) {
+			this.channel = channel;
+			this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+			this.deflated = compress ? ByteBuffer.allocate(BUFFER_BYTES) : null;
+		}
+
+		void putLong(long value) throws IOException {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			buffer.putLong(value);
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			if (deflater == null) {
+				write(buffer);
+			} else {
+				deflater.setInput(buffer);
+				while (!deflater.needsInput()) {
+					deflate();
+				}
+			}
+			buffer.clear();
+		}
+
+		private void deflate() throws IOException {
+			deflater.deflate(deflated);
+			deflated.flip();
+			write(deflated);
+			deflated.clear();
+		}
+
+		private void write(ByteBuffer bytes) throws IOException {
+			while (bytes.hasRemaining()) {
+				written += channel.write(bytes);
+			}
+		}
+
+		// flush everything and return the payload length
+		long finish() throws IOException {
+			drain();
+			if (deflater != null) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					deflate();
+				}
+				deflater.end();
+			}
+			return written;
+		}
+	}
+
+	// longs read out of the mapped payload, inflating it when compressed
+	private static final class Source {
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+		private ByteBuffer window = ByteBuffer.allocate(0);
+		private final Inflater inflater;
+		private final ByteBuffer inflated;
+
+		Source(FileChannel channel, long start, long end, boolean compressed) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+			this.inflater = compressed ? new Inflater() : null;
+			this.inflated = compressed ? ByteBuffer.allocate(BUFFER_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN) : null;
+			if (compressed) {
+				inflated.flip();
+			}
+		}
+
+		long nextLong() throws IOException {
+			if (inflater == null) {
+				if (window.remaining() < 8) {
+					map();
+				}
+				return window.getLong();
+			}
+			if (inflated.remaining() < 8) {
+				inflate();
+			}
+			return inflated.getLong();
+		}
+
+		// map the next part of the payload; windows are a multiple of 8
+		// bytes, so a long never straddles two of them
+		private void map() throws IOException {
+			if (position >= end) {
+				throw new EOFException("Checkpoint is truncated");
+			}
+			long size = Math.min(WINDOW_BYTES, end - position);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			position += size;
+		}
+
+		private void inflate() throws IOException {
+			inflated.compact();
+			try {
+				while (inflated.position() < 8) {
+					if (inflater.finished()) {
+						throw new EOFException("Checkpoint is truncated");
+					}
+					if (inflater.needsInput()) {
+						map();
+						inflater.setInput(window);
+					}
+					inflater.inflate(inflated);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Checkpoint is damaged", e);
+			} finally {
+				inflated.flip();
+			}
+		}
+
+		void close() {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+	}
+}
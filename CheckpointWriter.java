@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes checkpoints on a background thread. save() only copies the board
+ * into a snapshot, which is one array copy for the bit-packed engines, and
+ * returns; finding the live tiles, compressing and writing to disk happen on
+ * the writer thread, so the simulation never waits for the disk. While a
+ * checkpoint is still being written, further saves are skipped instead of
+ * queued, so a slow disk cannot pile up copies of the board.
+ */
+public class CheckpointWriter {
+	private final boolean compress;
+	private final ExecutorService executor = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "checkpoint-writer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	private final AtomicBoolean busy = new AtomicBoolean();
+	// reused between checkpoints, only touched by save() while not busy
+	private BoardSnapshot snapshot;
+	private Future<?> pending;
+	private volatile IOException error;
+	private volatile long written;
+
+	public CheckpointWriter(boolean compress) {
+		this.compress = compress;
+	}
+
+	// copy the engine's rows x columns board and write it to file as the
+	// given generation in the background; false if the last checkpoint is
+	// still being written
+	public boolean save(LifeEngine engine, int rows, int columns,
+			final long generation, final Path file) {
+		if (!busy.compareAndSet(false, true)) {
+			return false;
+		}
+		if (snapshot == null || snapshot.getRows() != rows
+				|| snapshot.getColumns() != columns) {
+			snapshot = new BoardSnapshot(rows, columns);
+		}
+		snapshot.copyCells(engine);
+		final BoardSnapshot board = snapshot;
+		final Rule rule = engine.getRule();
+		pending = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Checkpoint.write(board, rule, generation, file, compress);
+					written++;
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					busy.set(false);
+				}
+			}
+		});
+		return true;
+	}
+
+	// wait until the checkpoint being written is on disk
+	public void await() throws IOException {
+		Future<?> last = pending;
+		if (last == null) {
+			return;
+		}
+		try {
+			last.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing a checkpoint", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Checkpoint failed", e.getCause());
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	// finish the last checkpoint and stop the writer thread
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	// the last write that failed, or null
+	public IOException getError() {
+		return error;
+	}
+
+	// checkpoints written so far
+	public long getWritten() {
+		return written;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Torus that keeps a live-neighbour count for every cell and only updates it
+ * when a cell is born or dies. The cells that flipped in the last generation
+ * form a change list, and only those cells and their neighbours are examined
+ * in the next one, so slow patterns like Acorn cost what they change rather
+ * than the board area.
+ */
+public class CountingEngine implements LifeEngine, ChangeTracking {
+	private final int rows;
+	private final int columns;
+	private final int[] neighbours;
+	private final Rule rule;
+	// transition table, indexed by state * 9 + count
+	private final byte[] table;
+	private final byte[] cells;
+	private final byte[] counts;
+
+	// cells that flipped since the previous step, without duplicates
+	private final int[] changes;
+	private final boolean[] queued;
+	private int changeCount;
+
+	// cells to examine in the current step, deduplicated by epoch stamps
+	private final int[] candidates;
+	private final int[] stamps;
+	private int epoch;
+
+	private final DirtyRows dirty;
+	private long population;
+	private long generation;
+
+	public CountingEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public CountingEngine(int rows, int columns, Rule rule) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Board must be at least 1x1: "
+					+ rows + "x" + columns);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.rule = rule.requireLifeLike(getClass().getName()).requireNoB0(
+				getClass().getName());
+		this.table = rule.getTable();
+		this.neighbours = new NeighbourTable(rows, columns).getIndices();
+		this.cells = new byte[rows * columns];
+		this.counts = new byte[rows * columns];
+		this.changes = new int[rows * columns];
+		this.queued = new boolean[rows * columns];
+		this.candidates = new int[rows * columns];
+		this.stamps = new int[rows * columns];
+		this.dirty = new DirtyRows(rows, columns);
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		return cells[row * columns + col] != 0;
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		int index = row * columns + col;
+		if ((cells[index] != 0) != alive) {
+			flip(index);
+			queue(index);
+		}
+	}
+
+	@Override
+	public void step() {
+		nextEpoch();
+		int candidateCount = 0;
+		for (int i = 0; i < changeCount; i++) {
+			int index = changes[i];
+			queued[index] = false;
+			candidateCount = addCandidate(index, candidateCount);
+			int n = index * NeighbourTable.NEIGHBOURS;
+			for (int k = 0; k < NeighbourTable.NEIGHBOURS; k++) {
+				candidateCount = addCandidate(neighbours[n + k], candidateCount);
+			}
+		}
+
+		// decide everything against the old counts before applying any flip
+		changeCount = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			int index = candidates[i];
+			int state = cells[index];
+			if (table[state * 9 + counts[index]] != state) {
+				queue(index);
+			}
+		}
+		for (int i = 0; i < changeCount; i++) {
+			flip(changes[i]);
+		}
+		generation++;
+	}
+
+	private int addCandidate(int index, int candidateCount) {
+		if (stamps[index] != epoch) {
+			stamps[index] = epoch;
+			candidates[candidateCount++] = index;
+		}
+		return candidateCount;
+	}
+
+	private void nextEpoch() {
+		if (++epoch == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++) {
+				stamps[i] = 0;
+			}
+			epoch = 1;
+		}
+	}
+
+	private void queue(int index) {
+		if (!queued[index]) {
+			queued[index] = true;
+			changes[changeCount++] = index;
+		}
+	}
+
+	// toggle a cell and move the counts of its neighbours with it
+	private void flip(int index) {
+		dirty.mark(index / columns, index % columns, index % columns);
+		int delta = cells[index] == 0 ? 1 : -1;
+		cells[index] = (byte) (cells[index] + delta);
+		population += delta;
+		int n = index * NeighbourTable.NEIGHBOURS;
+		for (int k = 0; k < NeighbourTable.NEIGHBOURS; k++) {
+			counts[neighbours[n + k]] += delta;
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = 0;
+			counts[i] = 0;
+			queued[i] = false;
+		}
+		changeCount = 0;
+		population = 0;
+		generation = 0;
+		dirty.markAll();
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+
+	@Override
+	public DirtyRows getDirtyRows() {
+		return dirty;
+	}
+
+	// number of cells that flipped in the last generation
+	public int getChangeCount() {
+		return changeCount;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Notices when a board has settled: it remembers the hash and population of
+ * the last few observed generations in a ring and reports when the newest
+ * one equals one of them. A period of 1 is a still life (or a dead board),
+ * anything longer an oscillator, and the generation where the repeating
+ * state first appeared is where the cycle started. Boards whose period is
+ * longer than the ring, such as a glider crossing a torus, are not caught.
+ */
+public class CycleDetector {
+	public static final int DEFAULT_MAX_PERIOD = 64;
+
+	private final long[] generations;
+	private final long[] hashes;
+	private final long[] populations;
+	// observations since the last reset, the newest at slot (seen - 1)
+	private long seen;
+
+	private long period;
+	private long start;
+
+	public CycleDetector() {
+		this(DEFAULT_MAX_PERIOD);
+	}
+
+	// remembers maxPeriod observations, which is the longest period found
+	// when every generation is observed
+	public CycleDetector(int maxPeriod) {
+		if (maxPeriod < 1) {
+			throw new IllegalArgumentException("Bad maximum period "
+					+ maxPeriod);
+		}
+		generations = new long[maxPeriod];
+		hashes = new long[maxPeriod];
+		populations = new long[maxPeriod];
+	}
+
+	// the engine's own hash when it keeps one, otherwise a hash of the
+	// rows x columns window read cell by cell
+	public static long hash(LifeEngine engine, int rows, int columns) {
+		if (engine instanceof BitPackedEngine) {
+			return ((BitPackedEngine) engine).getHash();
+		}
+		long h = rows * 31L + columns;
+		for (int i = 0; i < rows; i++) {
+			for (int from = 0; from < columns; from += 64) {
+				long word = 0;
+				int to = Math.min(from + 64, columns);
+				for (int j = from; j < to; j++) {
+					if (engine.isAlive(i, j)) {
+						word |= 1L << j;
+					}
+				}
+				h = (h ^ word) * 0x9E3779B97F4A7C15L;
+				h ^= h >>> 29;
+			}
+		}
+		return h;
+	}
+
+	// add the state of a generation; returns true when the board has just
+	// become periodic. Generations must increase; an older one (the board
+	// was cleared) starts over.
+	public boolean observe(long generation, long hash, long population) {
+		if (seen > 0 && generation <= generations[slot(seen - 1)]) {
+			reset();
+		}
+		if (period > 0) {
+			// still repeating what it did one period ago?
+			int earlier = find(generation - period);
+			if (earlier < 0 || hashes[earlier] != hash
+					|| populations[earlier] != population) {
+				period = 0;
+			}
+		}
+		boolean found = false;
+		if (period == 0) {
+			long oldest = Math.max(0, seen - hashes.length);
+			for (long i = seen - 1; i >= oldest; i--) {
+				int k = slot(i);
+				if (hashes[k] == hash && populations[k] == population) {
+					period = generation - generations[k];
+					start = generations[k];
+					found = true;
+					break;
+				}
+			}
+		}
+		int k = slot(seen);
+		generations[k] = generation;
+		hashes[k] = hash;
+		populations[k] = population;
+		seen++;
+		return found;
+	}
+
+	// observe the generation the engine is at
+	public boolean observe(LifeEngine engine, int rows, int columns) {
+		return observe(engine.getGeneration(), hash(engine, rows, columns),
+				engine.getPopulation());
+	}
+
+	// slot holding a generation, -1 if it is no longer in the ring
+	private int find(long generation) {
+		long oldest = Math.max(0, seen - hashes.length);
+		for (long i = seen - 1; i >= oldest; i--) {
+			int k = slot(i);
+			if (generations[k] == generation) {
+				return k;
+			}
+			if (generations[k] < generation) {
+				break;
+			}
+		}
+		return -1;
+	}
+
+	private int slot(long observation) {
+		return (int) (observation % hashes.length);
+	}
+
+	public void reset() {
+		seen = 0;
+		period = 0;
+		start = 0;
+	}
+
+	// true while the newest generations keep repeating
+	public boolean isSettled() {
+		return period > 0;
+	}
+
+	// generations between repeats, 0 if the board has not settled
+	public long getPeriod() {
+		return period;
+	}
+
+	// first generation of the cycle
+	public long getStart() {
+		return start;
+	}
+
+	public int getMaxObservations() {
+		return hashes.length;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Live cell counts of a board at every power-of-two block size from 64x64
+ * up, so a zoomed-out view can shade a pixel from one lookup instead of
+ * visiting the cells behind it. Level 0 counts the 64x64 tiles of a packed
+ * snapshot with one bitCount per word, and every level above sums 2x2 blocks
+ * of the one below. Only the tiles under a snapshot's dirty spans and their
+ * parents are recounted.
+ */
+public class DensityPyramid {
+	public static final int TILE = 64;
+
+	private final int rows;
+	// tile rows and columns of each level
+	private final int[] levelRows;
+	private final int[] levelColumns;
+	private final long[][] counts;
+	// blocks of each level that need recounting
+	private final DirtyRows[] stale;
+
+	public DensityPyramid(int rows, int columns) {
+		this.rows = rows;
+		int levels = 1;
+		int r = (rows + TILE - 1) / TILE;
+		int c = (columns + TILE - 1) / TILE;
+		while (r > 1 || c > 1) {
+			r = (r + 1) / 2;
+			c = (c + 1) / 2;
+			levels++;
+		}
+		this.levelRows = new int[levels];
+		this.levelColumns = new int[levels];
+		this.counts = new long[levels][];
+		this.stale = new DirtyRows[levels];
+		r = (rows + TILE - 1) / TILE;
+		c = (columns + TILE - 1) / TILE;
+		for (int level = 0; level < levels; level++) {
+			levelRows[level] = r;
+			levelColumns[level] = c;
+			counts[level] = new long[r * c];
+			stale[level] = new DirtyRows(r, c);
+			r = (r + 1) / 2;
+			c = (c + 1) / 2;
+		}
+	}
+
+	// recount the blocks under the dirty spans of the snapshot
+	public void update(BoardSnapshot snapshot, DirtyRows dirty) {
+		for (int i = 0; i < rows; i++) {
+			if (dirty.isDirty(i)) {
+				stale[0].mark(i / TILE, dirty.getFirst(i) / TILE,
+						dirty.getLast(i) / TILE);
+			}
+		}
+		for (int level = 0; level < counts.length; level++) {
+			DirtyRows blocks = stale[level];
+			for (int t = 0; t < levelRows[level]; t++) {
+				if (!blocks.isDirty(t)) {
+					continue;
+				}
+				for (int u = blocks.getFirst(t); u <= blocks.getLast(t); u++) {
+					counts[level][t * levelColumns[level] + u] = (level == 0) ? countTile(
+							snapshot, t, u) : sumChildren(level, t, u);
+				}
+				if (level + 1 < counts.length) {
+					stale[level + 1].mark(t / 2, blocks.getFirst(t) / 2,
+							blocks.getLast(t) / 2);
+				}
+			}
+			blocks.clear();
+		}
+	}
+
+	private long countTile(BoardSnapshot snapshot, int t, int u) {
+		long count = 0;
+		int last = Math.min(rows, (t + 1) * TILE);
+		for (int i = t * TILE; i < last; i++) {
+			count += Long.bitCount(snapshot.getWord(i, u));
+		}
+		return count;
+	}
+
+	private long sumChildren(int level, int t, int u) {
+		return count(level - 1, 2 * t, 2 * u) + count(level - 1, 2 * t, 2 * u + 1)
+				+ count(level - 1, 2 * t + 1, 2 * u)
+				+ count(level - 1, 2 * t + 1, 2 * u + 1);
+	}
+
+	// live cells in the block of (TILE << level) cells square at tile
+	// coordinates (t, u) of that level, 0 outside the board
+	public long count(int level, int t, int u) {
+		if (level < 0 || level >= counts.length || t < 0 || u < 0
+				|| t >= levelRows[level] || u >= levelColumns[level]) {
+			return 0;
+		}
+		return counts[level][t * levelColumns[level] + u];
+	}
+
+	public int getLevels() {
+		return counts.length;
+	}
+}
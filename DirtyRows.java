@@ -0,0 +1,86 @@
+/**
+ * The part of a board that changed, kept as one column span per row. Engines
+ * widen the spans as cells change and keep accumulating across generations
+ * until the renderer has drawn them and calls clear(). Writers of different
+ * rows never touch the same entries, so row bands can mark in parallel.
+ * A second reader of the same changes, such as a GenerationHistory, has the
+ * spans forwarded to it whenever they are cleared.
+ */
+public class DirtyRows {
+	private final int rows;
+	private final int columns;
+	// first and last changed column of each row, first > last when clean
+	private final int[] first;
+	private final int[] last;
+	// widened by clear() with the spans it is about to forget, or null
+	private DirtyRows forward;
+
+	public DirtyRows(int rows, int columns) {
+		this.rows = rows;
+		this.columns = columns;
+		this.first = new int[rows];
+		this.last = new int[rows];
+		clear();
+	}
+
+	public void mark(int row, int fromCol, int toCol) {
+		if (fromCol < first[row]) {
+			first[row] = fromCol;
+		}
+		if (toCol > last[row]) {
+			last[row] = Math.min(toCol, columns - 1);
+		}
+	}
+
+	public void markAll() {
+		for (int i = 0; i < rows; i++) {
+			first[i] = 0;
+			last[i] = columns - 1;
+		}
+	}
+
+	// widen these spans to cover the other ones too
+	public void include(DirtyRows other) {
+		for (int i = 0; i < rows; i++) {
+			if (other.isDirty(i)) {
+				mark(i, other.first[i], other.last[i]);
+			}
+		}
+	}
+
+	// keep the spans in other as well whenever they are cleared; null to
+	// stop
+	public void forwardTo(DirtyRows other) {
+		this.forward = other;
+	}
+
+	public void clear() {
+		if (forward != null) {
+			forward.include(this);
+		}
+		for (int i = 0; i < rows; i++) {
+			first[i] = Integer.MAX_VALUE;
+			last[i] = -1;
+		}
+	}
+
+	public boolean isDirty(int row) {
+		return first[row] <= last[row];
+	}
+
+	public int getFirst(int row) {
+		return first[row];
+	}
+
+	public int getLast(int row) {
+		return last[row];
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+}
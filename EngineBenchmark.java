@@ -0,0 +1,59 @@
+import java.util.Random;
+
+/**
+ * Quick headless comparison of the step engines on a random soup:
+ *
+ * java EngineBenchmark [rows] [columns] [generations] [engine...]
+ */
+public class EngineBenchmark {
+
+	public static void main(String[] args) {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int columns = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+		int generations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+		String[] names = Engines.NAMES;
+		if (args.length > 3) {
+			names = new String[args.length - 3];
+			System.arraycopy(args, 3, names, 0, names.length);
+		}
+
+		for (String name : names) {
+			LifeEngine engine = Engines.create(name, rows, columns, Rule.CONWAY);
+			run(name, engine, rows, columns, generations);
+			if (engine instanceof ParallelEngine) {
+				((ParallelEngine) engine).shutdown();
+			}
+		}
+	}
+
+	private static void run(String name, LifeEngine engine, int rows,
+			int columns, int generations) {
+		fill(engine, rows, columns);
+		// warm up the JIT before timing
+		for (int i = 0; i < generations; i++) {
+			engine.step();
+		}
+		fill(engine, rows, columns);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < generations; i++) {
+			engine.step();
+		}
+		long nanos = System.nanoTime() - start;
+
+		double updates = (double) rows * columns * generations;
+		System.out.printf("%-10s %10.1f ms %12.1f Mcell-updates/s  population %d%n",
+				name, nanos / 1e6, updates * 1e3 / nanos, engine.getPopulation());
+	}
+
+	private static void fill(LifeEngine engine, int rows, int columns) {
+		engine.clear();
+		Random r = new Random(42);
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				engine.setAlive(i, j, r.nextInt(100) % 5 == 0);
+			}
+		}
+	}
+}
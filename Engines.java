@@ -0,0 +1,118 @@
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Creates step engines by name so RunFrame and the benchmarks can switch
+ * between them, e.g. with -Dlife.engine=blocklut. The bounded engines wrap a
+ * rows x columns torus; sparse and hashlife ignore the size and are unbounded.
+ */
+public class Engines {
+	public static final String DEFAULT = "bitpacked";
+
+	public static final String[] NAMES = { "bitpacked", "tiled", "parallel",
+			"vector", "blocklut", "counting", "scalar", "sparse", "hashlife" };
+
+	public static LifeEngine create(String name, int rows, int columns,
+			Rule rule) {
+		return create(name, rows, columns, rule, Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	// parallelism is the number of threads of the parallel engine and
+	// ignored by the others
+	public static LifeEngine create(String name, int rows, int columns,
+			Rule rule, int parallelism) {
+		if (name.equals("bitpacked")) {
+			return new BitPackedEngine(rows, columns, rule);
+		} else if (name.equals("tiled")) {
+			return new TiledEngine(rows, columns, rule);
+		} else if (name.equals("parallel")) {
+			return new ParallelEngine(rows, columns, rule, parallelism);
+		} else if (name.equals("vector")) {
+			return createVector(rows, columns, rule);
+		} else if (name.equals("blocklut")) {
+			return new BlockLutEngine(rows, columns, rule);
+		} else if (name.equals("counting")) {
+			return new CountingEngine(rows, columns, rule);
+		} else if (name.equals("scalar")) {
+			return new ScalarEngine(rows, columns, rule);
+		} else if (name.equals("sparse")) {
+			return new SparseEngine(rule);
+		} else if (name.equals("hashlife")) {
+			return new HashLifeEngine(rule);
+		}
+		throw new IllegalArgumentException("Unknown engine '" + name
+				+ "', expected one of " + String.join(", ", NAMES));
+	}
+
+	// VectorEngine is only there when compiled from vector/ and run with
+	// --add-modules jdk.incubator.vector; BitPackedEngine steps the same
+	// board without it
+	private static LifeEngine createVector(int rows, int columns, Rule rule) {
+		try {
+			return (LifeEngine) Class.forName("VectorEngine").getConstructor(
+					int.class, int.class, Rule.class).newInstance(rows, columns,
+					rule);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+		} catch (ReflectiveOperationException e) {
+			// not compiled
+		} catch (LinkageError e) {
+			// compiled, but the module is missing
+		}
+		return new BitPackedEngine(rows, columns, rule);
+	}
+
+	// rough heap needed by a bounded engine of this size, 0 for the unbounded
+	// ones, whose use grows with the pattern; throws if an array would be
+	// longer than Java allows
+	public static long estimateBytes(String name, int rows, int columns,
+			Rule rule) {
+		long cells = (long) rows * columns;
+		long words = (long) rows * ((columns + 63) / 64);
+		if (name.equals("bitpacked") || name.equals("tiled")
+				|| name.equals("parallel") || name.equals("vector")) {
+			return 2 * 8 * checkLength(name, words);
+		} else if (name.equals("blocklut")) {
+			return 2 * 8 * checkLength(name, words + 2 * ((columns + 63) / 64))
+					+ (1 << 16);
+		} else if (name.equals("counting")) {
+			// neighbour table, then cells, counts, queued, changes,
+			// candidates and stamps
+			return 4 * checkLength(name, cells * NeighbourTable.NEIGHBOURS) + 3
+					* cells + 3 * 4 * cells;
+		} else if (name.equals("scalar")) {
+			long boxSums = (rule.getRange() > 1) ? 2 * 4 * cells : 0;
+			return 4 * checkLength(name, cells * NeighbourTable.NEIGHBOURS) + 2
+					* cells + boxSums;
+		} else if (isUnbounded(name)) {
+			return 0;
+		}
+		throw new IllegalArgumentException("Unknown engine '" + name
+				+ "', expected one of " + String.join(", ", NAMES));
+	}
+
+	private static long checkLength(String name, long length) {
+		// the largest array most JVMs will allocate
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Board too large for the "
+					+ name + " engine, it would need an array of " + length
+					+ " elements");
+		}
+		return length;
+	}
+
+	// true for the engines that implement ChangeTracking, whose history can
+	// be recorded without copying the whole board every generation
+	public static boolean tracksChanges(String name) {
+		return name.equals("bitpacked") || name.equals("tiled")
+				|| name.equals("parallel") || name.equals("vector")
+				|| name.equals("counting");
+	}
+
+	// true for the engines whose universe is not limited to rows x columns
+	public static boolean isUnbounded(String name) {
+		return name.equals("sparse") || name.equals("hashlife");
+	}
+}
@@ -0,0 +1,18 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event around each frame the render loop draws.
+ */
+@Name("life.Frame")
+@Label("Frame")
+@Category("Game of Life")
+@Description("A published generation drawn into the canvas")
+@StackTrace(false)
+public class FrameEvent extends jdk.jfr.Event {
+	@Label("Generation")
+	public long generation;
+}
@@ -0,0 +1,52 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands finished generations from the simulation thread to the render loop
+ * without either of them taking a lock. Three snapshots rotate: the
+ * simulation writes into its back buffer, swaps it into the ready slot and
+ * the renderer swaps the ready one for its own front buffer. The simulation
+ * only copies the board when the renderer has taken the last one, so a fast
+ * simulation skips the generations in between frames instead of copying
+ * every one of them; their changes keep accumulating in the engine until the
+ * next copy.
+ */
+public class FramePublisher {
+	private final AtomicReference<BoardSnapshot> ready;
+	// set by the renderer once it took the ready snapshot
+	private final AtomicBoolean wanted = new AtomicBoolean(true);
+	// owned by the simulation thread
+	private BoardSnapshot back;
+	// owned by the render thread
+	private BoardSnapshot front;
+
+	public FramePublisher(int rows, int columns) {
+		this.back = new BoardSnapshot(rows, columns);
+		this.front = new BoardSnapshot(rows, columns);
+		this.ready = new AtomicReference<BoardSnapshot>(new BoardSnapshot(
+				rows, columns));
+	}
+
+	// called by the simulation after a generation, returns false when the
+	// renderer has not caught up and the generation was skipped
+	public boolean publish(LifeEngine engine) {
+		if (!wanted.get()) {
+			return false;
+		}
+		back.capture(engine);
+		back = ready.getAndSet(back);
+		wanted.set(false);
+		return true;
+	}
+
+	// called by the renderer, returns the newest snapshot or null if nothing
+	// was published since the last call; it stays valid until the next call
+	public BoardSnapshot poll() {
+		if (wanted.get()) {
+			return null;
+		}
+		front = ready.getAndSet(front);
+		wanted.set(true);
+		return front;
+	}
+}
@@ -0,0 +1,391 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Records a run as a numbered PNG sequence in a directory (frame-N.png by
+ * generation, ready for a video encoder) or as one animated GIF. capture()
+ * copies the board into a snapshot from a small pool and queues it; encoder
+ * threads turn the snapshots into images and give them back. The pool is
+ * the bound on memory and on how far the encoders may fall behind. When it
+ * is empty the policy decides what capture() does:
+ *
+ *   DROP   skip this generation
+ *   SLOW   skip it and capture only every second, fourth, ... generation
+ *          until the encoders catch up again
+ *   BLOCK  wait for the encoders, for batch runs where every frame counts
+ *
+ * With DROP and SLOW capture() never waits, so the simulation thread can
+ * record without being held up by the disk. A GIF is written by one encoder
+ * to keep its frames in order; PNGs use several. close() may be called from
+ * another thread than the one capturing, which then simply stops capturing.
+ */
+public class FrameRecorder {
+	public enum Policy {
+		DROP, SLOW, BLOCK
+	}
+
+	public static final int DEFAULT_CAPACITY = 8;
+	// SLOW never records less than one generation in this many
+	private static final int MAX_STRIDE = 64;
+	private static final IndexColorModel COLORS = new IndexColorModel(1, 2,
+			new byte[] { (byte) Color.white.getRed(),
+					(byte) Color.gray.getRed() }, new byte[] {
+					(byte) Color.white.getGreen(),
+					(byte) Color.gray.getGreen() }, new byte[] {
+					(byte) Color.white.getBlue(),
+					(byte) Color.gray.getBlue() });
+
+	private final Path target;
+	private final boolean gif;
+	private final int rows;
+	private final int columns;
+	private final int scale;
+	private final Policy policy;
+	private final int capacity;
+	private final BlockingQueue<BoardSnapshot> free;
+	private final BlockingQueue<BoardSnapshot> queue;
+	// tells an encoder to stop, one per encoder
+	private final BoardSnapshot end;
+	private final Thread[] encoders;
+	private ImageOutputStream gifOut;
+	private ImageWriter gifWriter;
+	private volatile int delay = 100;
+
+	// guarded by this
+	private int allocated;
+	private volatile int stride = 1;
+	private long tick;
+	private boolean closed;
+
+	private volatile long captured;
+	private volatile long dropped;
+	private final AtomicLong written = new AtomicLong();
+	private volatile IOException error;
+
+	// record into target, a .gif file or else a directory for PNGs, with
+	// every cell scale x scale pixels
+	public FrameRecorder(Path target, int rows, int columns, int scale,
+			Policy policy) throws IOException {
+		this(target, rows, columns, scale, policy, DEFAULT_CAPACITY,
+				defaultThreads());
+	}
+
+	// encoders used by default
+	public static int defaultThreads() {
+		return Math.min(4, Runtime.getRuntime().availableProcessors());
+	}
+
+	public FrameRecorder(Path target, int rows, int columns, int scale,
+			Policy policy, int capacity, int threads) throws IOException {
+		if (scale < 1 || (long) rows * scale > Integer.MAX_VALUE / 2
+				|| (long) columns * scale > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException("Bad scale " + scale);
+		}
+		if (capacity < 1 || threads < 1) {
+			throw new IllegalArgumentException("Need at least one frame and "
+					+ "one encoder");
+		}
+		this.target = target;
+		this.gif = target.getFileName().toString().toLowerCase()
+				.endsWith(".gif");
+		this.rows = rows;
+		this.columns = columns;
+		this.scale = scale;
+		this.policy = policy;
+		this.capacity = capacity;
+		this.free = new ArrayBlockingQueue<BoardSnapshot>(capacity);
+		this.queue = new ArrayBlockingQueue<BoardSnapshot>(capacity + threads);
+		this.end = new BoardSnapshot(1, 1);
+		if (gif) {
+			openGif();
+			threads = 1;
+		} else {
+			Files.createDirectories(target);
+		}
+		encoders = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			encoders[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					encode();
+				}
+			}, "frame-encoder-" + i);
+			encoders[i].setDaemon(true);
+			encoders[i].start();
+		}
+	}
+
+	// heap a recorder of a rows x columns board takes at most: a full pool
+	// of snapshots and two images per encoder
+	public static long estimateBytes(int rows, int columns, int scale,
+			int threads) {
+		long image = (long) rows * ((columns + 7) >>> 3);
+		long scaled = scale == 1 ? 0 : (long) rows * scale
+				* ((columns * (long) scale + 7) >>> 3);
+		return DEFAULT_CAPACITY * BoardSnapshot.estimateBytes(rows, columns)
+				+ threads * (image + scaled);
+	}
+
+	// a scale that makes small boards about 512 pixels wide, at most 8
+	public static int defaultScale(int rows, int columns) {
+		return Math.max(1, Math.min(8, 512 / Math.max(rows, columns)));
+	}
+
+	private void openGif() throws IOException {
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(
+				"gif");
+		if (!writers.hasNext()) {
+			throw new IOException("No GIF writer available");
+		}
+		gifWriter = writers.next();
+		Files.deleteIfExists(target);
+		gifOut = ImageIO.createImageOutputStream(target.toFile());
+		if (gifOut == null) {
+			throw new IOException("Cannot write " + target);
+		}
+		gifWriter.setOutput(gifOut);
+		gifWriter.prepareWriteSequence(null);
+	}
+
+	// queue the engine's board as a frame; false if it was skipped or the
+	// recorder is closed
+	public synchronized boolean capture(LifeEngine engine) {
+		if (closed) {
+			return false;
+		}
+		if (++tick % stride != 0) {
+			return false;
+		}
+		BoardSnapshot snapshot = free.poll();
+		if (snapshot == null && allocated < capacity) {
+			snapshot = new BoardSnapshot(rows, columns);
+			allocated++;
+		}
+		if (snapshot == null && policy == Policy.BLOCK) {
+			try {
+				snapshot = free.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (snapshot == null) {
+			dropped++;
+			if (policy == Policy.SLOW && stride < MAX_STRIDE) {
+				stride *= 2;
+			}
+			return false;
+		}
+		if (stride > 1 && free.size() >= capacity / 2) {
+			// the encoders caught up
+			stride /= 2;
+		}
+		snapshot.copyCells(engine);
+		queue.add(snapshot);
+		captured++;
+		return true;
+	}
+
+	private void encode() {
+		BufferedImage cells = new BufferedImage(columns, rows,
+				BufferedImage.TYPE_BYTE_BINARY, COLORS);
+		BufferedImage scaled = scale == 1 ? cells : new BufferedImage(columns
+				* scale, rows * scale, BufferedImage.TYPE_BYTE_BINARY, COLORS);
+		byte[] pixels = ((DataBufferByte) cells.getRaster().getDataBuffer())
+				.getData();
+		while (true) {
+			BoardSnapshot snapshot;
+			try {
+				snapshot = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (snapshot == end) {
+				return;
+			}
+			long generation = snapshot.getGeneration();
+			draw(snapshot, pixels);
+			free.add(snapshot);
+			if (error != null) {
+				continue;
+			}
+			if (scale > 1) {
+				Graphics2D g = scaled.createGraphics();
+				g.drawImage(cells, 0, 0, columns * scale, rows * scale, null);
+				g.dispose();
+			}
+			try {
+				if (gif) {
+					writeGifFrame(scaled);
+				} else {
+					Path file = target.resolve(String.format(
+							"frame-%08d.png", generation));
+					if (!ImageIO.write(scaled, "png", file.toFile())) {
+						throw new IOException("No PNG writer available");
+					}
+				}
+				written.incrementAndGet();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+	}
+
+	// one bit a pixel, the leftmost in the high bit of a byte; the packed
+	// board has its leftmost cell in the low bit of a word
+	private void draw(BoardSnapshot snapshot, byte[] pixels) {
+		int bytesPerRow = (columns + 7) >>> 3;
+		int wordsPerRow = snapshot.getWordsPerRow();
+		for (int i = 0; i < rows; i++) {
+			int base = i * bytesPerRow;
+			for (int w = 0; w < wordsPerRow; w++) {
+				long bits = Long.reverse(snapshot.getWord(i, w));
+				int from = w << 3;
+				int to = Math.min(bytesPerRow, from + 8);
+				for (int b = from; b < to; b++) {
+					pixels[base + b] = (byte) (bits >>> 56);
+					bits <<= 8;
+				}
+			}
+		}
+	}
+
+	private void writeGifFrame(BufferedImage image) throws IOException {
+		ImageWriteParam param = gifWriter.getDefaultWriteParam();
+		IIOMetadata metadata = gifWriter.getDefaultImageMetadata(
+				ImageTypeSpecifier.createFromRenderedImage(image), param);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+		IIOMetadataNode control = child(root, "GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", Integer.toString(delay / 10));
+		control.setAttribute("transparentColorIndex", "0");
+		// the writer does not take the palette from the image by itself
+		IIOMetadataNode table = child(root, "LocalColorTable");
+		table.setAttribute("sizeOfLocalColorTable", "2");
+		table.setAttribute("sortFlag", "FALSE");
+		for (int i = 0; i < 2; i++) {
+			IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+			entry.setAttribute("index", Integer.toString(i));
+			entry.setAttribute("red", Integer.toString(COLORS.getRed(i)));
+			entry.setAttribute("green", Integer.toString(COLORS.getGreen(i)));
+			entry.setAttribute("blue", Integer.toString(COLORS.getBlue(i)));
+			table.appendChild(entry);
+		}
+		if (written.get() == 0) {
+			// loop forever
+			IIOMetadataNode extension = new IIOMetadataNode(
+					"ApplicationExtension");
+			extension.setAttribute("applicationID", "NETSCAPE");
+			extension.setAttribute("authenticationCode", "2.0");
+			extension.setUserObject(new byte[] { 1, 0, 0 });
+			child(root, "ApplicationExtensions").appendChild(extension);
+		}
+		metadata.setFromTree(format, root);
+		gifWriter.writeToSequence(new IIOImage(image, null, metadata), param);
+	}
+
+	private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+		for (int i = 0; i < parent.getLength(); i++) {
+			if (parent.item(i).getNodeName().equalsIgnoreCase(name)) {
+				return (IIOMetadataNode) parent.item(i);
+			}
+		}
+		IIOMetadataNode node = new IIOMetadataNode(name);
+		parent.appendChild(node);
+		return node;
+	}
+
+	// encode what is queued, finish the file and stop the encoders
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		for (int i = 0; i < encoders.length; i++) {
+			queue.add(end);
+		}
+		for (Thread encoder : encoders) {
+			try {
+				encoder.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while encoding frames", e);
+			}
+		}
+		if (gif) {
+			try {
+				gifWriter.endWriteSequence();
+			} finally {
+				gifWriter.dispose();
+				gifOut.close();
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	// milliseconds between GIF frames, in steps of 10
+	public void setDelay(int delay) {
+		this.delay = Math.max(10, delay);
+	}
+
+	public Path getTarget() {
+		return target;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public long getCaptured() {
+		return captured;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	// SLOW records one generation in this many
+	public int getStride() {
+		return stride;
+	}
+
+	// the first write that failed, or null
+	public IOException getError() {
+		return error;
+	}
+
+	public String describe() {
+		return "recording " + captured + " frames, " + written.get()
+				+ " written, " + dropped + " dropped"
+				+ (stride > 1 ? ", every " + stride + " generations" : "");
+	}
+}
@@ -17,6 +17,8 @@ public class GameCell extends JLabel {
 	private static int count = 0;
 	private int rows;
 	private int columns;
+	private LifeEngine engine;
+	private Rule rule = Rule.CONWAY;
 	
 	//for testing
 	public GameCell(int row, int col) {
@@ -98,6 +100,15 @@ public class GameCell extends JLabel {
 		this.col = col;
 	}
 
+	public LifeEngine getEngine() {
+		return engine;
+	}
+
+	// the engine owns the universe, this cell only displays it
+	public void setEngine(LifeEngine engine) {
+		this.engine = engine;
+	}
+
 	public CellStatus getStatus() {
 		return status;
 	}
@@ -122,18 +133,20 @@ public class GameCell extends JLabel {
 		return number;
 	}
 
+	public Rule getRule() {
+		return rule;
+	}
+
+	public void setRule(Rule rule) {
+		this.rule = rule.requireLifeLike("GameCell");
+	}
+
 	public CellStatus getNextStatus(GameCell[] neighbours) {
 		int aliveNeighbours = getNumberOfAliveNeighbours(neighbours);
 		CellStatus status = this.getStatus();
-		CellStatus c = null;
-		if (aliveNeighbours == 3) {
-			c = CellStatus.Alive;
-//			this.isResume = true;
-		} else if (aliveNeighbours == 2) {
-			c = this.getStatus();
-		} else {
-			c = CellStatus.Dead;
-		}
+		int next = rule.next(status.equals(CellStatus.Alive) ? 1 : 0,
+				aliveNeighbours);
+		CellStatus c = (next == 1) ? CellStatus.Alive : CellStatus.Dead;
 		if(status.equals(CellStatus.Alive) && c.equals(CellStatus.Dead)){
 			this.isResume = true;
 		}
@@ -143,6 +156,9 @@ public class GameCell extends JLabel {
 	public void changeStatus() {
 		this.setStatus((this.getStatus().equals(CellStatus.Dead)) ? CellStatus.Alive
 				: CellStatus.Dead);
+		if (engine != null) {
+			engine.setAlive(row, col, this.getStatus().equals(CellStatus.Alive));
+		}
 	}
 
 	class CellClickListener extends MouseAdapter {
@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event around each generation the simulation thread computes, so a
+ * flight recording shows where tick time went next to GC and safepoints.
+ * Disabled events cost a flag check; enable them with
+ * -XX:StartFlightRecording or in JDK Mission Control.
+ */
+@Name("life.Generation")
+@Label("Generation")
+@Category("Game of Life")
+@Description("One generation computed by the engine and published to the renderer")
+@StackTrace(false)
+public class GenerationEvent extends jdk.jfr.Event {
+	@Label("Generation")
+	public long generation;
+
+	@Label("Engine")
+	public String engine;
+
+	@Label("Published")
+	@Description("False when the renderer was behind and the generation was skipped")
+	public boolean published;
+}
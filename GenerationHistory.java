@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Past generations of a board for rewinding and replaying. Every generation
+ * is stored as the words that changed since the one before, XOR-ed, and
+ * every keyframeInterval generations (or whenever that would be smaller)
+ * as the non-empty words of the whole board. Both only hold the parts of
+ * the board that are alive or changing, so thousands of generations of a
+ * large board fit in a few megabytes. When the history grows past its
+ * memory budget the oldest keyframe and its deltas are dropped.
+ *
+ * Recording a BitPackedEngine reads only the rows whose hash changed, so a
+ * generation costs a look at every row hash plus the changed words, and a
+ * pass over the whole board once per keyframe. Other ChangeTracking engines
+ * have the spans they mark dirty forwarded here, and only those are read.
+ * Any other engine is copied cell by cell every generation, which costs
+ * more than stepping most of them, so BoardConfig leaves the history off
+ * for those unless it is asked for.
+ *
+ * seek() decodes from the nearest keyframe, or walks the deltas from the
+ * generation it decoded last when that is closer; an XOR delta undoes
+ * itself, so scrubbing back one generation costs one delta either way.
+ *
+ * Methods are synchronized: the simulation thread records while the UI
+ * seeks.
+ */
+public class GenerationHistory {
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+	public static final long DEFAULT_BUDGET = 64L << 20;
+	// what a frame costs besides its arrays
+	private static final int FRAME_BYTES = 64;
+
+	private final int rows;
+	private final int columns;
+	private final int wordsPerRow;
+	private final long budget;
+	private final int keyframeInterval;
+	private final List<Frame> frames = new ArrayList<Frame>();
+	private long bytes;
+	// frames recorded since the last keyframe
+	private int sinceKeyframe;
+	// the newest recorded board, the base of the next delta, and how many
+	// of its words are not empty
+	private long[] last;
+	private int liveWords;
+	// the row hashes of last, valid while hashed is set
+	private final long[] lastRowHash;
+	private boolean hashed;
+	// rows found to have changed while recording
+	private final int[] changedRow;
+	// the engine whose dirty spans are forwarded into changes, and the
+	// spans that may differ from last
+	private ChangeTracking tracked;
+	private final DirtyRows changes;
+	// the cells of an engine that does not track changes, copied before
+	// they are compared with last; made on first use
+	private BoardSnapshot snapshot;
+	// a decoded board and the frame it belongs to, -1 if none
+	private final long[] decoded;
+	private int decodedFrame = -1;
+
+	public GenerationHistory(int rows, int columns) {
+		this(rows, columns, DEFAULT_BUDGET, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	public GenerationHistory(int rows, int columns, long budget,
+			int keyframeInterval) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Budget must be positive: "
+					+ budget);
+		}
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException(
+					"Keyframe interval must be positive: " + keyframeInterval);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.wordsPerRow = (columns + 63) >>> 6;
+		this.budget = budget;
+		this.keyframeInterval = keyframeInterval;
+		this.changes = new DirtyRows(rows, columns);
+		this.last = new long[rows * wordsPerRow];
+		this.decoded = new long[rows * wordsPerRow];
+		this.lastRowHash = new long[rows];
+		this.changedRow = new int[rows];
+	}
+
+	// heap a history of a rows x columns board with the given budget will
+	// take at most: the budget and its board sized buffers
+	public static long estimateBytes(int rows, int columns, long budget) {
+		long words = (long) rows * ((columns + 63) >>> 6);
+		return budget + 3 * 8 * words + 12L * rows;
+	}
+
+	// one generation of the board, as a list of words
+	private static final class Frame {
+		final long generation;
+		final long population;
+		// whole board if true, otherwise XOR with the frame before
+		final boolean keyframe;
+		final int[] index;
+		final long[] words;
+
+		Frame(long generation, long population, boolean keyframe,
+				int[] index, long[] words) {
+			this.generation = generation;
+			this.population = population;
+			this.keyframe = keyframe;
+			this.index = index;
+			this.words = words;
+		}
+
+		long bytes() {
+			return FRAME_BYTES + 12L * index.length;
+		}
+	}
+
+	// store the engine's rows x columns board as the given generation;
+	// recording a generation that is already stored drops it and everything
+	// after it, so editing or stepping a rewound board starts a new future.
+	// A BitPackedEngine's rows are compared by their hashes and other
+	// ChangeTracking engines by their dirty spans, so only what changed is
+	// read; other engines are copied and compared word by word.
+	public synchronized void record(long generation, LifeEngine engine) {
+		if (!frames.isEmpty() && generation <= getNewestGeneration()) {
+			truncate(generation);
+		}
+		BitPackedEngine packed = sameSize(engine);
+		DirtyRows dirty = packed == null ? track(engine) : null;
+		if (packed == null && dirty == null) {
+			if (snapshot == null) {
+				snapshot = new BoardSnapshot(rows, columns);
+			}
+			snapshot.copyCells(engine);
+		}
+		// find the rows that differ from last, the words in them that
+		// changed and how many non-empty words there will be
+		int changedRows = 0;
+		int changed = 0;
+		int live = liveWords;
+		for (int i = 0; i < rows; i++) {
+			if (packed != null && hashed
+					&& packed.getRowHash(i) == lastRowHash[i]) {
+				continue;
+			}
+			if (dirty != null && !changes.isDirty(i) && !dirty.isDirty(i)) {
+				continue;
+			}
+			if (packed != null) {
+				lastRowHash[i] = packed.getRowHash(i);
+			}
+			int n = 0;
+			int to = lastWord(dirty, i);
+			for (int w = firstWord(dirty, i); w <= to; w++) {
+				long word = readWord(engine, packed, dirty, i, w);
+				long before = last[i * wordsPerRow + w];
+				if (word != before) {
+					n++;
+					live += (word != 0 ? 1 : 0) - (before != 0 ? 1 : 0);
+				}
+			}
+			if (n > 0) {
+				changedRow[changedRows++] = i;
+				changed += n;
+			}
+		}
+		boolean keyframe = frames.isEmpty()
+				|| sinceKeyframe >= keyframeInterval - 1 || live <= changed;
+		int[] index = new int[keyframe ? live : changed];
+		long[] current = new long[index.length];
+		int n = 0;
+		for (int c = 0; c < changedRows; c++) {
+			int i = changedRow[c];
+			int to = lastWord(dirty, i);
+			for (int w = firstWord(dirty, i); w <= to; w++) {
+				int k = i * wordsPerRow + w;
+				long word = readWord(engine, packed, dirty, i, w);
+				long delta = word ^ last[k];
+				if (!keyframe && delta != 0) {
+					index[n] = k;
+					current[n++] = delta;
+				}
+				last[k] = word;
+			}
+		}
+		liveWords = live;
+		changes.clear();
+		if (keyframe) {
+			// every non-empty word, once every keyframeInterval generations
+			for (int k = 0; k < last.length; k++) {
+				if (last[k] != 0) {
+					index[n] = k;
+					current[n++] = last[k];
+				}
+			}
+		}
+		hashed = packed != null;
+		Frame frame = new Frame(generation, engine.getPopulation(), keyframe,
+				index, current);
+		frames.add(frame);
+		bytes += frame.bytes();
+		sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+		evict();
+	}
+
+	// the dirty spans of a ChangeTracking engine of this size, forwarded
+	// into changes from now on, or null
+	private DirtyRows track(LifeEngine engine) {
+		if (!(engine instanceof ChangeTracking)) {
+			return null;
+		}
+		DirtyRows dirty = ((ChangeTracking) engine).getDirtyRows();
+		if (dirty.getRows() != rows || dirty.getColumns() != columns) {
+			return null;
+		}
+		if (tracked != engine) {
+			if (tracked != null) {
+				tracked.getDirtyRows().forwardTo(null);
+			}
+			tracked = (ChangeTracking) engine;
+			dirty.forwardTo(changes);
+			// nothing is known about what changed before
+			changes.markAll();
+		}
+		return dirty;
+	}
+
+	// the words of row i that may have changed: all of them unless the
+	// engine tracks its changes
+	private int firstWord(DirtyRows dirty, int i) {
+		return dirty == null ? 0 : Math.min(changes.getFirst(i),
+				dirty.getFirst(i)) >>> 6;
+	}
+
+	private int lastWord(DirtyRows dirty, int i) {
+		return dirty == null ? wordsPerRow - 1 : Math.max(changes.getLast(i),
+				dirty.getLast(i)) >>> 6;
+	}
+
+	private long readWord(LifeEngine engine, BitPackedEngine packed,
+			DirtyRows dirty, int i, int w) {
+		if (packed != null) {
+			return packed.getWord(i, w);
+		} else if (dirty == null) {
+			return snapshot.getWord(i, w);
+		}
+		long word = 0;
+		int base = w << 6;
+		int end = Math.min(64, columns - base);
+		for (int b = 0; b < end; b++) {
+			if (engine.isAlive(i, base + b)) {
+				word |= 1L << b;
+			}
+		}
+		return word;
+	}
+
+	// the engine as a BitPackedEngine of this size, or null
+	private BitPackedEngine sameSize(LifeEngine engine) {
+		return engine instanceof BitPackedEngine
+				&& ((BitPackedEngine) engine).getRows() == rows
+				&& ((BitPackedEngine) engine).getColumns() == columns
+				? (BitPackedEngine) engine : null;
+	}
+
+	// drop the oldest keyframe and its deltas until the budget is kept, but
+	// never the newest keyframe
+	private void evict() {
+		while (bytes > budget) {
+			int next = 1;
+			while (next < frames.size() && !frames.get(next).keyframe) {
+				next++;
+			}
+			if (next >= frames.size()) {
+				return;
+			}
+			List<Frame> dropped = frames.subList(0, next);
+			for (Frame frame : dropped) {
+				bytes -= frame.bytes();
+			}
+			dropped.clear();
+			decodedFrame = decodedFrame >= next ? decodedFrame - next : -1;
+		}
+	}
+
+	// forget the frames from generation on and make the newest one left the
+	// base of the next delta
+	private void truncate(long generation) {
+		int from = find(generation - 1) + 1;
+		List<Frame> dropped = frames.subList(from, frames.size());
+		for (Frame frame : dropped) {
+			bytes -= frame.bytes();
+		}
+		dropped.clear();
+		if (decodedFrame >= from) {
+			decodedFrame = -1;
+		}
+		hashed = false;
+		changes.markAll();
+		if (frames.isEmpty()) {
+			Arrays.fill(last, 0L);
+			liveWords = 0;
+			sinceKeyframe = 0;
+			return;
+		}
+		decode(frames.size() - 1);
+		System.arraycopy(decoded, 0, last, 0, last.length);
+		liveWords = 0;
+		for (long word : last) {
+			if (word != 0) {
+				liveWords++;
+			}
+		}
+		sinceKeyframe = frames.size() - 1 - keyframeBefore(frames.size() - 1);
+	}
+
+	// put the newest stored generation at or before the given one on the
+	// engine, with the engine's generation counter set to it, and return it,
+	// or -1 if the history does not reach back that far
+	public synchronized long seek(long generation, LifeEngine engine) {
+		int target = find(generation);
+		if (target < 0) {
+			return -1;
+		}
+		decode(target);
+		engine.clear();
+		BitPackedEngine packed = sameSize(engine);
+		for (int k = 0; k < decoded.length; k++) {
+			long word = decoded[k];
+			if (word == 0) {
+				continue;
+			}
+			int r = k / wordsPerRow;
+			int w = k % wordsPerRow;
+			if (packed != null) {
+				packed.setWord(r, w, word);
+			} else {
+				for (long bits = word; bits != 0; bits &= bits - 1) {
+					engine.setAlive(r, (w << 6)
+							+ Long.numberOfTrailingZeros(bits), true);
+				}
+			}
+		}
+		long found = frames.get(target).generation;
+		engine.setGeneration(found);
+		return found;
+	}
+
+	// bring decoded to the board of frame target
+	private void decode(int target) {
+		int keyframe = keyframeBefore(target);
+		if (decodedFrame >= 0 && decodedFrame != target
+				&& keyframeBefore(decodedFrame) == keyframe
+				&& Math.abs(decodedFrame - target) < target - keyframe) {
+			// walk the deltas between them; each undoes or redoes one step
+			int from = Math.min(decodedFrame, target) + 1;
+			int to = Math.max(decodedFrame, target);
+			for (int f = from; f <= to; f++) {
+				apply(frames.get(f));
+			}
+		} else if (decodedFrame != target) {
+			Arrays.fill(decoded, 0L);
+			for (int f = keyframe; f <= target; f++) {
+				apply(frames.get(f));
+			}
+		}
+		decodedFrame = target;
+	}
+
+	private void apply(Frame frame) {
+		for (int n = 0; n < frame.index.length; n++) {
+			decoded[frame.index[n]] ^= frame.words[n];
+		}
+	}
+
+	private int keyframeBefore(int f) {
+		while (!frames.get(f).keyframe) {
+			f--;
+		}
+		return f;
+	}
+
+	// index of the newest frame at or before generation, -1 if none
+	private int find(long generation) {
+		int low = 0;
+		int high = frames.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (frames.get(mid).generation <= generation) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	public synchronized void clear() {
+		frames.clear();
+		bytes = 0;
+		sinceKeyframe = 0;
+		decodedFrame = -1;
+		Arrays.fill(last, 0L);
+		liveWords = 0;
+		hashed = false;
+		changes.markAll();
+	}
+
+	public synchronized boolean isEmpty() {
+		return frames.isEmpty();
+	}
+
+	// -1 while empty
+	public synchronized long getOldestGeneration() {
+		return frames.isEmpty() ? -1 : frames.get(0).generation;
+	}
+
+	// -1 while empty
+	public synchronized long getNewestGeneration() {
+		return frames.isEmpty() ? -1 : frames.get(frames.size() - 1).generation;
+	}
+
+	// population of the newest stored generation at or before the given
+	// one, -1 if there is none
+	public synchronized long getPopulation(long generation) {
+		int f = find(generation);
+		return f < 0 ? -1 : frames.get(f).population;
+	}
+
+	public synchronized int getFrames() {
+		return frames.size();
+	}
+
+	// memory held by the stored generations, not counting the three board
+	// sized buffers
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public synchronized String describe() {
+		return "history " + frames.size() + " generations ("
+				+ getOldestGeneration() + ".." + getNewestGeneration() + "), "
+				+ (bytes >> 10) + " KB of " + (budget >> 10) + " KB";
+	}
+}
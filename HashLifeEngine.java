@@ -0,0 +1,461 @@
+/**
+ * Gosper's HashLife on an unbounded plane. The universe is a quadtree of
+ * canonicalised nodes and every node memoises the centre of its future, so
+ * regular patterns like the Gosper gun or Acorn can jump 2^k generations at
+ * once. Cells are addressed by signed (row, col); the root is always centred
+ * on the origin.
+ */
+public class HashLifeEngine implements LifeEngine {
+
+	// what survives when the node cache grows beyond maxNodes
+	public enum Eviction {
+		// keep only the nodes of the current universe, forget all results
+		REACHABLE,
+		// also keep the memoised results hanging off those nodes
+		REACHABLE_WITH_RESULTS
+	}
+
+	public static final int DEFAULT_MAX_NODES = 4 * 1024 * 1024;
+
+	// coordinates are longs, so the root cannot grow past this level
+	private static final int MAX_LEVEL = 62;
+
+	static final class Node {
+		final Node nw, ne, sw, se;
+		final int level;
+		final long population;
+		final int id;
+
+		// memoised centre after 2^resultLog2 generations
+		Node result;
+		int resultLog2 = -1;
+
+		// chain in the canonical table
+		Node next;
+		int mark;
+
+		Node(Node nw, Node ne, Node sw, Node se, int level, long population,
+				int id) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.level = level;
+			this.population = population;
+			this.id = id;
+		}
+	}
+
+	private final Rule rule;
+
+	private final Node deadLeaf = new Node(null, null, null, null, 0, 0, 0);
+	private final Node aliveLeaf = new Node(null, null, null, null, 0, 1, 1);
+
+	private Node[] table;
+	private int nodeCount;
+	private int nextId = 2;
+	private int maxNodes;
+	private Eviction eviction;
+	private int markEpoch;
+
+	// empty nodes by level, created on demand
+	private Node[] empty = new Node[MAX_LEVEL + 1];
+
+	private Node root;
+	private long generation;
+
+	public HashLifeEngine() {
+		this(Rule.CONWAY);
+	}
+
+	public HashLifeEngine(Rule rule) {
+		this(rule, DEFAULT_MAX_NODES, Eviction.REACHABLE_WITH_RESULTS);
+	}
+
+	public HashLifeEngine(int maxNodes, Eviction eviction) {
+		this(Rule.CONWAY, maxNodes, eviction);
+	}
+
+	public HashLifeEngine(Rule rule, int maxNodes, Eviction eviction) {
+		if (maxNodes < 1024) {
+			throw new IllegalArgumentException("maxNodes too small: " + maxNodes);
+		}
+		this.rule = rule.requireLifeLike(getClass().getName()).requireNoB0(
+				getClass().getName());
+		this.maxNodes = maxNodes;
+		this.eviction = eviction;
+		this.table = new Node[1 << 16];
+		this.empty[0] = deadLeaf;
+		this.root = emptyNode(3);
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		Node node = root;
+		long half = 1L << (node.level - 1);
+		long y = row + half;
+		long x = col + half;
+		if (x < 0 || y < 0 || x >= 2 * half || y >= 2 * half) {
+			return false;
+		}
+		while (node.level > 0) {
+			if (node.population == 0) {
+				return false;
+			}
+			half = 1L << (node.level - 1);
+			if (y < half) {
+				node = (x < half) ? node.nw : node.ne;
+			} else {
+				node = (x < half) ? node.sw : node.se;
+				y -= half;
+			}
+			if (x >= half) {
+				x -= half;
+			}
+		}
+		return node == aliveLeaf;
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		while (!contains(root, row, col)) {
+			root = expand(root);
+		}
+		long half = 1L << (root.level - 1);
+		root = set(root, row + half, col + half, alive);
+	}
+
+	private boolean contains(Node node, long row, long col) {
+		long half = 1L << (node.level - 1);
+		return row >= -half && row < half && col >= -half && col < half;
+	}
+
+	// (y, x) are relative to the top-left corner of node
+	private Node set(Node node, long y, long x, boolean alive) {
+		if (node.level == 0) {
+			return alive ? aliveLeaf : deadLeaf;
+		}
+		long half = 1L << (node.level - 1);
+		if (y < half) {
+			if (x < half) {
+				return join(set(node.nw, y, x, alive), node.ne, node.sw, node.se);
+			}
+			return join(node.nw, set(node.ne, y, x - half, alive), node.sw,
+					node.se);
+		}
+		if (x < half) {
+			return join(node.nw, node.ne, set(node.sw, y - half, x, alive),
+					node.se);
+		}
+		return join(node.nw, node.ne, node.sw,
+				set(node.se, y - half, x - half, alive));
+	}
+
+	@Override
+	public void step() {
+		advance(0);
+	}
+
+	// advance the universe by 2^log2 generations in one go
+	public void advance(int log2) {
+		if (log2 < 0 || log2 > MAX_LEVEL - 3) {
+			throw new IllegalArgumentException("Cannot step 2^" + log2
+					+ " generations");
+		}
+		// the pattern has to sit inside the centre quarter of the root and
+		// the root must be large enough that nothing can escape the result
+		while (root.level < log2 + 3 || centrePopulation(root) != root.population) {
+			root = expand(root);
+		}
+		root = successor(root, log2);
+		generation += 1L << log2;
+
+		if (nodeCount > maxNodes) {
+			collect();
+		}
+	}
+
+	private long centrePopulation(Node node) {
+		if (node.level < 3) {
+			return -1;
+		}
+		return node.nw.se.se.population + node.ne.sw.sw.population
+				+ node.sw.ne.ne.population + node.se.nw.nw.population;
+	}
+
+	// the level-1 smaller centre of node after 2^min(log2, level - 2)
+	// generations
+	private Node successor(Node node, int log2) {
+		int effective = Math.min(log2, node.level - 2);
+		if (node.resultLog2 == effective) {
+			return node.result;
+		}
+
+		Node result;
+		if (node.population == 0) {
+			result = emptyNode(node.level - 1);
+		} else if (node.level == 2) {
+			result = baseCase(node);
+		} else {
+			// nine overlapping sub-squares one level down
+			Node n00 = node.nw;
+			Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+			Node n02 = node.ne;
+			Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+			Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+			Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+			Node n20 = node.sw;
+			Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+			Node n22 = node.se;
+
+			if (effective == node.level - 2) {
+				// full speed: both halves advance 2^(level - 3)
+				n00 = successor(n00, log2);
+				n01 = successor(n01, log2);
+				n02 = successor(n02, log2);
+				n10 = successor(n10, log2);
+				n11 = successor(n11, log2);
+				n12 = successor(n12, log2);
+				n20 = successor(n20, log2);
+				n21 = successor(n21, log2);
+				n22 = successor(n22, log2);
+			} else {
+				// slow: only the second half advances
+				n00 = centre(n00);
+				n01 = centre(n01);
+				n02 = centre(n02);
+				n10 = centre(n10);
+				n11 = centre(n11);
+				n12 = centre(n12);
+				n20 = centre(n20);
+				n21 = centre(n21);
+				n22 = centre(n22);
+			}
+
+			result = join(successor(join(n00, n01, n10, n11), log2),
+					successor(join(n01, n02, n11, n12), log2),
+					successor(join(n10, n11, n20, n21), log2),
+					successor(join(n11, n12, n21, n22), log2));
+		}
+
+		node.result = result;
+		node.resultLog2 = effective;
+		return result;
+	}
+
+	private Node centre(Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	// one generation of the 2x2 centre of a 4x4 node
+	private Node baseCase(Node node) {
+		int bits = 0;
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				Node quad = (y < 2) ? ((x < 2) ? node.nw : node.ne)
+						: ((x < 2) ? node.sw : node.se);
+				Node leaf = ((y & 1) == 0) ? (((x & 1) == 0) ? quad.nw : quad.ne)
+						: (((x & 1) == 0) ? quad.sw : quad.se);
+				if (leaf == aliveLeaf) {
+					bits |= 1 << (y * 4 + x);
+				}
+			}
+		}
+		return join(nextCell(bits, 1, 1), nextCell(bits, 1, 2),
+				nextCell(bits, 2, 1), nextCell(bits, 2, 2));
+	}
+
+	private Node nextCell(int bits, int y, int x) {
+		int n = 0;
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				if ((dy != 0 || dx != 0)
+						&& (bits & (1 << ((y + dy) * 4 + x + dx))) != 0) {
+					n++;
+				}
+			}
+		}
+		int state = (bits >>> (y * 4 + x)) & 1;
+		return rule.next(state, n) != 0 ? aliveLeaf : deadLeaf;
+	}
+
+	// a node one level up with the old root in its centre
+	private Node expand(Node node) {
+		if (node.level >= MAX_LEVEL) {
+			throw new IllegalStateException("Universe too large for HashLife");
+		}
+		Node e = emptyNode(node.level - 1);
+		return join(join(e, e, e, node.nw), join(e, e, node.ne, e),
+				join(e, node.sw, e, e), join(node.se, e, e, e));
+	}
+
+	// the dead or live cell, the leaves of every tree
+	Node leaf(boolean alive) {
+		return alive ? aliveLeaf : deadLeaf;
+	}
+
+	Node emptyNode(int level) {
+		if (empty[level] == null) {
+			Node child = emptyNode(level - 1);
+			empty[level] = join(child, child, child, child);
+		}
+		return empty[level];
+	}
+
+	// the canonical node with these four children
+	Node join(Node nw, Node ne, Node sw, Node se) {
+		int hash = hash(nw, ne, sw, se);
+		int index = hash & (table.length - 1);
+		for (Node n = table[index]; n != null; n = n.next) {
+			if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+				return n;
+			}
+		}
+		Node node = new Node(nw, ne, sw, se, nw.level + 1, nw.population
+				+ ne.population + sw.population + se.population, nextId++);
+		node.next = table[index];
+		table[index] = node;
+		if (++nodeCount > table.length - (table.length >>> 2)) {
+			resize(table.length << 1);
+		}
+		return node;
+	}
+
+	private static int hash(Node nw, Node ne, Node sw, Node se) {
+		int h = nw.id;
+		h = h * 0x9E3779B1 + ne.id;
+		h = h * 0x9E3779B1 + sw.id;
+		h = h * 0x9E3779B1 + se.id;
+		return h ^ (h >>> 15);
+	}
+
+	private void resize(int capacity) {
+		Node[] old = table;
+		table = new Node[capacity];
+		for (int i = 0; i < old.length; i++) {
+			Node n = old[i];
+			while (n != null) {
+				Node next = n.next;
+				int index = hash(n.nw, n.ne, n.sw, n.se) & (capacity - 1);
+				n.next = table[index];
+				table[index] = n;
+				n = next;
+			}
+		}
+	}
+
+	// drop every node that the eviction policy does not keep
+	private void collect() {
+		markEpoch++;
+		mark(root);
+		for (int i = 0; i < empty.length; i++) {
+			if (empty[i] != null) {
+				mark(empty[i]);
+			}
+		}
+
+		nodeCount = 0;
+		for (int i = 0; i < table.length; i++) {
+			Node kept = null;
+			Node n = table[i];
+			while (n != null) {
+				Node next = n.next;
+				if (n.mark == markEpoch) {
+					n.next = kept;
+					kept = n;
+					nodeCount++;
+				}
+				n = next;
+			}
+			table[i] = kept;
+		}
+
+		// results may point at evicted nodes, which would no longer be
+		// canonical
+		for (int i = 0; i < table.length; i++) {
+			for (Node n = table[i]; n != null; n = n.next) {
+				if (n.result != null && n.result.mark != markEpoch) {
+					n.result = null;
+					n.resultLog2 = -1;
+				}
+			}
+		}
+	}
+
+	private void mark(Node node) {
+		if (node == null || node.level == 0 || node.mark == markEpoch) {
+			return;
+		}
+		node.mark = markEpoch;
+		mark(node.nw);
+		mark(node.ne);
+		mark(node.sw);
+		mark(node.se);
+		if (eviction == Eviction.REACHABLE_WITH_RESULTS) {
+			mark(node.result);
+		}
+	}
+
+	@Override
+	public void clear() {
+		root = emptyNode(3);
+		generation = 0;
+	}
+
+	// the whole universe as one canonical tree, centred on the origin
+	Node getRoot() {
+		return root;
+	}
+
+	// replace the universe with a tree built from join(), leaf() and
+	// emptyNode(); it is centred on the origin
+	void setRoot(Node node) {
+		if (node.level < 1) {
+			throw new IllegalArgumentException("Root must be a square of cells");
+		}
+		while (node.level < 3) {
+			node = expand(node);
+		}
+		root = node;
+	}
+
+	@Override
+	public long getPopulation() {
+		return root.population;
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	public Eviction getEviction() {
+		return eviction;
+	}
+
+	public void setEviction(Eviction eviction) {
+		this.eviction = eviction;
+	}
+}
@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, bucketed the way
+ * HdrHistogram does it: every power of two is split into 16 linear
+ * sub-buckets, so any recorded value is reported within about 6% while the
+ * whole range of a long fits in under a thousand counters. Recording is one
+ * atomic increment and never allocates, so it can sit on the simulation
+ * thread's hot path while JMX or the overlay reads percentiles from another
+ * thread.
+ */
+public class LatencyHistogram {
+	// values below 2^SUB_BITS get a bucket each
+	private static final int SUB_BITS = 5;
+	private static final int HALF = 1 << (SUB_BITS - 1);
+
+	private final AtomicLongArray counts = new AtomicLongArray(
+			(64 - SUB_BITS + 1) * HALF + HALF);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(index(nanos));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		long seen = max.get();
+		while (nanos > seen && !max.compareAndSet(seen, nanos)) {
+			seen = max.get();
+		}
+	}
+
+	static int index(long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value)
+				- SUB_BITS);
+		return shift * HALF + (int) (value >>> shift);
+	}
+
+	// the largest value that falls in the bucket
+	static long highest(int index) {
+		if (index < 2 * HALF) {
+			return index;
+		}
+		int shift = index / HALF - 1;
+		long sub = index - shift * HALF;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	// the value below which the given percentage of the recorded values
+	// fall, 0 if nothing was recorded
+	public long getPercentile(double percent) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percent / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highest(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	// not atomic with respect to concurrent records, which may be lost or
+	// kept
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+}
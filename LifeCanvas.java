@@ -0,0 +1,502 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import javax.swing.JComponent;
+
+/**
+ * A zoomable, pannable view of a board that can be much larger than the
+ * window. The view is drawn into one BufferedImage the size of the component
+ * by writing its int[] raster, and blitted in a single drawImage call. Only
+ * the parts of the view under the dirty spans of a generation are redrawn.
+ *
+ * Zoomed in, every cell is a square of getCellSize() pixels. Zoomed out, every
+ * pixel stands for a block of getBlockSize() cells squared and is shaded by
+ * how many of them are alive, read from a DensityPyramid for blocks of 64 and
+ * up, so the renderer never visits every cell of a huge board. Drag to pan,
+ * use the wheel to zoom and click to toggle a cell; the EditListener stops
+ * the simulation first.
+ *
+ * While the simulation runs the canvas draws the snapshots published through
+ * its FramePublisher, at whatever rate the render loop polls it, so it never
+ * reads the engine while a generation is being computed.
+ */
+@SuppressWarnings("serial")
+public class LifeCanvas extends JComponent {
+	private static final int DEAD = Color.white.getRGB();
+	private static final int ALIVE = Color.gray.getRGB();
+	private static final int GRID = Color.lightGray.getRGB();
+	// dead cells that have been alive before
+	private static final int RESUMED = new Color(252, 204, 241).getRGB();
+	// the part of the view beyond the edge of the board
+	private static final int OUTSIDE = new Color(238, 238, 238).getRGB();
+	private static final Color OVERLAY = new Color(0, 0, 0, 160);
+
+	// dirty spans of neighbouring rows this close together share a rectangle
+	private static final int MERGE_GAP = 8;
+	private static final int MAX_CELL_SIZE = 64;
+
+	private final int rows;
+	private final int columns;
+	private final int viewWidth;
+	private final int viewHeight;
+
+	private final BufferedImage image;
+	private final int[] pixels;
+	// cells that were alive in a drawn generation, for the pink trail
+	private final long[] trail;
+	private final int wordsPerRow;
+	private final DensityPyramid density;
+	// the cells (or blocks) of the view that need drawing
+	private final DirtyRows viewDirty;
+
+	// pixels per cell zoomed in, cells per pixel zoomed out; at most one of
+	// them is above 1
+	private int cellSize;
+	private int blockSize;
+	// the board cell at the top-left corner of the view
+	private int originRow;
+	private int originCol;
+
+	private LifeEngine engine;
+	private final FramePublisher publisher;
+	// for drawing the engine directly while the simulation is not running
+	private final BoardSnapshot scratch;
+	// the generation on screen, redrawn from when the view moves
+	private BoardSnapshot displayed;
+	// lines drawn over the top-left corner, or null
+	private String[] overlay;
+	// told before a click changes a cell, or null
+	private EditListener editListener;
+
+	// called on the EDT before a click toggles a cell; the engine must not
+	// be stepping once it returns
+	public interface EditListener {
+		public void beforeEdit();
+	}
+
+	public LifeCanvas(LifeEngine engine, int rows, int columns, int panelWidth,
+			int panelHeight) {
+		this.engine = engine;
+		this.rows = rows;
+		this.columns = columns;
+		this.viewWidth = Math.max(1, panelWidth);
+		this.viewHeight = Math.max(1, panelHeight);
+
+		// start with the whole board in view
+		this.cellSize = Math.max(1, Math.min(MAX_CELL_SIZE,
+				Math.min(viewWidth / columns, viewHeight / rows)));
+		this.blockSize = 1;
+		while (!fits(blockSize)) {
+			blockSize *= 2;
+		}
+
+		this.image = new BufferedImage(viewWidth, viewHeight,
+				BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+				.getData();
+		this.wordsPerRow = (columns + 63) >>> 6;
+		this.trail = new long[rows * wordsPerRow];
+		this.density = new DensityPyramid(rows, columns);
+		this.viewDirty = new DirtyRows(viewHeight, viewWidth);
+		this.publisher = new FramePublisher(rows, columns);
+		this.scratch = new BoardSnapshot(rows, columns);
+		this.displayed = scratch;
+
+		setPreferredSize(new Dimension(viewWidth, viewHeight));
+		CanvasMouseListener mouse = new CanvasMouseListener();
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+		clearTrail();
+	}
+
+	// bring the image up to date with the engine and repaint what changed;
+	// only call this while the engine is not stepping
+	public void render() {
+		BoardSnapshot stale = publisher.poll();
+		if (stale != null) {
+			// never drawn, so its changes are still to do
+			scratch.getDirtyRows().include(stale.getDirtyRows());
+			stale.getDirtyRows().clear();
+		}
+		scratch.capture(engine);
+		render(scratch);
+	}
+
+	// draw the newest published snapshot, returns false if there was none
+	public boolean renderFrame() {
+		BoardSnapshot snapshot = publisher.poll();
+		if (snapshot == null) {
+			return false;
+		}
+		render(snapshot);
+		return true;
+	}
+
+	public void render(BoardSnapshot snapshot) {
+		DirtyRows dirty = snapshot.getDirtyRows();
+		displayed = snapshot;
+		density.update(snapshot, dirty);
+		updateTrail(snapshot, dirty);
+		markView(dirty);
+		drawDirtyView();
+		dirty.clear();
+	}
+
+	private void updateTrail(BoardSnapshot snapshot, DirtyRows dirty) {
+		for (int i = 0; i < rows; i++) {
+			if (!dirty.isDirty(i)) {
+				continue;
+			}
+			int base = i * wordsPerRow;
+			for (int w = dirty.getFirst(i) >>> 6; w <= dirty.getLast(i) >>> 6; w++) {
+				trail[base + w] |= snapshot.getWord(i, w);
+			}
+		}
+	}
+
+	// map the dirty spans that are in view onto the cells or blocks showing
+	// them
+	private void markView(DirtyRows dirty) {
+		int lastRow = Math.min(rows, originRow + getViewRows() * blockSize) - 1;
+		int lastCol = Math.min(columns, originCol + getViewColumns()
+				* blockSize) - 1;
+		for (int i = originRow; i <= lastRow; i++) {
+			if (!dirty.isDirty(i)) {
+				continue;
+			}
+			int from = Math.max(dirty.getFirst(i), originCol);
+			int to = Math.min(dirty.getLast(i), lastCol);
+			if (from <= to) {
+				viewDirty.mark((i - originRow) / blockSize, (from - originCol)
+						/ blockSize, (to - originCol) / blockSize);
+			}
+		}
+	}
+
+	// merge the dirty spans of consecutive view rows into rectangles
+	private void drawDirtyView() {
+		int unit = getUnitSize();
+		int viewRows = getViewRows();
+		int top = -1;
+		int from = 0;
+		int to = 0;
+		for (int u = 0; u <= viewRows; u++) {
+			boolean rowDirty = u < viewRows && viewDirty.isDirty(u);
+			if (rowDirty && top >= 0
+					&& viewDirty.getFirst(u) <= to + MERGE_GAP
+					&& viewDirty.getLast(u) >= from - MERGE_GAP) {
+				from = Math.min(from, viewDirty.getFirst(u));
+				to = Math.max(to, viewDirty.getLast(u));
+				continue;
+			}
+			if (top >= 0) {
+				drawUnits(top, u - 1, from, to);
+				repaint(from * unit, top * unit, (to - from + 1) * unit,
+						(u - top) * unit);
+			}
+			top = rowDirty ? u : -1;
+			if (rowDirty) {
+				from = viewDirty.getFirst(u);
+				to = viewDirty.getLast(u);
+			}
+		}
+		viewDirty.clear();
+	}
+
+	// redraw the whole view, after it moved or zoomed
+	private void drawView() {
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = OUTSIDE;
+		}
+		int lastUnitRow = Math.min(getViewRows(), (rows - originRow
+				+ blockSize - 1) / blockSize) - 1;
+		int lastUnitCol = Math.min(getViewColumns(), (columns - originCol
+				+ blockSize - 1) / blockSize) - 1;
+		drawUnits(0, lastUnitRow, 0, lastUnitCol);
+		viewDirty.clear();
+		repaint();
+	}
+
+	private void drawUnits(int top, int bottom, int from, int to) {
+		for (int u = top; u <= bottom; u++) {
+			for (int v = from; v <= to; v++) {
+				drawUnit(u, v);
+			}
+		}
+	}
+
+	private void drawUnit(int u, int v) {
+		int row = originRow + u * blockSize;
+		int col = originCol + v * blockSize;
+		if (row >= rows || col >= columns) {
+			return;
+		}
+		if (blockSize > 1) {
+			pixels[u * viewWidth + v] = shade(countBlock(row, col), blockSize
+					* blockSize);
+			return;
+		}
+		int color;
+		if (displayed.isAlive(row, col)) {
+			color = ALIVE;
+		} else if ((trail[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0) {
+			color = RESUMED;
+		} else {
+			color = DEAD;
+		}
+		drawCell(v * cellSize, u * cellSize, color);
+	}
+
+	private void drawCell(int x0, int y0, int color) {
+		int width = Math.min(cellSize, viewWidth - x0);
+		int height = Math.min(cellSize, viewHeight - y0);
+		for (int y = 0; y < height; y++) {
+			int offset = (y0 + y) * viewWidth + x0;
+			for (int x = 0; x < width; x++) {
+				pixels[offset + x] = color;
+			}
+		}
+		// live cells are drawn solid, dead ones keep their top and left grid
+		// line
+		if (cellSize > 2 && color != ALIVE) {
+			int offset = y0 * viewWidth + x0;
+			for (int x = 0; x < width; x++) {
+				pixels[offset + x] = GRID;
+			}
+			for (int y = 0; y < height; y++) {
+				pixels[offset + y * viewWidth] = GRID;
+			}
+		}
+	}
+
+	// live cells in the block at (row, col); the view keeps blocks aligned to
+	// multiples of their size
+	private long countBlock(int row, int col) {
+		if (blockSize >= DensityPyramid.TILE) {
+			int level = Integer.numberOfTrailingZeros(blockSize
+					/ DensityPyramid.TILE);
+			return density.count(level, row / blockSize, col / blockSize);
+		}
+		long mask = ((1L << blockSize) - 1) << (col & 63);
+		int w = col >>> 6;
+		int last = Math.min(rows, row + blockSize);
+		long count = 0;
+		for (int i = row; i < last; i++) {
+			count += Long.bitCount(displayed.getWord(i, w) & mask);
+		}
+		return count;
+	}
+
+	// grey, darker the more of the block is alive
+	private static int shade(long count, long area) {
+		if (count == 0) {
+			return DEAD;
+		}
+		int grey = 208 - (int) Math.min(144, 432 * count / area);
+		return 0xFF000000 | (grey << 16) | (grey << 8) | grey;
+	}
+
+	// forget which cells have died and redraw the whole board
+	public void clearTrail() {
+		for (int i = 0; i < trail.length; i++) {
+			trail[i] = 0L;
+		}
+		BoardSnapshot stale = publisher.poll();
+		if (stale != null) {
+			stale.getDirtyRows().clear();
+		}
+		scratch.capture(engine);
+		displayed = scratch;
+		DirtyRows all = scratch.getDirtyRows();
+		all.markAll();
+		density.update(scratch, all);
+		updateTrail(scratch, all);
+		all.clear();
+		drawView();
+	}
+
+	// show the board from the given cell at the top-left corner, as far as
+	// the board reaches
+	public void setOrigin(int row, int col) {
+		int oldRow = originRow;
+		int oldCol = originCol;
+		moveOrigin(row, col);
+		if (originRow != oldRow || originCol != oldCol) {
+			drawView();
+		}
+	}
+
+	// keep the view on the board and its blocks aligned
+	private void moveOrigin(int row, int col) {
+		int maxRow = Math.max(0, rows - getViewRows() * blockSize)
+				+ blockSize - 1;
+		int maxCol = Math.max(0, columns - getViewColumns() * blockSize)
+				+ blockSize - 1;
+		row = Math.max(0, Math.min(row, maxRow));
+		col = Math.max(0, Math.min(col, maxCol));
+		originRow = row - row % blockSize;
+		originCol = col - col % blockSize;
+	}
+
+	// zoom in (positive steps) or out around the pixel at (x, y)
+	public void zoom(int steps, int x, int y) {
+		double rowAt = originRow + (double) y * blockSize / cellSize;
+		double colAt = originCol + (double) x * blockSize / cellSize;
+		int oldCell = cellSize;
+		int oldBlock = blockSize;
+		for (; steps > 0; steps--) {
+			if (blockSize > 1) {
+				blockSize /= 2;
+			} else if (cellSize < MAX_CELL_SIZE) {
+				cellSize *= 2;
+			}
+		}
+		for (; steps < 0; steps++) {
+			if (cellSize > 1) {
+				cellSize /= 2;
+			} else if (!fits(blockSize)) {
+				blockSize *= 2;
+			}
+		}
+		if (cellSize == oldCell && blockSize == oldBlock) {
+			return;
+		}
+		moveOrigin((int) (rowAt - (double) y * blockSize / cellSize),
+				(int) (colAt - (double) x * blockSize / cellSize));
+		drawView();
+	}
+
+	// true if blocks of this size show the whole board
+	private boolean fits(int size) {
+		return (rows + size - 1) / size <= viewHeight
+				&& (columns + size - 1) / size <= viewWidth;
+	}
+
+	// pixels of one cell or block
+	private int getUnitSize() {
+		return blockSize > 1 ? 1 : cellSize;
+	}
+
+	// cells or blocks that fit in the view
+	private int getViewRows() {
+		return (viewHeight + getUnitSize() - 1) / getUnitSize();
+	}
+
+	private int getViewColumns() {
+		return (viewWidth + getUnitSize() - 1) / getUnitSize();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		g.drawImage(image, 0, 0, null);
+		String[] lines = overlay;
+		if (lines != null) {
+			FontMetrics metrics = g.getFontMetrics();
+			int width = 0;
+			for (String line : lines) {
+				width = Math.max(width, metrics.stringWidth(line));
+			}
+			int lineHeight = metrics.getHeight();
+			g.setColor(OVERLAY);
+			g.fillRect(4, 4, width + 8, lines.length * lineHeight + 8);
+			g.setColor(Color.white);
+			for (int i = 0; i < lines.length; i++) {
+				g.drawString(lines[i], 8, 8 + i * lineHeight
+						+ metrics.getAscent());
+			}
+		}
+	}
+
+	// show text over the board, null to hide it
+	public void setOverlay(String[] lines) {
+		if (lines == null && overlay == null) {
+			return;
+		}
+		overlay = lines;
+		repaint();
+	}
+
+	public long getDisplayedGeneration() {
+		return displayed.getGeneration();
+	}
+
+	public LifeEngine getEngine() {
+		return engine;
+	}
+
+	// the simulation thread publishes its generations here
+	public FramePublisher getPublisher() {
+		return publisher;
+	}
+
+	public void setEditListener(EditListener editListener) {
+		this.editListener = editListener;
+	}
+
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getOriginRow() {
+		return originRow;
+	}
+
+	public int getOriginCol() {
+		return originCol;
+	}
+
+	class CanvasMouseListener extends MouseAdapter {
+		private int pressX;
+		private int pressY;
+		private int pressRow;
+		private int pressCol;
+
+		@Override
+		public void mousePressed(MouseEvent e) {
+			pressX = e.getX();
+			pressY = e.getY();
+			pressRow = originRow;
+			pressCol = originCol;
+		}
+
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			setOrigin(pressRow - (e.getY() - pressY) * blockSize / cellSize,
+					pressCol - (e.getX() - pressX) * blockSize / cellSize);
+		}
+
+		@Override
+		public void mouseWheelMoved(MouseWheelEvent e) {
+			zoom(-e.getWheelRotation(), e.getX(), e.getY());
+		}
+
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			if (blockSize > 1) {
+				return;
+			}
+			int row = originRow + e.getY() / cellSize;
+			int col = originCol + e.getX() / cellSize;
+			if (row >= rows || col >= columns) {
+				return;
+			}
+			if (editListener != null) {
+				editListener.beforeEdit();
+			}
+			engine.setAlive(row, col, !engine.isAlive(row, col));
+			render();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * A headless Game of Life universe that can be stepped without any Swing
+ * components. Cells are addressed by (row, col); bounded engines wrap the
+ * board into a torus like the original GameCell grid did.
+ */
+public interface LifeEngine {
+
+	public boolean isAlive(int row, int col);
+
+	public void setAlive(int row, int col, boolean alive);
+
+	// advance the whole universe by one generation
+	public void step();
+
+	// kill every cell and reset the generation counter
+	public void clear();
+
+	public long getPopulation();
+
+	public long getGeneration();
+
+	// set the generation counter, e.g. after putting back an earlier board
+	public void setGeneration(long generation);
+
+	public Rule getRule();
+}
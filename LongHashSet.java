@@ -0,0 +1,171 @@
+/**
+ * Open-addressing set of primitive longs with linear probing. Slot 0 marks a
+ * free entry, so the key 0 is tracked by a separate flag. Iterate with
+ * nextSlot()/keyAt() to avoid boxing or allocating.
+ */
+public class LongHashSet {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int mask;
+	private int size;
+	private boolean hasZero;
+
+	public LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	public LongHashSet(int expected) {
+		allocate(capacityFor(expected));
+	}
+
+	private static int capacityFor(int expected) {
+		int capacity = MIN_CAPACITY;
+		while (capacity - (capacity >>> 2) <= expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	public boolean contains(long key) {
+		if (key == 0) {
+			return hasZero;
+		}
+		int i = hash(key) & mask;
+		while (keys[i] != 0) {
+			if (keys[i] == key) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	// returns false if the key was already present
+	public boolean add(long key) {
+		if (key == 0) {
+			if (hasZero) {
+				return false;
+			}
+			hasZero = true;
+			size++;
+			return true;
+		}
+		int i = hash(key) & mask;
+		while (keys[i] != 0) {
+			if (keys[i] == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		if (++size > keys.length - (keys.length >>> 2)) {
+			rehash(keys.length << 1);
+		}
+		return true;
+	}
+
+	// returns false if the key was not present
+	public boolean remove(long key) {
+		if (key == 0) {
+			if (!hasZero) {
+				return false;
+			}
+			hasZero = false;
+			size--;
+			return true;
+		}
+		int i = hash(key) & mask;
+		while (keys[i] != key) {
+			if (keys[i] == 0) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		// shift the rest of the cluster back so no tombstones are needed
+		int gap = i;
+		i = (i + 1) & mask;
+		while (keys[i] != 0) {
+			int home = hash(keys[i]) & mask;
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				gap = i;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[gap] = 0;
+		size--;
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		long[] old = keys;
+		allocate(capacity);
+		for (int i = 0; i < old.length; i++) {
+			long key = old[i];
+			if (key != 0) {
+				int j = hash(key) & mask;
+				while (keys[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = key;
+			}
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+		}
+		size = 0;
+		hasZero = false;
+	}
+
+	// empty the set and give back memory if it is much larger than expected
+	public void clear(int expected) {
+		int capacity = capacityFor(expected);
+		if (keys.length > capacity << 2) {
+			allocate(capacity);
+			size = 0;
+			hasZero = false;
+		} else {
+			clear();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// index of the next occupied slot at or after from, or -1; the zero key
+	// lives in the virtual slot keys.length
+	public int nextSlot(int from) {
+		for (int i = from; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				return i;
+			}
+		}
+		if (hasZero && from <= keys.length) {
+			return keys.length;
+		}
+		return -1;
+	}
+
+	public long keyAt(int slot) {
+		return slot == keys.length ? 0 : keys[slot];
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Open-addressing map from primitive long keys to int values with linear
+ * probing, used to accumulate neighbour counts without boxing. Like
+ * LongHashSet, the key 0 is kept outside the table.
+ */
+public class LongIntHashMap {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private boolean hasZero;
+	private int zeroValue;
+
+	public LongIntHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public LongIntHashMap(int expected) {
+		allocate(capacityFor(expected));
+	}
+
+	private static int capacityFor(int expected) {
+		int capacity = MIN_CAPACITY;
+		while (capacity - (capacity >>> 2) <= expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	public int get(long key) {
+		if (key == 0) {
+			return hasZero ? zeroValue : 0;
+		}
+		int i = LongHashSet.hash(key) & mask;
+		while (keys[i] != 0) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return 0;
+	}
+
+	// add one to the value of key, inserting it with 1 if absent
+	public void increment(long key) {
+		if (key == 0) {
+			if (!hasZero) {
+				hasZero = true;
+				size++;
+			}
+			zeroValue++;
+			return;
+		}
+		int i = LongHashSet.hash(key) & mask;
+		while (keys[i] != 0) {
+			if (keys[i] == key) {
+				values[i]++;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = 1;
+		if (++size > keys.length - (keys.length >>> 2)) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			long key = oldKeys[i];
+			if (key != 0) {
+				int j = LongHashSet.hash(key) & mask;
+				while (keys[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = key;
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	// empty the map and give back memory if it is much larger than expected
+	public void clear(int expected) {
+		int capacity = capacityFor(expected);
+		if (keys.length > capacity << 2) {
+			allocate(capacity);
+		} else {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = 0;
+			}
+		}
+		size = 0;
+		hasZero = false;
+		zeroValue = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// see LongHashSet.nextSlot
+	public int nextSlot(int from) {
+		for (int i = from; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				return i;
+			}
+		}
+		if (hasZero && from <= keys.length) {
+			return keys.length;
+		}
+		return -1;
+	}
+
+	public long keyAt(int slot) {
+		return slot == keys.length ? 0 : keys[slot];
+	}
+
+	public int valueAt(int slot) {
+		return slot == keys.length ? zeroValue : values[slot];
+	}
+}
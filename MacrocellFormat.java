@@ -0,0 +1,379 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Golly's Macrocell (.mc) format, a HashLife quadtree written out node by
+ * node:
+ *
+ *   [M2] (life)
+ *   #R B3/S23
+ *   .*$..*$***$$$$$$        an 8x8 leaf, rows ended by '$'
+ *   4 1 0 0 0               a 16x16 node: level, then nw ne sw se
+ *
+ * Nodes are numbered from 1 in file order and only refer to earlier ones,
+ * 0 is an empty child, and the last node is the whole pattern. The file is
+ * read once into a compact table of the nodes; load() turns that into
+ * HashLifeEngine's own tree without visiting a single cell, and read() sets
+ * the live cells of any other engine by walking the tree and skipping empty
+ * parts. Either way the memory used follows the number of distinct nodes,
+ * not the area of the pattern.
+ */
+public class MacrocellFormat {
+	private static final int LEAF_LEVEL = 3;
+
+	private Rule rule;
+	private String name;
+	// nodes 1..count: level, four children, or the 64 cells of a leaf
+	private int count;
+	private int[] levels = new int[64];
+	private int[] children = new int[4 * 64];
+	private long[] leaves = new long[64];
+	// box around the live cells of every node, relative to its top-left
+	// corner: top, left, bottom, right, with top -1 for an empty node
+	private long[] boxes = new long[4 * 64];
+
+	public MacrocellFormat(Reader reader) throws IOException {
+		BufferedReader in = reader instanceof BufferedReader
+				? (BufferedReader) reader : new BufferedReader(reader);
+		String line = in.readLine();
+		if (line == null || !line.startsWith("[M2]")) {
+			throw new IOException("Not a Macrocell file");
+		}
+		int number = 1;
+		while ((line = in.readLine()) != null) {
+			number++;
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			char first = line.charAt(0);
+			if (first == '#') {
+				parseComment(line);
+			} else if (first == '.' || first == '*' || first == '$') {
+				addLeaf(parseLeaf(line, number));
+			} else {
+				parseNode(line, number);
+			}
+		}
+		if (count == 0) {
+			throw new IOException("Macrocell file has no nodes");
+		}
+	}
+
+	private void parseComment(String line) throws IOException {
+		if (line.startsWith("#R")) {
+			try {
+				rule = Rule.parse(line.substring(2).trim());
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Bad rule in Macrocell file: " + line,
+						e);
+			}
+		} else if (line.startsWith("#N")) {
+			name = line.substring(2).trim();
+		}
+	}
+
+	private static long parseLeaf(String line, int number) throws IOException {
+		long bits = 0;
+		int y = 0;
+		int x = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if (ch == '$') {
+				y++;
+				x = 0;
+			} else if (ch == '.' || ch == '*') {
+				if (y >= 8 || x >= 8) {
+					throw new IOException("Leaf larger than 8x8 in line "
+							+ number);
+				}
+				if (ch == '*') {
+					bits |= 1L << (y * 8 + x);
+				}
+				x++;
+			} else {
+				throw new IOException("Unexpected '" + ch + "' in line "
+						+ number);
+			}
+		}
+		return bits;
+	}
+
+	private void addLeaf(long bits) {
+		int node = grow();
+		levels[node] = LEAF_LEVEL;
+		leaves[node] = bits;
+		long top = -1;
+		long left = 8;
+		long bottom = -1;
+		long right = -1;
+		for (long b = bits; b != 0; b &= b - 1) {
+			int bit = Long.numberOfTrailingZeros(b);
+			if (top < 0) {
+				top = bit >>> 3;
+			}
+			bottom = bit >>> 3;
+			left = Math.min(left, bit & 7);
+			right = Math.max(right, bit & 7);
+		}
+		setBox(node, top, left, bottom, right);
+	}
+
+	private void parseNode(String line, int number) throws IOException {
+		String[] fields = line.split("\\s+");
+		if (fields.length != 5) {
+			throw new IOException("Bad node in line " + number + ": " + line);
+		}
+		int node = count + 1;
+		int level;
+		int[] kids = new int[4];
+		try {
+			level = Integer.parseInt(fields[0]);
+			for (int k = 0; k < 4; k++) {
+				kids[k] = Integer.parseInt(fields[k + 1]);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad node in line " + number + ": " + line);
+		}
+		if (level <= LEAF_LEVEL || level > 62) {
+			throw new IOException("Bad level " + level + " in line " + number);
+		}
+		for (int k = 0; k < 4; k++) {
+			if (kids[k] < 0 || kids[k] >= node
+					|| (kids[k] > 0 && levels[kids[k]] != level - 1)) {
+				throw new IOException("Bad child " + kids[k] + " in line "
+						+ number);
+			}
+		}
+		grow();
+		levels[node] = level;
+		System.arraycopy(kids, 0, children, 4 * node, 4);
+
+		long half = 1L << (level - 1);
+		long top = -1;
+		long left = Long.MAX_VALUE;
+		long bottom = -1;
+		long right = -1;
+		for (int k = 0; k < 4; k++) {
+			int kid = kids[k];
+			if (kid == 0 || boxes[4 * kid] < 0) {
+				continue;
+			}
+			long dy = (k >>> 1) * half;
+			long dx = (k & 1) * half;
+			top = top < 0 ? boxes[4 * kid] + dy : Math.min(top, boxes[4 * kid]
+					+ dy);
+			left = Math.min(left, boxes[4 * kid + 1] + dx);
+			bottom = Math.max(bottom, boxes[4 * kid + 2] + dy);
+			right = Math.max(right, boxes[4 * kid + 3] + dx);
+		}
+		setBox(node, top, left, bottom, right);
+	}
+
+	private int grow() {
+		count++;
+		if (count >= levels.length) {
+			int size = levels.length * 2;
+			levels = Arrays.copyOf(levels, size);
+			leaves = Arrays.copyOf(leaves, size);
+			children = Arrays.copyOf(children, 4 * size);
+			boxes = Arrays.copyOf(boxes, 4 * size);
+		}
+		return count;
+	}
+
+	private void setBox(int node, long top, long left, long bottom, long right) {
+		boxes[4 * node] = top;
+		boxes[4 * node + 1] = left;
+		boxes[4 * node + 2] = bottom;
+		boxes[4 * node + 3] = right;
+	}
+
+	// make the pattern the whole universe of a HashLife engine, centred on
+	// the origin, by building its tree node for node
+	public void load(HashLifeEngine engine) {
+		HashLifeEngine.Node[] nodes = new HashLifeEngine.Node[count + 1];
+		for (int i = 1; i <= count; i++) {
+			if (levels[i] == LEAF_LEVEL) {
+				nodes[i] = leaf(engine, leaves[i], LEAF_LEVEL, 0, 0);
+			} else {
+				HashLifeEngine.Node[] kids = new HashLifeEngine.Node[4];
+				for (int k = 0; k < 4; k++) {
+					int kid = children[4 * i + k];
+					kids[k] = kid == 0 ? engine.emptyNode(levels[i] - 1)
+							: nodes[kid];
+				}
+				nodes[i] = engine.join(kids[0], kids[1], kids[2], kids[3]);
+			}
+		}
+		engine.setRoot(nodes[count]);
+	}
+
+	// the part of an 8x8 leaf at (y, x) as a node of the given level
+	private static HashLifeEngine.Node leaf(HashLifeEngine engine, long bits,
+			int level, int y, int x) {
+		if (level == 0) {
+			return engine.leaf((bits & (1L << (y * 8 + x))) != 0);
+		}
+		int half = 1 << (level - 1);
+		return engine.join(leaf(engine, bits, level - 1, y, x),
+				leaf(engine, bits, level - 1, y, x + half),
+				leaf(engine, bits, level - 1, y + half, x),
+				leaf(engine, bits, level - 1, y + half, x + half));
+	}
+
+	// set the live cells with the top-left corner of getBounds() at (row,
+	// col) of a rows x columns board; returns how many there were
+	public long read(LifeEngine engine, int row, int col, int rows,
+			int columns) throws IOException {
+		if (boxes[4 * count] < 0) {
+			return 0;
+		}
+		// the box holds every live cell, so checking it checks them all
+		if (row < 0 || col < 0
+				|| row + boxes[4 * count + 2] - boxes[4 * count] >= rows
+				|| col + boxes[4 * count + 3] - boxes[4 * count + 1]
+						>= columns) {
+			throw new IOException("Macrocell pattern outside the board");
+		}
+		return emit(engine, count, row - boxes[4 * count], col
+				- boxes[4 * count + 1]);
+	}
+
+	private long emit(LifeEngine engine, int node, long y, long x) {
+		if (node == 0 || boxes[4 * node] < 0) {
+			return 0;
+		}
+		if (levels[node] == LEAF_LEVEL) {
+			long bits = leaves[node];
+			for (long b = bits; b != 0; b &= b - 1) {
+				int bit = Long.numberOfTrailingZeros(b);
+				engine.setAlive((int) (y + (bit >>> 3)), (int) (x + (bit & 7)),
+						true);
+			}
+			return Long.bitCount(bits);
+		}
+		long half = 1L << (levels[node] - 1);
+		long live = 0;
+		for (int k = 0; k < 4; k++) {
+			live += emit(engine, children[4 * node + k], y + (k >>> 1) * half,
+					x + (k & 1) * half);
+		}
+		return live;
+	}
+
+	// the box around the live cells relative to the top-left corner of the
+	// root square; empty for an empty pattern
+	public Bounds getBounds() {
+		long top = boxes[4 * count];
+		if (top < 0) {
+			return Bounds.EMPTY;
+		}
+		long left = boxes[4 * count + 1];
+		long bottom = boxes[4 * count + 2];
+		long right = boxes[4 * count + 3];
+		if (bottom - top >= Integer.MAX_VALUE
+				|| right - left >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Pattern too large for a board");
+		}
+		return new Bounds(0, 0, (int) (bottom - top), (int) (right - left));
+	}
+
+	// the rule from the #R line, or null
+	public Rule getRule() {
+		return rule;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// write the universe of a HashLife engine, sharing every repeated node
+	public static void write(HashLifeEngine engine, Writer out)
+			throws IOException {
+		out.write("[M2] (life)\n#R " + engine.getRule() + "\n");
+		HashLifeEngine.Node root = engine.getRoot();
+		Map<HashLifeEngine.Node, Integer> ids =
+				new IdentityHashMap<HashLifeEngine.Node, Integer>();
+		if (root.population == 0) {
+			out.write("$\n");
+		} else {
+			writeNode(root, ids, out);
+		}
+		out.flush();
+	}
+
+	// write the cells of area of any engine, through a HashLife copy
+	public static void write(LifeEngine engine, Bounds area, Writer out)
+			throws IOException {
+		HashLifeEngine copy = new HashLifeEngine(engine.getRule());
+		for (int i = area.getTop(); i <= area.getBottom(); i++) {
+			for (int j = area.getLeft(); j <= area.getRight(); j++) {
+				if (engine.isAlive(i, j)) {
+					copy.setAlive(i - area.getTop(), j - area.getLeft(), true);
+				}
+			}
+		}
+		write(copy, out);
+	}
+
+	// post-order, so children always come first; returns the node's number
+	private static int writeNode(HashLifeEngine.Node node,
+			Map<HashLifeEngine.Node, Integer> ids, Writer out)
+			throws IOException {
+		if (node.population == 0) {
+			return 0;
+		}
+		Integer known = ids.get(node);
+		if (known != null) {
+			return known;
+		}
+		if (node.level == LEAF_LEVEL) {
+			StringBuilder line = new StringBuilder();
+			for (int y = 0; y < 8; y++) {
+				for (int x = 0; x < 8; x++) {
+					line.append(cell(node, y, x) ? '*' : '.');
+				}
+				// dead cells at the end of a row can go
+				int end = line.length();
+				while (end > 0 && line.charAt(end - 1) == '.') {
+					end--;
+				}
+				line.setLength(end);
+				line.append('$');
+			}
+			out.write(line.append('\n').toString());
+		} else {
+			int nw = writeNode(node.nw, ids, out);
+			int ne = writeNode(node.ne, ids, out);
+			int sw = writeNode(node.sw, ids, out);
+			int se = writeNode(node.se, ids, out);
+			out.write(node.level + " " + nw + " " + ne + " " + sw + " " + se
+					+ "\n");
+		}
+		int id = ids.size() + 1;
+		ids.put(node, id);
+		return id;
+	}
+
+	private static boolean cell(HashLifeEngine.Node node, int y, int x) {
+		while (node.level > 0) {
+			int half = 1 << (node.level - 1);
+			if (y < half) {
+				node = x < half ? node.nw : node.ne;
+			} else {
+				node = x < half ? node.sw : node.se;
+				y -= half;
+			}
+			if (x >= half) {
+				x -= half;
+			}
+		}
+		return node.population != 0;
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * Torus neighbour topology computed once: for cell index i = row * columns +
+ * col, entries [i * 8, i * 8 + 8) hold the flat indices of its neighbours in
+ * the order top-left, top, top-right, right, bottom-right, bottom,
+ * bottom-left, left. Stepping with it needs no wrap checks and no allocation.
+ */
+public class NeighbourTable {
+	public static final int NEIGHBOURS = 8;
+
+	private final int rows;
+	private final int columns;
+	private final int[] indices;
+
+	public NeighbourTable(int rows, int columns) {
+		this.rows = rows;
+		this.columns = columns;
+		this.indices = new int[rows * columns * NEIGHBOURS];
+
+		for (int row = 0; row < rows; row++) {
+			int top = (row == 0 ? rows : row) - 1;
+			int bottom = (row == rows - 1) ? 0 : row + 1;
+			for (int col = 0; col < columns; col++) {
+				int left = (col == 0 ? columns : col) - 1;
+				int right = (col == columns - 1) ? 0 : col + 1;
+				int base = (row * columns + col) * NEIGHBOURS;
+				indices[base] = top * columns + left;
+				indices[base + 1] = top * columns + col;
+				indices[base + 2] = top * columns + right;
+				indices[base + 3] = row * columns + right;
+				indices[base + 4] = bottom * columns + right;
+				indices[base + 5] = bottom * columns + col;
+				indices[base + 6] = bottom * columns + left;
+				indices[base + 7] = row * columns + left;
+			}
+		}
+	}
+
+	// flat index of neighbour n (0..7) of the cell at index
+	public int get(int index, int n) {
+		return indices[index * NEIGHBOURS + n];
+	}
+
+	// the raw table, for hot loops that walk it directly
+	public int[] getIndices() {
+		return indices;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+}
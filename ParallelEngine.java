@@ -0,0 +1,101 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bit-packed torus whose generations are split into row bands and stepped on
+ * a ForkJoinPool. Bands only read the front buffer and write their own rows
+ * of the back buffer, and step() returns only after every band has finished,
+ * which is the barrier between two generations.
+ */
+public class ParallelEngine extends BitPackedEngine {
+	// below this many words a generation is cheaper on the calling thread
+	private static final int SEQUENTIAL_WORDS = 16 * 1024;
+
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private final int bandRows;
+
+	public ParallelEngine(int rows, int columns) {
+		this(rows, columns, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelEngine(int rows, int columns, int parallelism) {
+		this(rows, columns, Rule.CONWAY, parallelism);
+	}
+
+	public ParallelEngine(int rows, int columns, Rule rule, int parallelism) {
+		this(rows, columns, rule, new ForkJoinPool(parallelism), true);
+	}
+
+	// share an existing pool, which the caller shuts down
+	public ParallelEngine(int rows, int columns, Rule rule, ForkJoinPool pool) {
+		this(rows, columns, rule, pool, false);
+	}
+
+	private ParallelEngine(int rows, int columns, Rule rule,
+			ForkJoinPool pool, boolean ownsPool) {
+		super(rows, columns, rule);
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		// a few bands per worker so uneven bands still balance out
+		this.bandRows = Math.max(1, rows / (pool.getParallelism() * 4));
+	}
+
+	@Override
+	public void step() {
+		long[] cur = current;
+		long delta;
+		if (rows * wordsPerRow < SEQUENTIAL_WORDS) {
+			delta = stepRows(cur, next, 0, rows);
+		} else {
+			BandTask task = new BandTask(cur, next, 0, rows);
+			pool.invoke(task);
+			delta = task.delta;
+		}
+		current = next;
+		next = cur;
+		generation++;
+		addPopulation(delta);
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	// stop the worker threads if this engine created them
+	public void shutdown() {
+		if (ownsPool) {
+			pool.shutdown();
+		}
+	}
+
+	@SuppressWarnings("serial")
+	class BandTask extends RecursiveAction {
+		private final long[] cur;
+		private final long[] nxt;
+		private final int from;
+		private final int to;
+		// change in population of these rows, summed up the tree of tasks
+		private long delta;
+
+		BandTask(long[] cur, long[] nxt, int from, int to) {
+			this.cur = cur;
+			this.nxt = nxt;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= bandRows) {
+				delta = stepRows(cur, nxt, from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				BandTask upper = new BandTask(cur, nxt, from, middle);
+				BandTask lower = new BandTask(cur, nxt, middle, to);
+				invokeAll(upper, lower);
+				delta = upper.delta + lower.delta;
+			}
+		}
+	}
+}
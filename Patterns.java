@@ -0,0 +1,213 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * The built-in starting patterns, written into any engine. Kept apart from
+ * RunFrame so the headless BatchRunner can use them without loading Swing.
+ * Pictures use the plaintext convention: 'O' is a live cell, anything else is
+ * dead, and rows may stop after their last live cell.
+ */
+public class Patterns {
+	public static final String[] NAMES = { "gosper", "acorn", "glider",
+			"random" };
+
+	public static final String[] GOSPER_GLIDER_GUN = {
+			"........................O",
+			"......................O.O",
+			"............OO......OO............OO",
+			"...........O...O....OO............OO",
+			"OO........O.....O...OO",
+			"OO........O...O.OO....O.O",
+			"..........O.....O.......O",
+			"...........O...O",
+			"............OO" };
+
+	public static final String[] ACORN = {
+			".O",
+			"...O",
+			"OO..OOO" };
+
+	public static final String[] GLIDER = {
+			".O",
+			"..O",
+			"OOO" };
+
+	// set the live cells of the picture with its top-left corner at (row, col)
+	public static void place(LifeEngine engine, String[] picture, int row,
+			int col) {
+		for (int i = 0; i < picture.length; i++) {
+			String line = picture[i];
+			for (int j = 0; j < line.length(); j++) {
+				if (line.charAt(j) == 'O') {
+					engine.setAlive(row + i, col + j, true);
+				}
+			}
+		}
+	}
+
+	// place the picture in the middle of a rows x columns board; throws if
+	// it does not fit
+	public static void placeCentred(LifeEngine engine, String[] picture,
+			int rows, int columns) {
+		int height = getHeight(picture);
+		int width = getWidth(picture);
+		checkFits(height, width, rows, columns);
+		place(engine, picture, (rows - height) / 2, (columns - width) / 2);
+	}
+
+	// bring each cell of the rows x columns board to life with the given
+	// probability
+	public static void random(LifeEngine engine, int rows, int columns,
+			double density, Random random) {
+		if (density < 0 || density > 1) {
+			throw new IllegalArgumentException("Density must be in 0..1: "
+					+ density);
+		}
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				engine.setAlive(i, j, random.nextDouble() < density);
+			}
+		}
+	}
+
+	// the picture of a named pattern, null for random
+	public static String[] get(String name) {
+		if (name.equals("gosper")) {
+			return GOSPER_GLIDER_GUN;
+		} else if (name.equals("acorn")) {
+			return ACORN;
+		} else if (name.equals("glider")) {
+			return GLIDER;
+		} else if (name.equals("random")) {
+			return null;
+		}
+		throw new IllegalArgumentException("Unknown pattern '" + name
+				+ "', expected one of " + String.join(", ", NAMES));
+	}
+
+	// whether a pattern name is a file Patterns can load and save
+	public static boolean isFile(String name) {
+		String lower = name.toLowerCase();
+		return lower.endsWith(".rle") || lower.endsWith(".cells")
+				|| lower.endsWith(".mc");
+	}
+
+	// load a .rle, .cells or .mc file with its live cells centred on a rows
+	// x columns board. HashLifeEngine takes a Macrocell tree as it is,
+	// centred on the origin.
+	public static void load(Path file, LifeEngine engine, int rows,
+			int columns) throws IOException {
+		String name = file.getFileName().toString();
+		if (!isFile(name)) {
+			throw new IllegalArgumentException("Unknown pattern format: "
+					+ file);
+		}
+		try (Reader in = Files.newBufferedReader(file,
+				StandardCharsets.UTF_8)) {
+			String lower = name.toLowerCase();
+			if (lower.endsWith(".rle")) {
+				RleFormat rle = new RleFormat(in);
+				checkFits(rle.getHeight(), rle.getWidth(), rows, columns);
+				rle.read(engine, (rows - rle.getHeight()) / 2,
+						(columns - rle.getWidth()) / 2, rows, columns);
+			} else if (lower.endsWith(".cells")) {
+				Bounds box;
+				try (Reader first = Files.newBufferedReader(file,
+						StandardCharsets.UTF_8)) {
+					box = CellsFormat.measure(first);
+				}
+				checkFits(box.getHeight(), box.getWidth(), rows, columns);
+				CellsFormat.read(in, engine, (rows - box.getHeight()) / 2
+						- box.getTop(), (columns - box.getWidth()) / 2
+						- box.getLeft(), rows, columns);
+			} else {
+				MacrocellFormat mc = new MacrocellFormat(in);
+				if (engine instanceof HashLifeEngine) {
+					mc.load((HashLifeEngine) engine);
+				} else {
+					Bounds box = mc.getBounds();
+					checkFits(box.getHeight(), box.getWidth(), rows, columns);
+					mc.read(engine, (rows - box.getHeight()) / 2,
+							(columns - box.getWidth()) / 2, rows, columns);
+				}
+			}
+		}
+	}
+
+	// throws if a height x width pattern does not fit on a rows x columns
+	// board
+	public static void checkFits(int height, int width, int rows,
+			int columns) {
+		if (height > rows || width > columns) {
+			throw new IllegalArgumentException("Pattern of " + height + "x"
+					+ width + " does not fit on a board of " + rows + "x"
+					+ columns);
+		}
+	}
+
+	// save the cells of area in the format of the file's extension; a
+	// HashLifeEngine saved as .mc writes its whole universe
+	public static void save(Path file, LifeEngine engine, Bounds area,
+			String title) throws IOException {
+		String name = file.getFileName().toString();
+		if (!isFile(name)) {
+			throw new IllegalArgumentException("Unknown pattern format: "
+					+ file);
+		}
+		try (BufferedWriter out = Files.newBufferedWriter(file,
+				StandardCharsets.UTF_8)) {
+			String lower = name.toLowerCase();
+			if (lower.endsWith(".rle")) {
+				RleFormat.write(engine, area, engine.getRule(), title, out);
+			} else if (lower.endsWith(".cells")) {
+				CellsFormat.write(engine, area, title, out);
+			} else if (engine instanceof HashLifeEngine) {
+				MacrocellFormat.write((HashLifeEngine) engine, out);
+			} else {
+				MacrocellFormat.write(engine, area, out);
+			}
+		}
+	}
+
+	// the box around the live cells of a rows x columns board; bit-packed
+	// engines keep theirs, the others are scanned
+	public static Bounds findBounds(LifeEngine engine, int rows, int columns) {
+		if (engine instanceof BitPackedEngine) {
+			return ((BitPackedEngine) engine).getBounds();
+		}
+		int top = -1;
+		int bottom = -1;
+		int left = columns;
+		int right = -1;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				if (engine.isAlive(i, j)) {
+					if (top < 0) {
+						top = i;
+					}
+					bottom = i;
+					left = Math.min(left, j);
+					right = Math.max(right, j);
+				}
+			}
+		}
+		return top < 0 ? Bounds.EMPTY : new Bounds(top, left, bottom, right);
+	}
+
+	public static int getHeight(String[] picture) {
+		return picture.length;
+	}
+
+	public static int getWidth(String[] picture) {
+		int width = 0;
+		for (String line : picture) {
+			width = Math.max(width, line.length());
+		}
+		return width;
+	}
+}
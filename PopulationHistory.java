@@ -0,0 +1,114 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The population of the last few thousand generations in a ring buffer, for
+ * population-over-time charts. The simulation thread records one value per
+ * generation, which costs a single store now that engines keep their
+ * population up to date; the UI reads it from another thread.
+ */
+public class PopulationHistory {
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private final AtomicLongArray populations;
+	// generation of the newest entry, -1 while empty
+	private volatile long latest = -1;
+	// generation of the oldest entry still in the ring
+	private volatile long oldest;
+
+	public PopulationHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PopulationHistory(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: "
+					+ capacity);
+		}
+		populations = new AtomicLongArray(capacity);
+	}
+
+	// generations are expected in increasing order; going back (a cleared
+	// board) starts the history over
+	public void record(long generation, long population) {
+		long last = latest;
+		if (last < 0 || generation <= last) {
+			oldest = generation;
+		} else {
+			// generations stepped over keep the last recorded value
+			long previous = populations.get(slot(last));
+			long from = Math.max(last + 1, generation - populations.length()
+					+ 1);
+			for (long g = from; g < generation; g++) {
+				populations.lazySet(slot(g), previous);
+			}
+			oldest = Math.max(oldest, generation - populations.length() + 1);
+		}
+		populations.lazySet(slot(generation), population);
+		latest = generation;
+	}
+
+	private int slot(long generation) {
+		return (int) (generation % populations.length());
+	}
+
+	public void clear() {
+		latest = -1;
+		oldest = 0;
+	}
+
+	public boolean isEmpty() {
+		return latest < 0;
+	}
+
+	public long getLatestGeneration() {
+		return latest;
+	}
+
+	public long getOldestGeneration() {
+		return oldest;
+	}
+
+	// the population at a generation between getOldestGeneration() and
+	// getLatestGeneration()
+	public long getPopulation(long generation) {
+		if (generation < oldest || generation > latest) {
+			throw new IllegalArgumentException("Generation " + generation
+					+ " is not in the history " + oldest + ".." + latest);
+		}
+		return populations.get(slot(generation));
+	}
+
+	// the newest values, oldest first, at most count of them
+	public long[] getRecent(int count) {
+		long last = latest;
+		long first = Math.max(oldest, last - count + 1);
+		if (last < 0 || first > last) {
+			return new long[0];
+		}
+		long[] values = new long[(int) (last - first + 1)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = populations.get(slot(first + i));
+		}
+		return values;
+	}
+
+	public int getCapacity() {
+		return populations.length();
+	}
+
+	// one line for the overlay
+	public String describe() {
+		long[] values = getRecent(getCapacity());
+		if (values.length == 0) {
+			return "population -";
+		}
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (long value : values) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		return String.format("population %,d  min %,d  max %,d over %d gen",
+				values[values.length - 1], min, max, values.length);
+	}
+}
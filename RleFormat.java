@@ -0,0 +1,228 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Run Length Encoded patterns, the format of most pattern collections:
+ *
+ *   #N Glider
+ *   x = 3, y = 3, rule = B3/S23
+ *   bo$2bo$3o!
+ *
+ * The constructor reads the comments and the header line; read() then
+ * streams the runs into an engine's setAlive() one character at a time, so
+ * a file of any size loads with a few bytes of extra memory. The states of
+ * multi-state files are all read as live.
+ */
+public class RleFormat {
+	// longest line written, as the format recommends
+	private static final int LINE = 70;
+
+	private final BufferedReader in;
+	private String name;
+	private int width;
+	private int height;
+	private Rule rule;
+
+	public RleFormat(Reader reader) throws IOException {
+		in = reader instanceof BufferedReader ? (BufferedReader) reader
+				: new BufferedReader(reader);
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.startsWith("#N")) {
+				name = line.substring(2).trim();
+			} else if (line.startsWith("x")) {
+				parseHeader(line);
+				return;
+			} else if (!line.isEmpty() && !line.startsWith("#")) {
+				throw new IOException("RLE header expected: " + line);
+			}
+		}
+		throw new IOException("RLE header missing");
+	}
+
+	// x = m, y = n[, rule = notation]
+	private void parseHeader(String line) throws IOException {
+		width = -1;
+		height = -1;
+		for (String field : line.split(",")) {
+			int equals = field.indexOf('=');
+			if (equals < 0) {
+				throw new IOException("Bad RLE header: " + line);
+			}
+			String key = field.substring(0, equals).trim();
+			String value = field.substring(equals + 1).trim();
+			try {
+				if (key.equals("x")) {
+					width = Integer.parseInt(value);
+				} else if (key.equals("y")) {
+					height = Integer.parseInt(value);
+				} else if (key.equals("rule")) {
+					rule = Rule.parse(value);
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Bad RLE header: " + line, e);
+			}
+		}
+		if (width < 0 || height < 0) {
+			throw new IOException("Bad RLE header: " + line);
+		}
+	}
+
+	// set the live cells with the top-left corner of the pattern at (row,
+	// col) of a rows x columns board; returns how many there were
+	public long read(LifeEngine engine, int row, int col, int rows,
+			int columns) throws IOException {
+		long live = 0;
+		int count = 0;
+		int r = row;
+		int c = col;
+		int ch;
+		while ((ch = in.read()) >= 0) {
+			if (ch >= '0' && ch <= '9') {
+				if (count > (Integer.MAX_VALUE - 9) / 10) {
+					throw new IOException("Run too long in RLE");
+				}
+				count = count * 10 + ch - '0';
+				continue;
+			}
+			if (Character.isWhitespace(ch)) {
+				continue;
+			}
+			int n = count == 0 ? 1 : count;
+			count = 0;
+			if (ch == 'b' || ch == '.') {
+				c += n;
+			} else if (ch == '$') {
+				r += n;
+				c = col;
+			} else if (ch == '!') {
+				return live;
+			} else if (ch == 'o' || (ch >= 'A' && ch <= 'X')
+					|| (ch >= 'p' && ch <= 'y')) {
+				if (ch >= 'p') {
+					// a multi-state prefix, the state letter follows
+					ch = in.read();
+					if (ch < 'A' || ch > 'X') {
+						throw new IOException("Bad multi-state cell in RLE");
+					}
+				}
+				if (r - (long) row >= height || c - (long) col + n > width) {
+					throw new IOException("RLE cells outside its x = " + width
+							+ ", y = " + height);
+				}
+				if (r < 0 || r >= rows || c < 0 || (long) c + n > columns) {
+					throw new IOException("RLE cells outside the board");
+				}
+				for (int k = 0; k < n; k++) {
+					engine.setAlive(r, c + k, true);
+				}
+				c += n;
+				live += n;
+			} else if (ch == '#') {
+				in.readLine();
+			} else {
+				throw new IOException("Unexpected '" + (char) ch + "' in RLE");
+			}
+		}
+		throw new IOException("RLE ends without '!'");
+	}
+
+	// the pattern name from a #N line, or null
+	public String getName() {
+		return name;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	// the rule from the header, or null if it has none
+	public Rule getRule() {
+		return rule;
+	}
+
+	// write the cells of area, streaming row by row
+	public static void write(LifeEngine engine, Bounds area, Rule rule,
+			String name, Writer out) throws IOException {
+		if (name != null) {
+			out.write("#N " + name + "\n");
+		}
+		out.write("x = " + area.getWidth() + ", y = " + area.getHeight()
+				+ ", rule = " + rule + "\n");
+		RunWriter runs = new RunWriter(out);
+		for (int i = area.getTop(); i <= area.getBottom(); i++) {
+			int j = area.getLeft();
+			while (j <= area.getRight()) {
+				boolean alive = engine.isAlive(i, j);
+				int start = j;
+				while (j <= area.getRight() && engine.isAlive(i, j) == alive) {
+					j++;
+				}
+				runs.add(j - start, alive ? 'o' : 'b', j > area.getRight());
+			}
+			runs.add(1, '$', false);
+		}
+		runs.finish();
+	}
+
+	// runs of one tag, merged and written with lines of at most LINE
+	// characters; dead cells at the end of a row and empty rows at the end
+	// of the pattern are left out
+	private static final class RunWriter {
+		private final Writer out;
+		private int pending;
+		private char pendingTag;
+		private int line;
+
+		RunWriter(Writer out) {
+			this.out = out;
+		}
+
+		void add(int n, char tag, boolean endOfRow) throws IOException {
+			if (tag == 'b' && endOfRow) {
+				return;
+			}
+			if (tag == pendingTag) {
+				pending += n;
+				return;
+			}
+			flush();
+			pending = n;
+			pendingTag = tag;
+		}
+
+		private void flush() throws IOException {
+			if (pending == 0) {
+				return;
+			}
+			String token = (pending == 1 ? "" : Integer.toString(pending))
+					+ pendingTag;
+			if (line + token.length() > LINE) {
+				out.write('\n');
+				line = 0;
+			}
+			out.write(token);
+			line += token.length();
+			pending = 0;
+		}
+
+		void finish() throws IOException {
+			if (pendingTag == '$') {
+				pending = 0;
+			}
+			flush();
+			if (line + 1 > LINE) {
+				out.write('\n');
+			}
+			out.write("!\n");
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/**
+ * A totalistic cellular automaton rule, parsed from one of three notations:
+ *
+ * B3/S23 or 23/3 (S/B) for two-state life-like rules,
+ * B2/S345/C4 or 345/2/4 for multi-state "Generations" rules,
+ * R5,C0,M1,S34..58,B34..45,NM for Larger than Life.
+ *
+ * Every rule is compiled into a transition table indexed by state and live
+ * neighbour count, so engines look the next state up instead of interpreting
+ * the rule per cell. Life-like rules are also exposed as birth and survival
+ * bitmasks for the bit-parallel engines.
+ */
+public final class Rule {
+	public static final Rule CONWAY = parse("B3/S23");
+
+	private final String notation;
+	private final int states;
+	private final int range;
+	private final boolean centreIncluded;
+	private final int maxCount;
+	private final boolean[] birth;
+	private final boolean[] survival;
+	private final byte[] table;
+
+	private Rule(String notation, int states, int range,
+			boolean centreIncluded, boolean[] birth, boolean[] survival) {
+		this.notation = notation;
+		this.states = states;
+		this.range = range;
+		this.centreIncluded = centreIncluded;
+		this.maxCount = birth.length - 1;
+		this.birth = birth;
+		this.survival = survival;
+		this.table = compile();
+	}
+
+	public static Rule parse(String notation) {
+		if (notation == null || notation.trim().isEmpty()) {
+			throw new IllegalArgumentException("Empty rule");
+		}
+		String rule = notation.trim().toUpperCase().replace(" ", "");
+		if (rule.startsWith("R") && rule.indexOf(',') >= 0) {
+			return parseLargerThanLife(rule);
+		}
+		return parseBirthSurvival(rule);
+	}
+
+	private static Rule parseBirthSurvival(String rule) {
+		String[] parts = rule.split("/", -1);
+		if (parts.length < 2 || parts.length > 3) {
+			throw new IllegalArgumentException("Not a B/S rule: " + rule);
+		}
+		String b = null;
+		String s = null;
+		String c = null;
+		boolean prefixed = false;
+		for (String part : parts) {
+			if (part.startsWith("B")) {
+				b = part.substring(1);
+				prefixed = true;
+			} else if (part.startsWith("S")) {
+				s = part.substring(1);
+				prefixed = true;
+			} else if (part.startsWith("C") || part.startsWith("G")) {
+				c = part.substring(1);
+				prefixed = true;
+			}
+		}
+		if (!prefixed) {
+			// legacy survival/birth[/states] order
+			s = parts[0];
+			b = parts[1];
+			c = parts.length == 3 ? parts[2] : null;
+		} else if (b == null || s == null
+				|| (parts.length == 3 && c == null)) {
+			throw new IllegalArgumentException("Not a B/S rule: " + rule);
+		}
+
+		int states = (c == null || c.isEmpty()) ? 2 : parseNumber(c, rule);
+		if (states < 2 || states > 256) {
+			throw new IllegalArgumentException("Rule needs 2..256 states: "
+					+ rule);
+		}
+		boolean[] birth = digits(b, rule);
+		boolean[] survival = digits(s, rule);
+
+		StringBuilder name = new StringBuilder("B");
+		appendDigits(name, birth);
+		name.append("/S");
+		appendDigits(name, survival);
+		if (states > 2) {
+			name.append("/C").append(states);
+		}
+		return new Rule(name.toString(), states, 1, false, birth, survival);
+	}
+
+	private static Rule parseLargerThanLife(String rule) {
+		int range = -1;
+		int states = 2;
+		boolean centre = false;
+		int[] s = null;
+		int[] b = null;
+		for (String part : rule.split(",")) {
+			if (part.isEmpty()) {
+				throw new IllegalArgumentException("Bad LtL rule: " + rule);
+			}
+			char key = part.charAt(0);
+			String value = part.substring(1);
+			if (key == 'R') {
+				range = parseNumber(value, rule);
+			} else if (key == 'C') {
+				states = Math.max(2, parseNumber(value, rule));
+			} else if (key == 'M') {
+				centre = parseNumber(value, rule) != 0;
+			} else if (key == 'S') {
+				s = interval(value, rule);
+			} else if (key == 'B') {
+				b = interval(value, rule);
+			} else if (key == 'N') {
+				if (!value.equals("M")) {
+					throw new IllegalArgumentException(
+							"Only Moore (NM) neighbourhoods are supported: "
+									+ rule);
+				}
+			} else {
+				throw new IllegalArgumentException("Bad LtL rule: " + rule);
+			}
+		}
+		if (range < 1 || range > 500 || s == null || b == null) {
+			throw new IllegalArgumentException("Bad LtL rule: " + rule);
+		}
+		if (states > 256) {
+			throw new IllegalArgumentException("Rule needs 2..256 states: "
+					+ rule);
+		}
+
+		int side = 2 * range + 1;
+		int maxCount = side * side - (centre ? 0 : 1);
+		boolean[] birth = new boolean[maxCount + 1];
+		boolean[] survival = new boolean[maxCount + 1];
+		for (int i = b[0]; i <= Math.min(b[1], maxCount); i++) {
+			birth[i] = true;
+		}
+		for (int i = s[0]; i <= Math.min(s[1], maxCount); i++) {
+			survival[i] = true;
+		}
+		String name = "R" + range + ",C" + (states == 2 ? 0 : states) + ",M"
+				+ (centre ? 1 : 0) + ",S" + s[0] + ".." + s[1] + ",B" + b[0]
+				+ ".." + b[1] + ",NM";
+		return new Rule(name, states, range, centre, birth, survival);
+	}
+
+	private static int parseNumber(String value, String rule) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad number '" + value
+					+ "' in rule " + rule);
+		}
+	}
+
+	private static int[] interval(String value, String rule) {
+		int dots = value.indexOf("..");
+		int[] result;
+		if (dots < 0) {
+			int n = parseNumber(value, rule);
+			result = new int[] { n, n };
+		} else {
+			result = new int[] { parseNumber(value.substring(0, dots), rule),
+					parseNumber(value.substring(dots + 2), rule) };
+		}
+		if (result[0] < 0 || result[0] > result[1]) {
+			throw new IllegalArgumentException("Bad interval '" + value
+					+ "' in rule " + rule);
+		}
+		return result;
+	}
+
+	private static boolean[] digits(String value, String rule) {
+		boolean[] result = new boolean[9];
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch < '0' || ch > '8') {
+				throw new IllegalArgumentException("Bad neighbour count '" + ch
+						+ "' in rule " + rule);
+			}
+			result[ch - '0'] = true;
+		}
+		return result;
+	}
+
+	private static void appendDigits(StringBuilder name, boolean[] set) {
+		for (int i = 0; i < set.length; i++) {
+			if (set[i]) {
+				name.append(i);
+			}
+		}
+	}
+
+	// state 0 is dead, 1 is alive and 2..states-1 are dying cells that no
+	// longer count as neighbours
+	private byte[] compile() {
+		int stride = maxCount + 1;
+		byte[] result = new byte[states * stride];
+		for (int count = 0; count <= maxCount; count++) {
+			result[count] = (byte) (birth[count] ? 1 : 0);
+			result[stride + count] = (byte) (survival[count] ? 1
+					: (states > 2 ? 2 : 0));
+			for (int state = 2; state < states; state++) {
+				result[state * stride + count] = (byte) (state + 1 < states ? state + 1
+						: 0);
+			}
+		}
+		return result;
+	}
+
+	// next state of a cell; count is the number of live cells in its
+	// neighbourhood
+	public int next(int state, int count) {
+		return table[state * (maxCount + 1) + count] & 0xFF;
+	}
+
+	// the transition table, indexed by state * (getMaxCount() + 1) + count
+	public byte[] getTable() {
+		return table;
+	}
+
+	// two states and the eight-cell Moore neighbourhood
+	public boolean isLifeLike() {
+		return states == 2 && range == 1;
+	}
+
+	// bit n is set when a dead cell with n live neighbours is born
+	public int getBirthMask() {
+		return mask(birth);
+	}
+
+	// bit n is set when a live cell with n live neighbours survives
+	public int getSurvivalMask() {
+		return mask(survival);
+	}
+
+	private static int mask(boolean[] set) {
+		int mask = 0;
+		for (int i = 0; i < set.length && i < 32; i++) {
+			if (set[i]) {
+				mask |= 1 << i;
+			}
+		}
+		return mask;
+	}
+
+	// throws unless the rule can run on a two-state, range-1 engine
+	public Rule requireLifeLike(String engine) {
+		if (!isLifeLike()) {
+			throw new IllegalArgumentException(engine
+					+ " only runs two-state range-1 rules, not " + notation);
+		}
+		return this;
+	}
+
+	// throws if the rule births cells with no live neighbours, which engines
+	// that only look around live or changed cells cannot follow
+	public Rule requireNoB0(String engine) {
+		if (birth[0]) {
+			throw new IllegalArgumentException(engine
+					+ " cannot run B0 rules like " + notation);
+		}
+		return this;
+	}
+
+	public int getStates() {
+		return states;
+	}
+
+	public int getRange() {
+		return range;
+	}
+
+	public boolean isCentreIncluded() {
+		return centreIncluded;
+	}
+
+	public int getMaxCount() {
+		return maxCount;
+	}
+
+	@Override
+	public String toString() {
+		return notation;
+	}
+
+	@Override
+	public int hashCode() {
+		return notation.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		return notation.equals(((Rule) obj).notation);
+	}
+}
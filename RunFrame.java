@@ -4,17 +4,26 @@ import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import javax.management.JMException;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
-import java.awt.GridLayout;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
-public class RunFrame extends JFrame implements Runnable {
+public class RunFrame extends JFrame {
 	private static final long serialVersionUID = 5300492314595916580L;
 	
 	private RunFrame rf;
@@ -23,9 +32,11 @@ public class RunFrame extends JFrame implements Runnable {
 	private int height;
 	private int rows;
 	private int columns;
-	private int count;
-	private int threadSpeed;
+	private volatile int count;
+	private volatile int threadSpeed;
 	private int speedStep;
+	// overrides threadSpeed when positive
+	private volatile double generationsPerSecond;
 	public int cellWidth;
 	public int cellHeight;
 	
@@ -33,41 +44,63 @@ public class RunFrame extends JFrame implements Runnable {
 	
 	private String[] patterns;
 	private GameCell[][] cells;
-	private CellStatus[][] status;
+	private LifeEngine engine;
+	private NeighbourTable neighbourTable;
+	private final Random random = new Random();
 	
-	private JPanel topPanel, mainPanel;
-	private JButton jbtn1, jbtn2, jbtn3, jbtn6, jbtn7;
+	private JPanel topPanel;
+	private LifeCanvas canvas;
+	private JButton jbtn1, jbtn2, jbtn3, jbtn4, jbtn5, jbtn6, jbtn7, jbtn8;
 	private JComboBox<String> jcb;
 	private JLabel jlb, countLabel;
+	private JCheckBox statsBox;
+	private final SimulationMetrics metrics = new SimulationMetrics();
+	private final PopulationHistory history = new PopulationHistory();
+	// past boards for the Back button, null when there is no budget for
+	// them, see BoardConfig.getHistoryBudget()
+	private GenerationHistory generations;
+	// images of the generations being recorded, null when not recording
+	private volatile FrameRecorder recorder;
+	// pause by itself once the board only repeats itself
+	private final boolean autoPause = Boolean.getBoolean("life.autopause");
+	// period and first generation of the cycle the board is in, 0 if none
+	private volatile long settledPeriod;
+	private volatile long settledStart;
 	
-	private Thread t;
-	
-	private boolean stop = false;
-	private boolean waitFlag = false;
-	private boolean stepWaitFlag = false;
-	private boolean stepSwitchOn = false;
+	private SimulationScheduler scheduler;
+	// the generation the simulation stopped at is not published yet
+	private volatile boolean unpublished;
+	private Timer renderTimer;
 	
 
+	// [rows columns] [--config file] [--engine name] [--rule notation]
+	// [--parallelism threads]
 	public static void main(String[] args) {
-		new RunFrame(70, 120);
-//		new RunFrame(40, 40);
-//		new RunFrame(6, 6);
+		BoardConfig config;
+		try {
+			config = BoardConfig.parse(args);
+			config.checkMemory(BoardConfig.availableMemory());
+		} catch (IOException e) {
+			System.err.println("Cannot read config: " + e.getMessage());
+			System.exit(1);
+			return;
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+		new RunFrame(config);
 	}
 
 	public RunFrame(int rows, int columns) {
+		this(new BoardConfig(rows, columns));
+	}
+
+	public RunFrame(BoardConfig config) {
 		rf = this;
 		
-		if (rows < 5 || rows > 70) {
-			this.rows = 70;
-		}else{
-			this.rows = rows;
-		}
-		
-		if (columns < 5 || columns > 120) {
-			this.columns = 120;
-		}else{
-			this.columns = columns;
-		}
+		this.rows = config.getRows();
+		this.columns = config.getColumns();
 		
 		this.count = 0;
 		this.threadSpeed = 20;
@@ -90,11 +123,15 @@ public class RunFrame extends JFrame implements Runnable {
 		jbtn1.setSize(200, 36);
 		jbtn2 = new JButton("Step");
 		jbtn2.addActionListener(new BtnActionListener());
+		jbtn5 = new JButton("Back");
+		jbtn5.addActionListener(new BtnActionListener());
 		jbtn3 = new JButton("Reset");
 		jbtn3.addActionListener(new BtnActionListener());
+		jbtn4 = new JButton("Save");
+		jbtn4.addActionListener(new BtnActionListener());
 
 		patterns = new String[] { "Patterns", "Gosper Glider Gun", "Acorn",
-				"Random" };
+				"Random", "Open File..." };
 		jcb = new JComboBox<String>(patterns);
 		jcb.setSelectedIndex(0);
 		jcb.setBackground(Color.white);
@@ -104,12 +141,17 @@ public class RunFrame extends JFrame implements Runnable {
 		jbtn6.addActionListener(new BtnActionListener());
 		jbtn7 = new JButton("Speed Up");
 		jbtn7.addActionListener(new BtnActionListener());
+		jbtn8 = new JButton("Record");
+		jbtn8.addActionListener(new BtnActionListener());
 		jlb = new JLabel("Speed: " + getThreadSpeed() + " ms");
 
 		countLabelName = "Paint time: ";
 		countLabel = new JLabel(countLabelName + getCount());
+		// generations/s and latency percentiles drawn over the board
+		statsBox = new JCheckBox("Stats", Boolean.getBoolean("life.overlay"));
 
 		topPanel.add(jbtn1);
+		topPanel.add(jbtn5);
 		topPanel.add(jbtn2);
 		topPanel.add(jbtn3);
 
@@ -117,72 +159,142 @@ public class RunFrame extends JFrame implements Runnable {
 		topPanel.add(jbtn7);
 		topPanel.add(jlb);
 		topPanel.add(jcb);
+		topPanel.add(jbtn4);
+		topPanel.add(jbtn8);
 		topPanel.add(countLabel);
+		topPanel.add(statsBox);
 		getContentPane().add(topPanel, BorderLayout.NORTH);
 		
-		mainPanel = new JPanel();
-		mainPanel.setBackground(Color.white);
-		mainPanel.setLayout(new GridLayout(this.rows, this.columns, 0, 0));
-
-		cells = new GameCell[this.rows][this.columns];
-		status = new CellStatus[this.rows][this.columns];
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				cells[i][j] = new GameCell(i, j, width, height, rows, columns);
-				status[i][j] = CellStatus.Dead;
-				mainPanel.add(cells[i][j]);
-			}
+		engine = config.createEngine();
+		if (config.getHistoryBudget() > 0) {
+			generations = new GenerationHistory(this.rows, this.columns,
+					config.getHistoryBudget(),
+					GenerationHistory.DEFAULT_KEYFRAME_INTERVAL);
 		}
+		try {
+			metrics.register();
+		} catch (JMException e) {
+			System.err.println("Metrics are not available over JMX: " + e);
+		}
+
+		canvas = new LifeCanvas(engine, this.rows, this.columns, width, height);
+		JPanel mainPanel = new JPanel(new BorderLayout());
+		mainPanel.setBackground(Color.white);
+		mainPanel.add(canvas, BorderLayout.CENTER);
 		getContentPane().add(mainPanel, BorderLayout.CENTER);
 		this.setVisible(true);
 
-	}
-
-	@Override
-	public void run() {
-//		System.out.println("thread run");
-		while (!stop) {
-			count++;
-			countLabel.setText(countLabelName + getCount());
+		scheduler = new SimulationScheduler(new SimulationTask(), "simulation");
+		canvas.setEditListener(new LifeCanvas.EditListener() {
+			@Override
+			public void beforeEdit() {
+				// a click pauses a running board, the listener below
+				// updates the buttons
+				pauseSimulation();
+			}
+		});
+		scheduler.setListener(new SimulationScheduler.Listener() {
+			@Override
+			public void stateChanged(SimulationScheduler.State state) {
+				if (state == SimulationScheduler.State.PAUSED) {
+					final Throwable error = scheduler.getError();
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							// paused by itself: died out, settled or failed
+							if (jbtn1.getText().equalsIgnoreCase("pause")) {
+								jbtn1.setText("Resume");
+								jbtn2.setEnabled(true);
+								jbtn5.setEnabled(true);
+							}
+							if (error != null) {
+								JOptionPane.showMessageDialog(rf,
+										"The simulation stopped: " + error);
+							}
+						}
+					});
+				}
+			}
+		});
 
-			try {
-				synchronized (this) {
-					
-//					showStatusArrayToConsole("run");
+		// the render loop samples the newest generation at a fixed frame rate,
+		// independent of how fast the simulation runs
+		String gps = System.getProperty("life.gps");
+		if (gps != null) {
+			setGenerationsPerSecond(Double.parseDouble(gps));
+		}
+		int fps = Integer.getInteger("life.fps", 60);
+		renderTimer = new Timer(1000 / Math.max(1, Math.min(fps, 1000)),
+				new RenderListener());
+		renderTimer.start();
+	}
+
+	// one generation of the window, run by the scheduler's thread
+	class SimulationTask implements SimulationScheduler.Task {
+		private final FramePublisher publisher = canvas.getPublisher();
+		private final String engineName = engine.getClass().getName();
+		private final long cells = (long) rows * columns;
+		// bit-packed engines keep a hash, the others are only read cell by
+		// cell when auto-pause asks for it
+		private final CycleDetector detector = engine instanceof BitPackedEngine
+				|| autoPause ? new CycleDetector() : null;
+		private boolean published = true;
 
+		@Override
+		public void step() {
+			if (generations != null) {
+				// the board we are about to leave, possibly edited or rewound
+				generations.record(count, engine);
+			}
+			count++;
+			GenerationEvent event = new GenerationEvent();
+			event.begin();
+			long start = System.nanoTime();
+			engine.step();
+			long stepped = System.nanoTime();
+			published = publisher.publish(engine);
+			history.record(engine.getGeneration(), engine.getPopulation());
+			FrameRecorder frames = recorder;
+			if (frames != null) {
+				// never waits, frames the encoders cannot keep up with are
+				// left out
+				frames.capture(engine);
+			}
+			if (detector != null) {
+				if (detector.observe(engine, rows, columns) && autoPause) {
+					scheduler.pause();
+				}
+				settledStart = detector.getStart();
+				settledPeriod = detector.getPeriod();
+			}
+			metrics.recordGeneration(stepped - start, System.nanoTime() - start,
+					cells);
+			if (event.shouldCommit()) {
+				event.generation = engine.getGeneration();
+				event.engine = engineName;
+				event.published = published;
+				event.commit();
+			}
+		}
 
-					for (int i = 0; i < rows; i++) {
-						for (int j = 0; j < columns; j++) {
-							status[i][j] = cells[i][j].getNextStatus(this
-									.getNeighbours(cells[i][j]));
-						}
-					}
-					
+		@Override
+		public boolean canStep() {
+			return !isAllDead();
+		}
 
-					for (int i = 0; i < rows; i++) {
-						for (int j = 0; j < columns; j++) {
-							cells[i][j].setStatus(status[i][j]);
-						}
-					}
-					
-					repaint();
-					pause();
-					
-					while (waitFlag || isAllDead()) {
-						wait();
-					}
+		@Override
+		public long getStepNanos() {
+			return RunFrame.this.getStepNanos();
+		}
 
-					while (stepWaitFlag) {
-						wait();
-					}
-					if (stepSwitchOn) {
-						stepWaitFlag = true;
-					}
-					
-				}
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		@Override
+		public void idle() {
+			// the renderer has to see the generation we stop at; if it has
+			// not taken the last one yet, it draws this one from the engine
+			if (!published) {
+				published = publisher.publish(engine);
 			}
+			unpublished = !published;
 		}
 	}
 
@@ -193,206 +305,313 @@ public class RunFrame extends JFrame implements Runnable {
 	}
 	
 	public GameCell[] getNeighbours(GameCell cell) {
-		GameCell[] temp = new GameCell[8];
-		int row = cell.getRow();
-		int col = cell.getCol();
-
-		// top-left row-1,col-1
-		temp[0] = cells[getTopRow(row - 1)][getLeftCol(col - 1)];
-		
-		// left row,col-1
-		temp[7] = cells[row][getLeftCol(col - 1)];
-		
-		// bottom left row+1,col-1
-		temp[6] = cells[getBottomRow(row + 1)][getLeftCol(col - 1)];
-		
-		// bottom row+1,col
-		temp[5] = cells[getBottomRow(row + 1)][col];
-
-		// bottom right row+1,col+1
-		temp[4] = cells[getBottomRow(row + 1)][getRightCol(col + 1)];
-
-		// right row,col+1
-		temp[3] = cells[row][getRightCol(col + 1)];
-
-		// top-right row-1,col+1
-		temp[2] = cells[getTopRow(row - 1)][getRightCol(col + 1)];
-
-		// top row-1, col
-		temp[1] = cells[getTopRow(row - 1)][col];
+		GameCell[][] cells = getGameCellArray();
+		if (neighbourTable == null) {
+			// 32 bytes a cell, so only built for the GameCell view
+			neighbourTable = new NeighbourTable(rows, columns);
+		}
+		GameCell[] temp = new GameCell[NeighbourTable.NEIGHBOURS];
+		int index = cell.getRow() * columns + cell.getCol();
+
+		// top-left, top, top-right, right, bottom-right, bottom, bottom-left,
+		// left
+		for (int n = 0; n < temp.length; n++) {
+			int neighbour = neighbourTable.get(index, n);
+			temp[n] = cells[neighbour / columns][neighbour % columns];
+		}
 
 		return temp;
 	}
 	
-	private int getLeftCol(int neighbourCol) {
-		return neighbourCol < 0 ? (columns-1) : neighbourCol;
-	}
-
-	private int getRightCol(int neighbourCol) {
-		return neighbourCol > (columns-1) ? 0 : neighbourCol;
+	// copy the engine state into the cells, marking the ones that just died
+	private void refreshCells() {
+		if (cells == null) {
+			return;
+		}
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				boolean alive = engine.isAlive(i, j);
+				if (!alive && cells[i][j].getStatus().equals(CellStatus.Alive)) {
+					cells[i][j].setResume(true);
+				}
+				cells[i][j].setStatus(alive ? CellStatus.Alive : CellStatus.Dead);
+			}
+		}
 	}
 
-	private int getTopRow(int neighbourRow) {
-		return neighbourRow < 0 ? (rows - 1) : neighbourRow;
+	// pause the simulation after the generation it is computing
+	public void waitThread() {
+		scheduler.pause();
 	}
 
-	private int getBottomRow(int neighbourRow) {
-		return neighbourRow > (rows - 1) ? 0 : neighbourRow;
-	}
-	
-	// set the status of current thread to wait
-	public void waitThread() {
-		waitFlag = true;
+	// run the simulation until paused
+	public void resume() {
+		scheduler.start();
 	}
 
-	// resume the waiting thread
-	public synchronized void resume() {
-		waitFlag = false;
-		notifyAll();
+	// pause the simulation and wait for the generation it is computing, so
+	// the board can be changed
+	private void pauseSimulation() {
+		if (scheduler != null && !scheduler.pauseAndWait(1, TimeUnit.MINUTES)) {
+			System.err.println("Simulation did not pause in time");
+		}
 	}
 
 	// clear the panel
 	public void clear() {
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				cells[i][j].setStatus(CellStatus.Dead);
-				cells[i][j].setResume(false);
+		pauseSimulation();
+		engine.clear();
+		if (cells != null) {
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					cells[i][j].setStatus(CellStatus.Dead);
+					cells[i][j].setResume(false);
+				}
 			}
 		}
+		canvas.clearTrail();
 		repaint();
 	}
 
 	// set a random pattern
 	public void random() {
 		this.clear();
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				CellStatus c = getRandomStatus();
-				cells[i][j].setStatus(c);
-			}
-		}
+		Patterns.random(engine, rows, columns, 0.2, random);
+		canvas.render();
 		repaint();
 	}
 
 	// set a pattern of Gosper Glider Gun
 	public void gosperGliderGun() {
-		this.clear();
-
-		// the first row of this pattern in the window
-		int offsetRow = 10;
+		placeCentred(Patterns.GOSPER_GLIDER_GUN);
+	}
 
-		// the first col of this pattern in the window
-		int offsetCol = 10;
+	// set a pattern of Acorn
+	public void acorn() {
+		placeCentred(Patterns.ACORN);
+	}
 
-		boolean[][] array = new boolean[9][36];
+	// clear the board and put a built-in pattern in its middle, unless it
+	// is too big for the board
+	private void placeCentred(String[] picture) {
+		this.clear();
+		try {
+			Patterns.placeCentred(engine, picture, rows, columns);
+		} catch (IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+		}
+		canvas.render();
+		repaint();
+	}
 
-		for (int i = 0; i < array.length; i++) {
-			for (int j = 0; j < array[i].length; j++) {
-				array[i][j] = false;
-			}
+	// load a .rle, .cells or .mc file chosen by the user
+	public void openFile() {
+		JFileChooser chooser = patternChooser();
+		if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
 		}
-		array[0][24] = true;
-		array[1][22] = true;
-		array[1][24] = true;
-		array[2][12] = true;
-		array[2][13] = true;
-		array[2][20] = true;
-		array[2][21] = true;
-		array[2][34] = true;
-		array[2][35] = true;
-		array[3][11] = true;
-		array[3][15] = true;
-		array[3][20] = true;
-		array[3][21] = true;
-		array[3][34] = true;
-		array[3][35] = true;
-		array[4][0] = true;
-		array[4][1] = true;
-		array[4][10] = true;
-		array[4][16] = true;
-		array[4][20] = true;
-		array[4][21] = true;
-		array[5][0] = true;
-		array[5][1] = true;
-		array[5][10] = true;
-		array[5][14] = true;
-		array[5][16] = true;
-		array[5][17] = true;
-		array[5][22] = true;
-		array[5][24] = true;
-		array[6][10] = true;
-		array[6][16] = true;
-		array[6][24] = true;
-		array[7][11] = true;
-		array[7][15] = true;
-		array[8][12] = true;
-		array[8][13] = true;
-
-		for (int i = offsetRow; i < array.length + offsetRow; i++) {
-			for (int j = offsetCol; j < array[0].length + offsetCol; j++) {
-				if (array[i - offsetRow][j - offsetCol]) {
-					cells[i][j].setStatus(CellStatus.Alive);
-				} else {
-					continue;
-				}
-			}
+		if (isCheckpoint(chooser.getSelectedFile().toPath())) {
+			restoreCheckpoint(chooser.getSelectedFile().toPath());
+			return;
 		}
+		this.clear();
+		try {
+			Patterns.load(chooser.getSelectedFile().toPath(), engine, rows,
+					columns);
+		} catch (IOException e) {
+			this.clear();
+			JOptionPane.showMessageDialog(this, "Cannot open pattern: "
+					+ e.getMessage());
+		} catch (IllegalArgumentException e) {
+			this.clear();
+			JOptionPane.showMessageDialog(this, e.getMessage());
+		}
+		canvas.render();
 		repaint();
 	}
 
-	// set a pattern of Acorn
-	public void acorn() {
-		this.clear();
+	// write the live cells in the format of the chosen file's extension
+	public void saveFile() {
+		// the board has to stand still while it is written
+		if (jbtn1.getText().equalsIgnoreCase("pause")) {
+			jbtn1.doClick();
+		}
+		pauseSimulation();
+		JFileChooser chooser = patternChooser();
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		if (isCheckpoint(chooser.getSelectedFile().toPath())) {
+			saveCheckpoint(chooser.getSelectedFile().toPath());
+			return;
+		}
+		try {
+			Patterns.save(chooser.getSelectedFile().toPath(), engine,
+					Patterns.findBounds(engine, rows, columns), null);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this, "Cannot save pattern: "
+					+ e.getMessage());
+		} catch (IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+		}
+	}
 
-		// the first row of this pattern in the window
-		int offsetRow = 30;
+	private JFileChooser patternChooser() {
+		JFileChooser chooser = new JFileChooser();
+		chooser.addChoosableFileFilter(new FileNameExtensionFilter(
+				"Checkpoints (.ckpt)", "ckpt"));
+		chooser.setFileFilter(new FileNameExtensionFilter(
+				"Patterns (.rle, .cells, .mc)", "rle", "cells", "mc"));
+		return chooser;
+	}
 
-		// the first col of this pattern in the window
-		int offsetCol = 60;
+	private static boolean isCheckpoint(Path file) {
+		return file.getFileName().toString().toLowerCase().endsWith(".ckpt");
+	}
 
-		boolean[][] array = new boolean[3][7];
+	// write the whole board and its generation, as BatchRunner --checkpoint
+	// does, so a run can go on here or in a batch
+	private void saveCheckpoint(Path file) {
+		BoardSnapshot snapshot = new BoardSnapshot(rows, columns);
+		snapshot.copyCells(engine);
+		try {
+			Checkpoint.write(snapshot, engine.getRule(), getCount(), file, true);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this, "Cannot save checkpoint: "
+					+ e.getMessage());
+		}
+	}
 
-		for (int i = 0; i < array.length; i++) {
-			for (int j = 0; j < array[i].length; j++) {
-				array[i][j] = false;
+	// go on from a checkpoint of a board of the same size and rule
+	private void restoreCheckpoint(Path file) {
+		this.clear();
+		try {
+			Checkpoint saved = Checkpoint.open(file);
+			if (saved.getRows() != rows || saved.getColumns() != columns
+					|| !saved.getRule().equals(engine.getRule())) {
+				throw new IllegalArgumentException("The checkpoint is a "
+						+ saved.getRows() + "x" + saved.getColumns() + " "
+						+ saved.getRule() + " board, this window shows "
+						+ rows + "x" + columns + " " + engine.getRule());
 			}
+			saved.restore(engine);
+			engine.setGeneration(saved.getGeneration());
+			setCount((int) Math.min(saved.getGeneration(), Integer.MAX_VALUE));
+			countLabel.setText(countLabelName + getCount());
+		} catch (IOException e) {
+			this.clear();
+			JOptionPane.showMessageDialog(this, "Cannot restore checkpoint: "
+					+ e.getMessage());
+		} catch (IllegalArgumentException e) {
+			this.clear();
+			JOptionPane.showMessageDialog(this, e.getMessage());
 		}
+		refreshCells();
+		canvas.render();
+		repaint();
+	}
 
-		array[0][1] = true;
-		array[1][3] = true;
-		array[2][0] = true;
-		array[2][1] = true;
-		array[2][4] = true;
-		array[2][5] = true;
-		array[2][6] = true;
-
-		for (int i = offsetRow; i < array.length + offsetRow; i++) {
-			for (int j = offsetCol; j < array[0].length + offsetCol; j++) {
-				if (array[i - offsetRow][j - offsetCol]) {
-					cells[i][j].setStatus(CellStatus.Alive);
-				} else {
-					continue;
+	// record the generations to a .gif file or a directory of PNGs, or
+	// stop recording
+	public void toggleRecording() {
+		final FrameRecorder frames = recorder;
+		if (frames != null) {
+			recorder = null;
+			jbtn8.setText("Record");
+			jbtn8.setEnabled(false);
+			// encoding what is still queued takes a while, so not on the EDT
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					String message;
+					try {
+						frames.close();
+						message = frames.getWritten() + " frames written to "
+								+ frames.getTarget();
+					} catch (IOException e) {
+						message = "Recording failed: " + e.getMessage();
+					}
+					final String result = message;
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							jbtn8.setEnabled(true);
+							JOptionPane.showMessageDialog(rf, result);
+						}
+					});
 				}
+			}, "frame-recorder-close").start();
+			return;
+		}
+		JFileChooser chooser = new JFileChooser();
+		chooser.setDialogTitle("Record to a .gif file or a directory of PNGs");
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		try {
+			// drop or slow, the window never waits for the encoders
+			FrameRecorder.Policy policy = FrameRecorder.Policy.valueOf(System
+					.getProperty("life.record", "drop").toUpperCase());
+			if (policy == FrameRecorder.Policy.BLOCK) {
+				policy = FrameRecorder.Policy.SLOW;
 			}
+			FrameRecorder started = new FrameRecorder(chooser.getSelectedFile()
+					.toPath(), rows, columns, FrameRecorder.defaultScale(rows,
+					columns), policy);
+			started.setDelay(getThreadSpeed());
+			recorder = started;
+			jbtn8.setText("Stop Recording");
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this, "Cannot record: "
+					+ e.getMessage());
+		} catch (IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
 		}
-		repaint();
 	}
 
-	private CellStatus getRandomStatus() {
-		Random r = new Random();
-		if (r.nextInt(100) % 5 == 0) {
-			return CellStatus.Alive;
+	// go back one generation through the history
+	public void stepBack() {
+		if (generations == null) {
+			JOptionPane.showMessageDialog(this, "There is no history of "
+					+ "this board; -Dlife.history=<MB> keeps one on any engine");
+			return;
+		}
+		// the count and the board only hold still once paused
+		pauseSimulation();
+		int now = getCount();
+		if (generations.getNewestGeneration() < now) {
+			generations.record(now, engine);
+		}
+		if (now == 0 || !seek(now - 1)) {
+			JOptionPane.showMessageDialog(this,
+					"No earlier generation in the history");
 		}
-		return CellStatus.Dead;
+	}
+
+	// show a generation from the history; the simulation goes on from there
+	// when it is started or stepped again
+	private boolean seek(long generation) {
+		pauseSimulation();
+		long found = generations.seek(generation, engine);
+		if (found < 0) {
+			return false;
+		}
+		setCount((int) found);
+		refreshCells();
+		canvas.render();
+		repaint();
+		return true;
 	}
 
 	// slow down the thread
 	public void slowDown() {
+		this.generationsPerSecond = 0;
 		this.threadSpeed += speedStep;
 	}
 
 	// speed up the thread
 	public void speedUp() {
+		this.generationsPerSecond = 0;
 		if (this.threadSpeed >= speedStep) {
 			this.threadSpeed -= speedStep;
 		} else {
@@ -400,19 +619,15 @@ public class RunFrame extends JFrame implements Runnable {
 		}
 	}
 
-	public void pause() throws InterruptedException {
-		Thread.sleep(this.threadSpeed);
+	private long getStepNanos() {
+		if (generationsPerSecond > 0) {
+			return (long) (1e9 / generationsPerSecond);
+		}
+		return threadSpeed * 1000000L;
 	}
 
 	public boolean isAllDead() {
-		for (int i = 0; i < cells.length; i++) {
-			for (int j = 0; j < cells[i].length; j++) {
-				if ((cells[i][j].getStatus()).equals(CellStatus.Alive)) {
-					return false;
-				}
-			}
-		}
-		return true;
+		return engine.getPopulation() == 0;
 	}
 
 	public int getThreadSpeed() {
@@ -420,9 +635,58 @@ public class RunFrame extends JFrame implements Runnable {
 	}
 
 	public void setThreadSpeed(int threadSpeed) {
+		this.generationsPerSecond = 0;
 		this.threadSpeed = threadSpeed;
 	}
 
+	public double getGenerationsPerSecond() {
+		return generationsPerSecond;
+	}
+
+	// run at a fixed rate instead of waiting getThreadSpeed() ms per
+	// generation; 0 goes back to the thread speed
+	public void setGenerationsPerSecond(double generationsPerSecond) {
+		if (generationsPerSecond < 0) {
+			throw new IllegalArgumentException("Bad rate "
+					+ generationsPerSecond);
+		}
+		this.generationsPerSecond = generationsPerSecond;
+	}
+
+	class RenderListener implements ActionListener {
+		private int shownCount = -1;
+		private long sampledAt = System.nanoTime();
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			FrameEvent event = new FrameEvent();
+			event.begin();
+			long start = System.nanoTime();
+			if (canvas.renderFrame()) {
+				metrics.recordFrame(System.nanoTime() - start);
+				if (event.shouldCommit()) {
+					event.generation = canvas.getDisplayedGeneration();
+					event.commit();
+				}
+			}
+			if (unpublished && scheduler.isIdle()) {
+				// nothing steps the engine until this thread sends a command
+				unpublished = false;
+				canvas.render();
+			}
+			if (start - sampledAt >= 500000000L) {
+				sampledAt = start;
+				metrics.sample();
+				canvas.setOverlay(statsBox.isSelected() ? describeStats() : null);
+			}
+			int now = getCount();
+			if (now != shownCount) {
+				shownCount = now;
+				countLabel.setText(countLabelName + now);
+			}
+		}
+	}
+
 	class BtnActionListener implements ActionListener {
 		@SuppressWarnings("unchecked")
 		@Override
@@ -432,21 +696,10 @@ public class RunFrame extends JFrame implements Runnable {
 						|| jbtn1.getText().equalsIgnoreCase("resume")) {
 
 					if (!isAllDead()) {
-
 						jbtn1.setText("Pause");
 						jbtn2.setEnabled(false);
-
-						if (t != null && t.isAlive()) {
-
-							stepWaitFlag = false;
-							stepSwitchOn = false;
-
-							resume();
-
-						} else {
-							t = new Thread(rf);
-							t.start();
-						}
+						jbtn5.setEnabled(false);
+						resume();
 					} else {
 						JOptionPane.showMessageDialog(rf,
 								"Please choose a pattern!");
@@ -454,18 +707,23 @@ public class RunFrame extends JFrame implements Runnable {
 				} else if (jbtn1.getText().equalsIgnoreCase("pause")) {
 					jbtn1.setText("Resume");
 					jbtn2.setEnabled(true);
+					jbtn5.setEnabled(true);
 					waitThread();
 				}
+			} else if (e.getSource() == jbtn5) {
+				stepBack();
 			} else if (e.getSource() == jbtn2) {
-				if (!isAllDead()) {
-					//customized cells need press "Step" twice if there is no resume();
-					resume();
+				if (generations != null) {
+					// let a step in progress finish before comparing counts
+					pauseSimulation();
+				}
+				if (generations != null
+						&& getCount() < generations.getNewestGeneration()) {
+					// replay what was rewound instead of computing it again
+					seek(getCount() + 1);
+				} else if (!isAllDead()) {
 					jbtn1.setText("Start");
-					if (t == null || !t.isAlive()) {
-						t = new Thread(rf);
-						t.start();
-					}
-					stepRun();
+					scheduler.step();
 				} else {
 					JOptionPane.showMessageDialog(rf,
 							"Please choose a pattern!");
@@ -473,6 +731,10 @@ public class RunFrame extends JFrame implements Runnable {
 			} else if (e.getSource() == jbtn3) {
 				reset();
 				clear();
+			} else if (e.getSource() == jbtn8) {
+				toggleRecording();
+			} else if (e.getSource() == jbtn4) {
+				saveFile();
 			} else if (e.getSource() == jbtn6) {
 				slowDown();
 				jlb.setText("Speed: " + getThreadSpeed() + " ms");
@@ -491,7 +753,10 @@ public class RunFrame extends JFrame implements Runnable {
 					} else if (jcb.getSelectedItem().toString()
 							.equals(patterns[3])) {
 						random();
-					} 
+					} else if (jcb.getSelectedItem().toString()
+							.equals(patterns[4])) {
+						openFile();
+					}
 				}else{
 					reset();
 					clear();
@@ -501,21 +766,8 @@ public class RunFrame extends JFrame implements Runnable {
 		}
 	}
 
-	private void stepRun() {
-		stepSwitchOn = true;
-		if (!stepWaitFlag) {
-			stepWaitFlag = true;
-		} else {
-			stepWaitFlag = false;
-		}
-		resume();
-//		System.out.println("steprun: " + this.waitFlag + ", " + this.stepWaitFlag);
-	}
-
 	private void reset() {
-		if (jbtn1.getText().equalsIgnoreCase("pause")) {
-			waitThread();
-		}
+		pauseSimulation();
 		resetSpeed();
 		jcb.setSelectedIndex(0);
 		resetButtons();
@@ -529,18 +781,17 @@ public class RunFrame extends JFrame implements Runnable {
 	
 	private void newPattern() {
 		clear();
-		if (jbtn1.getText().equalsIgnoreCase("pause")) {
-			waitThread();
-		}
 		resetButtons();
 	}
 	
 	private void resetButtons (){
 		setCount(0);
+		if (generations != null) {
+			generations.clear();
+		}
 		countLabel.setText(countLabelName + getCount());
-		stepWaitFlag = false;
-		stepSwitchOn = false;
 		jbtn2.setEnabled(true);
+		jbtn5.setEnabled(true);
 		jbtn1.setText("Start");
 	}
 
@@ -582,10 +833,61 @@ public class RunFrame extends JFrame implements Runnable {
 		this.columns = columns;
 	}
 
+	// GameCell views of the engine, only created when someone asks for them
 	public GameCell[][] getGameCellArray() {
+		if (cells == null) {
+			cells = new GameCell[rows][columns];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					cells[i][j] = new GameCell(i, j);
+					cells[i][j].setStatus(CellStatus.Dead);
+					cells[i][j].setEngine(engine);
+				}
+			}
+		}
+		refreshCells();
 		return cells;
 	}
 
+	public LifeCanvas getCanvas() {
+		return canvas;
+	}
+
+	public LifeEngine getEngine() {
+		return engine;
+	}
+
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+	public PopulationHistory getPopulationHistory() {
+		return history;
+	}
+
+	// the metrics and the population trend for the overlay
+	private String[] describeStats() {
+		String[] lines = metrics.describe();
+		String[] stats = Arrays.copyOf(lines, lines.length + 1);
+		stats[lines.length] = history.describe();
+		if (generations != null) {
+			stats = Arrays.copyOf(stats, stats.length + 1);
+			stats[stats.length - 1] = generations.describe();
+		}
+		FrameRecorder frames = recorder;
+		if (frames != null) {
+			stats = Arrays.copyOf(stats, stats.length + 1);
+			stats[stats.length - 1] = frames.describe();
+		}
+		long period = settledPeriod;
+		if (period > 0) {
+			stats = Arrays.copyOf(stats, stats.length + 1);
+			stats[stats.length - 1] = (period == 1 ? "still life"
+					: "period " + period) + " since generation " + settledStart;
+		}
+		return stats;
+	}
+
 	public int getCount() {
 		return count;
 	}
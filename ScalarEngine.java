@@ -0,0 +1,191 @@
+/**
+ * The original per-cell algorithm without Swing: one byte per cell, its
+ * neighbours looked up through a precomputed NeighbourTable and the next
+ * state read from the rule's transition table. It is the baseline the faster
+ * engines are measured against, and the one engine that also runs
+ * multi-state Generations rules and Larger than Life ranges.
+ */
+public class ScalarEngine implements LifeEngine {
+	private final int rows;
+	private final int columns;
+	private final int[] neighbours;
+	private final Rule rule;
+	private final byte[] table;
+	private final int stride;
+
+	// 1 for the live state, 0 for dead and dying states
+	private final byte[] live = new byte[256];
+
+	// Larger than Life window sums, unused for range 1
+	private final int[] rowSums;
+	private final int[] counts;
+
+	private byte[] cells;
+	private byte[] next;
+	private long generation;
+	// cells in the live state, counted as the next generation is written
+	private long population;
+
+	public ScalarEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public ScalarEngine(int rows, int columns, Rule rule) {
+		if (rows < 1 || columns < 1) {
+			throw new IllegalArgumentException("Board must be at least 1x1: "
+					+ rows + "x" + columns);
+		}
+		int side = 2 * rule.getRange() + 1;
+		if (rule.getRange() > 1 && (rows < side || columns < side)) {
+			throw new IllegalArgumentException("Board " + rows + "x" + columns
+					+ " is smaller than the neighbourhood of " + rule);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.rule = rule;
+		this.table = rule.getTable();
+		this.stride = rule.getMaxCount() + 1;
+		this.live[1] = 1;
+		this.neighbours = new NeighbourTable(rows, columns).getIndices();
+		if (rule.getRange() > 1) {
+			this.rowSums = new int[rows * columns];
+			this.counts = new int[rows * columns];
+		} else {
+			this.rowSums = null;
+			this.counts = null;
+		}
+		this.cells = new byte[rows * columns];
+		this.next = new byte[rows * columns];
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		return cells[row * columns + col] == 1;
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		setCell(row * columns + col, alive ? 1 : 0);
+	}
+
+	private void setCell(int index, int state) {
+		population += live[state] - live[cells[index] & 0xFF];
+		cells[index] = (byte) state;
+	}
+
+	// 0 dead, 1 alive, 2.. dying in Generations rules
+	public int getState(int row, int col) {
+		return cells[row * columns + col] & 0xFF;
+	}
+
+	public void setState(int row, int col, int state) {
+		if (state < 0 || state >= rule.getStates()) {
+			throw new IllegalArgumentException("State " + state
+					+ " does not exist in " + rule);
+		}
+		setCell(row * columns + col, state);
+	}
+
+	@Override
+	public void step() {
+		if (rule.getRange() > 1) {
+			population = stepLargerThanLife();
+		} else {
+			population = stepMoore();
+		}
+		byte[] temp = cells;
+		cells = next;
+		next = temp;
+		generation++;
+	}
+
+	// both steps return the population of the next generation
+	private long stepMoore() {
+		byte[] cur = cells;
+		byte[] alive = live;
+		int[] nb = neighbours;
+		long population = 0;
+		for (int i = 0, n = 0; i < cur.length; i++, n += NeighbourTable.NEIGHBOURS) {
+			int aliveNeighbours = alive[cur[nb[n]] & 0xFF]
+					+ alive[cur[nb[n + 1]] & 0xFF] + alive[cur[nb[n + 2]] & 0xFF]
+					+ alive[cur[nb[n + 3]] & 0xFF] + alive[cur[nb[n + 4]] & 0xFF]
+					+ alive[cur[nb[n + 5]] & 0xFF] + alive[cur[nb[n + 6]] & 0xFF]
+					+ alive[cur[nb[n + 7]] & 0xFF];
+			byte state = table[(cur[i] & 0xFF) * stride + aliveNeighbours];
+			next[i] = state;
+			population += alive[state & 0xFF];
+		}
+		return population;
+	}
+
+	// box sums over the (2r+1)^2 window: a sliding sum along every row,
+	// then a sliding sum of those down every column
+	private long stepLargerThanLife() {
+		byte[] cur = cells;
+		int r = rule.getRange();
+
+		for (int i = 0; i < rows; i++) {
+			int base = i * columns;
+			int sum = 0;
+			for (int d = -r; d <= r; d++) {
+				sum += live[cur[base + Math.floorMod(d, columns)] & 0xFF];
+			}
+			for (int j = 0; j < columns; j++) {
+				rowSums[base + j] = sum;
+				int enter = base + Math.floorMod(j + r + 1, columns);
+				int leave = base + Math.floorMod(j - r, columns);
+				sum += live[cur[enter] & 0xFF] - live[cur[leave] & 0xFF];
+			}
+		}
+
+		for (int j = 0; j < columns; j++) {
+			int sum = 0;
+			for (int d = -r; d <= r; d++) {
+				sum += rowSums[Math.floorMod(d, rows) * columns + j];
+			}
+			for (int i = 0; i < rows; i++) {
+				counts[i * columns + j] = sum;
+				sum += rowSums[Math.floorMod(i + r + 1, rows) * columns + j]
+						- rowSums[Math.floorMod(i - r, rows) * columns + j];
+			}
+		}
+
+		int centre = rule.isCentreIncluded() ? 0 : 1;
+		long population = 0;
+		for (int i = 0; i < cur.length; i++) {
+			int state = cur[i] & 0xFF;
+			next[i] = table[state * stride + counts[i] - centre * live[state]];
+			population += live[next[i] & 0xFF];
+		}
+		return population;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = 0;
+		}
+		population = 0;
+		generation = 0;
+	}
+
+	@Override
+	public long getPopulation() {
+		return population;
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
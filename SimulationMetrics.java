@@ -0,0 +1,200 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the simulation loop and the renderer.
+ * The simulation thread records the step time and the tick time (step plus
+ * publishing the frame) of every generation, the render loop records how
+ * long drawing each frame took. Everything is lock-free and allocation-free
+ * to record; register() exposes it as a JMX MBean, and describe() formats it
+ * for the on-screen overlay.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+	public static final String OBJECT_NAME = "life:type=Simulation";
+
+	private final LongAdder generations = new LongAdder();
+	private final LongAdder cellUpdates = new LongAdder();
+	private final LongAdder frames = new LongAdder();
+	private final LatencyHistogram step = new LatencyHistogram();
+	private final LatencyHistogram paint = new LatencyHistogram();
+	private final LatencyHistogram tick = new LatencyHistogram();
+
+	// counters at the last sample(), for the rates
+	private long sampledAt = System.nanoTime();
+	private long sampledGenerations;
+	private long sampledCellUpdates;
+	private long sampledFrames;
+	private volatile double generationsPerSecond;
+	private volatile double cellUpdatesPerSecond;
+	private volatile double framesPerSecond;
+
+	// called by the simulation thread after each generation of cells cells
+	public void recordGeneration(long stepNanos, long tickNanos, long cells) {
+		generations.increment();
+		cellUpdates.add(cells);
+		step.record(stepNanos);
+		tick.record(tickNanos);
+	}
+
+	// called by the render loop after drawing a frame
+	public void recordFrame(long paintNanos) {
+		frames.increment();
+		paint.record(paintNanos);
+	}
+
+	// work out the rates since the last call; called about once a second by
+	// whoever shows them
+	public synchronized void sample() {
+		long now = System.nanoTime();
+		double seconds = (now - sampledAt) / 1e9;
+		if (seconds <= 0) {
+			return;
+		}
+		long g = generations.sum();
+		long c = cellUpdates.sum();
+		long f = frames.sum();
+		generationsPerSecond = (g - sampledGenerations) / seconds;
+		cellUpdatesPerSecond = (c - sampledCellUpdates) / seconds;
+		framesPerSecond = (f - sampledFrames) / seconds;
+		sampledAt = now;
+		sampledGenerations = g;
+		sampledCellUpdates = c;
+		sampledFrames = f;
+	}
+
+	// make the metrics visible to jconsole and other JMX clients
+	public void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(this, name);
+	}
+
+	// a few lines for the overlay
+	public String[] describe() {
+		return new String[] {
+				String.format("%,.0f gen/s  %,.0f cells/s  %.0f fps",
+						generationsPerSecond, cellUpdatesPerSecond,
+						framesPerSecond),
+				String.format("step p50 %.3f  p99 %.3f  max %.3f ms",
+						getStepMillisP50(), getStepMillisP99(),
+						getStepMillisMax()),
+				String.format("tick p50 %.3f  p99 %.3f  max %.3f ms",
+						getTickMillisP50(), getTickMillisP99(),
+						getTickMillisMax()),
+				String.format("paint p50 %.3f  p99 %.3f  max %.3f ms",
+						getPaintMillisP50(), getPaintMillisP99(),
+						getPaintMillisMax()) };
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	@Override
+	public long getGenerations() {
+		return generations.sum();
+	}
+
+	@Override
+	public long getCellUpdates() {
+		return cellUpdates.sum();
+	}
+
+	@Override
+	public long getFrames() {
+		return frames.sum();
+	}
+
+	@Override
+	public double getGenerationsPerSecond() {
+		return generationsPerSecond;
+	}
+
+	@Override
+	public double getCellUpdatesPerSecond() {
+		return cellUpdatesPerSecond;
+	}
+
+	@Override
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	@Override
+	public double getStepMillisP50() {
+		return millis(step.getPercentile(50));
+	}
+
+	@Override
+	public double getStepMillisP99() {
+		return millis(step.getPercentile(99));
+	}
+
+	@Override
+	public double getStepMillisMax() {
+		return millis(step.getMax());
+	}
+
+	@Override
+	public double getPaintMillisP50() {
+		return millis(paint.getPercentile(50));
+	}
+
+	@Override
+	public double getPaintMillisP99() {
+		return millis(paint.getPercentile(99));
+	}
+
+	@Override
+	public double getPaintMillisMax() {
+		return millis(paint.getMax());
+	}
+
+	@Override
+	public double getTickMillisP50() {
+		return millis(tick.getPercentile(50));
+	}
+
+	@Override
+	public double getTickMillisP99() {
+		return millis(tick.getPercentile(99));
+	}
+
+	@Override
+	public double getTickMillisMax() {
+		return millis(tick.getMax());
+	}
+
+	@Override
+	public synchronized void reset() {
+		generations.reset();
+		cellUpdates.reset();
+		frames.reset();
+		step.reset();
+		paint.reset();
+		tick.reset();
+		sampledAt = System.nanoTime();
+		sampledGenerations = 0;
+		sampledCellUpdates = 0;
+		sampledFrames = 0;
+	}
+
+	public LatencyHistogram getStepHistogram() {
+		return step;
+	}
+
+	public LatencyHistogram getPaintHistogram() {
+		return paint;
+	}
+
+	public LatencyHistogram getTickHistogram() {
+		return tick;
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * What SimulationMetrics shows over JMX, under life:type=Simulation. Times
+ * are in milliseconds; rates are measured over the last sample() interval.
+ */
+public interface SimulationMetricsMBean {
+
+	public long getGenerations();
+
+	public long getCellUpdates();
+
+	public long getFrames();
+
+	public double getGenerationsPerSecond();
+
+	public double getCellUpdatesPerSecond();
+
+	public double getFramesPerSecond();
+
+	public double getStepMillisP50();
+
+	public double getStepMillisP99();
+
+	public double getStepMillisMax();
+
+	public double getPaintMillisP50();
+
+	public double getPaintMillisP99();
+
+	public double getPaintMillisMax();
+
+	public double getTickMillisP50();
+
+	public double getTickMillisP99();
+
+	public double getTickMillisMax();
+
+	// start the histograms and counters over
+	public void reset();
+}
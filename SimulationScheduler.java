@@ -0,0 +1,296 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a simulation on its own thread in one of a few explicit states:
+ *
+ *   PAUSED     parked until a command arrives
+ *   RUNNING    stepping until paused, paced by Task.getStepNanos()
+ *   STEPPING   a number of single steps asked for with step(), unpaced
+ *   RUN_N      a given number of generations, paced
+ *   RUN_UNTIL  until a condition holds, paced
+ *   STOPPED    the thread has ended
+ *
+ * Other threads never touch the state. They put commands on a lock-free
+ * queue and unpark the simulation thread, which takes them between two
+ * generations, so a command waits at most for the step being computed and
+ * no lock is held while computing. Pacing waits park with a timeout and
+ * wake up for commands too. Steps asked for in quick succession add up
+ * instead of getting lost.
+ *
+ * Whenever it stops stepping, paused or by itself because a count ran out,
+ * a condition held or the task had nothing left to do, the scheduler calls
+ * Task.idle() and then tells the listener. A step that throws pauses the
+ * scheduler too, without idle(), and getError() holds what it threw until
+ * stepping starts again.
+ */
+public class SimulationScheduler {
+	public enum State {
+		PAUSED, RUNNING, STEPPING, RUN_N, RUN_UNTIL, STOPPED
+	}
+
+	// the work done for one generation, called on the simulation thread
+	public interface Task {
+		// compute one generation and hand it on
+		public void step();
+
+		// false once stepping makes no sense, e.g. on an empty board
+		public boolean canStep();
+
+		// nanoseconds between generations when running, 0 for flat out
+		public long getStepNanos();
+
+		// the scheduler went back to PAUSED
+		public void idle();
+	}
+
+	public interface Condition {
+		public boolean reached();
+	}
+
+	// told about every change of state, on the simulation thread
+	public interface Listener {
+		public void stateChanged(State state);
+	}
+
+	private static final class Command {
+		final State state;
+		final long count;
+		final Condition until;
+
+		Command(State state, long count, Condition until) {
+			this.state = state;
+			this.count = count;
+			this.until = until;
+		}
+	}
+
+	private final Task task;
+	private final Queue<Command> commands = new ConcurrentLinkedQueue<Command>();
+	private final Thread thread;
+	// commands sent and commands carried out, equal when none is pending
+	private final AtomicLong sent = new AtomicLong();
+	private volatile long taken;
+	private volatile Listener listener;
+	// written by the simulation thread only
+	private volatile State state = State.PAUSED;
+	private volatile long generations;
+	// true while the simulation thread is inside Task.step()
+	private volatile boolean computing;
+	// what the step that stopped the last run threw, or null
+	private volatile Throwable error;
+
+	// owned by the simulation thread
+	private long remaining;
+	private Condition until;
+	private long nextStep;
+
+	public SimulationScheduler(Task task, String name) {
+		this.task = task;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// run until paused
+	public void start() {
+		send(new Command(State.RUNNING, 0, null));
+	}
+
+	public void pause() {
+		send(new Command(State.PAUSED, 0, null));
+	}
+
+	// one more generation, then pause; while running, pause after the next
+	public void step() {
+		send(new Command(State.STEPPING, 1, null));
+	}
+
+	// run n generations, then pause
+	public void runFor(long n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("Bad count " + n);
+		}
+		send(new Command(State.RUN_N, n, null));
+	}
+
+	// run until the condition holds, checked on the simulation thread after
+	// every generation
+	public void runUntil(Condition condition) {
+		if (condition == null) {
+			throw new IllegalArgumentException("No condition");
+		}
+		send(new Command(State.RUN_UNTIL, 0, condition));
+	}
+
+	// end the simulation thread after the step it is in
+	public void shutdown() {
+		send(new Command(State.STOPPED, 0, null));
+	}
+
+	private void send(Command command) {
+		sent.incrementAndGet();
+		commands.add(command);
+		LockSupport.unpark(thread);
+	}
+
+	// pause and wait until the simulation thread has finished its step, so
+	// the caller may change the board; false if that took longer than the
+	// timeout
+	public boolean pauseAndWait(long timeout, TimeUnit unit) {
+		pause();
+		return awaitIdle(timeout, unit);
+	}
+
+	// wait until the simulation thread has nothing to do
+	public boolean awaitIdle(long timeout, TimeUnit unit) {
+		if (Thread.currentThread() == thread) {
+			return true;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!isIdle()) {
+			if (System.nanoTime() - deadline > 0) {
+				return false;
+			}
+			LockSupport.parkNanos(50000L);
+		}
+		return true;
+	}
+
+	// stopped, or paused with no step being computed and no command waiting
+	public boolean isIdle() {
+		State now = state;
+		return now == State.STOPPED || (now == State.PAUSED && !computing
+				&& taken == sent.get());
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	// what Task.step() threw when it last paused the scheduler, null once
+	// stepping starts again
+	public Throwable getError() {
+		return error;
+	}
+
+	// generations stepped by this scheduler
+	public long getGenerations() {
+		return generations;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	private void loop() {
+		while (true) {
+			takeCommands();
+			State now = state;
+			if (now == State.STOPPED) {
+				return;
+			}
+			if (now == State.PAUSED) {
+				LockSupport.park(this);
+				continue;
+			}
+			if (now != State.STEPPING && !due()) {
+				continue;
+			}
+			if (!task.canStep()) {
+				stopStepping();
+				continue;
+			}
+			computing = true;
+			try {
+				task.step();
+			} catch (Throwable e) {
+				// the thread and its commands outlive a failed step
+				computing = false;
+				error = e;
+				setState(State.PAUSED);
+				continue;
+			}
+			computing = false;
+			generations++;
+			if ((now == State.STEPPING || now == State.RUN_N)
+					&& --remaining == 0) {
+				stopStepping();
+			} else if (now == State.RUN_UNTIL && until.reached()) {
+				stopStepping();
+			}
+		}
+	}
+
+	private void takeCommands() {
+		Command command;
+		while ((command = commands.poll()) != null) {
+			take(command);
+			taken++;
+		}
+	}
+
+	private void take(Command command) {
+		State from = state;
+		if (command.state == State.STEPPING && from == State.STEPPING) {
+			remaining += command.count;
+			return;
+		}
+		if (command.state == from && from != State.RUN_N
+				&& from != State.RUN_UNTIL) {
+			return;
+		}
+		remaining = command.count;
+		until = command.until;
+		if (from == State.PAUSED || from == State.STEPPING) {
+			// the first paced step is due at once
+			nextStep = System.nanoTime();
+		}
+		if (command.state == State.PAUSED) {
+			task.idle();
+		} else if (command.state != State.STOPPED) {
+			error = null;
+		}
+		setState(command.state);
+	}
+
+	// whether the next paced generation is due; if not, waits for it or for
+	// a command and returns false
+	private boolean due() {
+		long period = task.getStepNanos();
+		if (period <= 0) {
+			return true;
+		}
+		long now = System.nanoTime();
+		long delay = nextStep - now;
+		if (delay > 0) {
+			LockSupport.parkNanos(this, delay);
+			return false;
+		}
+		// steps are paced from when the previous one was due, so the time
+		// spent computing is not added on top, unless too far behind
+		nextStep = -delay > period ? now + period : nextStep + period;
+		return true;
+	}
+
+	private void stopStepping() {
+		task.idle();
+		setState(State.PAUSED);
+	}
+
+	private void setState(State next) {
+		state = next;
+		Listener l = listener;
+		if (l != null) {
+			l.stateChanged(next);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Unbounded universe that only stores the coordinates of live cells. Each
+ * generation visits the live cells and their neighbours, so the cost follows
+ * the population rather than the board area and an almost empty universe
+ * needs almost no memory. Coordinates are packed as (row << 32 | col) and
+ * wrap only at the int range.
+ */
+public class SparseEngine implements LifeEngine {
+	private final Rule rule;
+	// transition table, indexed by state * 9 + count
+	private final byte[] table;
+	private final boolean survivesAlone;
+
+	private LongHashSet live = new LongHashSet();
+	private LongHashSet nextLive = new LongHashSet();
+	private final LongIntHashMap counts = new LongIntHashMap();
+	private long generation;
+
+	public SparseEngine() {
+		this(Rule.CONWAY);
+	}
+
+	public SparseEngine(Rule rule) {
+		this.rule = rule.requireLifeLike(getClass().getName()).requireNoB0(
+				getClass().getName());
+		this.table = rule.getTable();
+		this.survivesAlone = (rule.getSurvivalMask() & 1) != 0;
+	}
+
+	static long key(int row, int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	static int row(long key) {
+		return (int) (key >> 32);
+	}
+
+	static int col(long key) {
+		return (int) key;
+	}
+
+	@Override
+	public boolean isAlive(int row, int col) {
+		return live.contains(key(row, col));
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		if (alive) {
+			live.add(key(row, col));
+		} else {
+			live.remove(key(row, col));
+		}
+	}
+
+	@Override
+	public void step() {
+		int population = live.size();
+		counts.clear(population * 3);
+		for (int slot = live.nextSlot(0); slot >= 0; slot = live
+				.nextSlot(slot + 1)) {
+			long key = live.keyAt(slot);
+			int row = row(key);
+			int col = col(key);
+			counts.increment(key(row - 1, col - 1));
+			counts.increment(key(row - 1, col));
+			counts.increment(key(row - 1, col + 1));
+			counts.increment(key(row, col - 1));
+			counts.increment(key(row, col + 1));
+			counts.increment(key(row + 1, col - 1));
+			counts.increment(key(row + 1, col));
+			counts.increment(key(row + 1, col + 1));
+		}
+
+		nextLive.clear(population);
+		for (int slot = counts.nextSlot(0); slot >= 0; slot = counts
+				.nextSlot(slot + 1)) {
+			long key = counts.keyAt(slot);
+			int state = live.contains(key) ? 1 : 0;
+			if (table[state * 9 + counts.valueAt(slot)] != 0) {
+				nextLive.add(key);
+			}
+		}
+		// live cells without neighbours never made it into counts
+		if (survivesAlone) {
+			for (int slot = live.nextSlot(0); slot >= 0; slot = live
+					.nextSlot(slot + 1)) {
+				if (counts.get(live.keyAt(slot)) == 0) {
+					nextLive.add(live.keyAt(slot));
+				}
+			}
+		}
+
+		LongHashSet temp = live;
+		live = nextLive;
+		nextLive = temp;
+		generation++;
+	}
+
+	@Override
+	public void clear() {
+		live.clear(0);
+		nextLive.clear(0);
+		counts.clear(0);
+		generation = 0;
+	}
+
+	@Override
+	public long getPopulation() {
+		return live.size();
+	}
+
+	@Override
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void setGeneration(long generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public Rule getRule() {
+		return rule;
+	}
+}
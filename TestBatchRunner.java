@@ -0,0 +1,120 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class TestBatchRunner {
+
+	@Test
+	public void testStillLifeStopsEarly() {
+		BatchRunner runner = new BatchRunner(new BoardConfig(20, 20));
+		runner.setPattern(new String[] { "OO", "OO" });
+		runner.setUntilStable(true);
+		runner.run();
+		assertEquals(1, runner.getPeriod());
+		assertEquals(1, runner.getEngine().getGeneration());
+		assertEquals(4, runner.getEngine().getPopulation());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsPatternLargerThanTheBoard() {
+		new BatchRunner(new BoardConfig(20, 20))
+				.setPattern(Patterns.GOSPER_GLIDER_GUN);
+	}
+
+	@Test
+	public void testEstimateCountsCheckpointAndRecording() {
+		BatchRunner runner = new BatchRunner(new BoardConfig(1000, 1000));
+		long engine = runner.estimateBytes();
+		runner.setCheckpoint(Paths.get("board.ckpt"), 0, false);
+		long checkpoint = runner.estimateBytes();
+		assertTrue(checkpoint - engine >= 8 * 1000 * 16);
+		runner.setRecord(Paths.get("run.gif"), FrameRecorder.Policy.DROP);
+		// a pool of snapshots the size of the board
+		assertTrue(runner.estimateBytes() - checkpoint >= FrameRecorder
+				.DEFAULT_CAPACITY * 8 * 1000 * 16);
+	}
+
+	@Test
+	public void testBlinkerHasPeriodTwo() {
+		BatchRunner runner = new BatchRunner(new BoardConfig(20, 20));
+		runner.setPattern(new String[] { "OOO" });
+		runner.setUntilStable(true);
+		runner.run();
+		assertEquals(2, runner.getPeriod());
+		assertEquals(2, runner.getEngine().getGeneration());
+	}
+
+	@Test
+	public void testRunsToTheLimitAndPrints() {
+		BoardConfig config = new BoardConfig(64, 64);
+		config.setEngine("tiled");
+		BatchRunner runner = new BatchRunner(config);
+		runner.setPattern(Patterns.GLIDER);
+		runner.setGenerations(40);
+		runner.setUntilStable(true);
+		runner.run();
+		assertEquals(0, runner.getPeriod());
+		assertEquals(40, runner.getEngine().getGeneration());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		runner.report(out);
+		runner.printBoard(out);
+		out.flush();
+		String text = bytes.toString();
+		assertTrue(text, text.contains("population 5"));
+		assertTrue(text, text.contains("stopped: generation limit"));
+		// a glider is back in its own shape every 4 generations
+		assertTrue(text, text.contains(".O.\n..O\nOOO\n"));
+	}
+
+	@Test
+	public void testRandomFillIsRepeatable() {
+		long[] populations = new long[2];
+		for (int i = 0; i < 2; i++) {
+			BatchRunner runner = new BatchRunner(new BoardConfig(50, 80));
+			runner.setSeed(42);
+			runner.setDensity(0.3);
+			runner.setGenerations(0);
+			runner.run();
+			populations[i] = runner.getEngine().getPopulation();
+		}
+		assertEquals(populations[0], populations[1]);
+		assertTrue(populations[0] > 1000 && populations[0] < 1400);
+	}
+
+	@Test
+	public void testFastForwardJumpsWholePeriods() {
+		BoardConfig config = new BoardConfig(20, 20);
+		config.setEngine("scalar");
+		BatchRunner runner = new BatchRunner(config);
+		runner.setPattern(new String[] { "OOO" });
+		runner.setGenerations(1001);
+		runner.setFastForward(true);
+		runner.run();
+		assertEquals(2, runner.getPeriod());
+		assertEquals(0, runner.getCycleStart());
+		assertEquals(1001, runner.getGeneration());
+		assertEquals(3, runner.getEngine().getGeneration());
+		// an odd generation of the blinker stands upright
+		assertTrue(runner.getEngine().isAlive(8, 9));
+		assertTrue(runner.getEngine().isAlive(10, 9));
+	}
+
+	@Test
+	public void testCycleStartsAfterTheTransient() {
+		BatchRunner runner = new BatchRunner(new BoardConfig(20, 20));
+		// a pre-block turns into a block after one generation
+		runner.setPattern(new String[] { "OO", "O." });
+		runner.setUntilStable(true);
+		runner.run();
+		assertEquals(1, runner.getPeriod());
+		assertEquals(1, runner.getCycleStart());
+		assertEquals(4, runner.getEngine().getPopulation());
+	}
+}
@@ -0,0 +1,127 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestBoardConfig {
+
+	@Test
+	public void testDefaults() throws IOException {
+		BoardConfig config = BoardConfig.parse(new String[0]);
+		assertEquals(BoardConfig.DEFAULT_ROWS, config.getRows());
+		assertEquals(BoardConfig.DEFAULT_COLUMNS, config.getColumns());
+		assertEquals(Rule.CONWAY, config.getRule());
+	}
+
+	@Test
+	public void testSizesAreNotCapped() throws IOException {
+		BoardConfig config = BoardConfig.parse(new String[] { "10000",
+				"10_000", "--engine", "tiled", "--rule", "B36/S23" });
+		assertEquals(10000, config.getRows());
+		assertEquals(10000, config.getColumns());
+		assertEquals("tiled", config.getEngine());
+		assertEquals("B36/S23", config.getRule().toString());
+	}
+
+	@Test
+	public void testArgumentsOverrideTheFile() throws IOException {
+		BoardConfig config = new BoardConfig();
+		config.load(new ByteArrayInputStream(
+				"rows=2000\ncolumns=3000\nengine=blocklut\n".getBytes("UTF-8")));
+		assertEquals(2000, config.getRows());
+		assertEquals(3000, config.getColumns());
+		assertEquals("blocklut", config.getEngine());
+	}
+
+	@Test
+	public void testParallelismReachesTheEngine() throws IOException {
+		BoardConfig config = BoardConfig.parse(new String[] { "100", "100",
+				"--engine", "parallel", "--parallelism", "3" });
+		assertEquals(3, config.getParallelism());
+		ParallelEngine engine = (ParallelEngine) config.createEngine();
+		assertEquals(3, engine.getParallelism());
+		engine.shutdown();
+
+		config.load(new ByteArrayInputStream("parallelism=2\n"
+				.getBytes("UTF-8")));
+		assertEquals(2, config.getParallelism());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNoThreads() throws IOException {
+		BoardConfig.parse(new String[] { "--parallelism", "0" });
+	}
+
+	@Test
+	public void testEstimateGrowsWithTheBoard() {
+		BoardConfig small = new BoardConfig(100, 100);
+		BoardConfig large = new BoardConfig(10000, 10000);
+		// the history's fixed budget would hide the board's own growth
+		small.setHistoryBudget(0);
+		large.setHistoryBudget(0);
+		assertTrue(large.estimateBytes() > 1000 * small.estimateBytes());
+		// two generations and five view bitmaps of 10k x 10k bits
+		assertTrue(large.estimateBytes() >= 7 * 10000L * 10000 / 8);
+		large.checkMemory(large.estimateBytes());
+	}
+
+	@Test
+	public void testEstimateCountsTheHistory() {
+		BoardConfig with = new BoardConfig(4096, 4096);
+		BoardConfig without = new BoardConfig(4096, 4096);
+		without.setHistoryBudget(0);
+		// the budget and three copies of the board, one bit a cell
+		assertTrue(with.estimateBytes() - without.estimateBytes() >= with
+				.getHistoryBudget() + 3 * 4096L * 4096 / 8);
+		with.setHistoryBudget(1L << 30);
+		try {
+			with.checkMemory(without.estimateBytes() + (1L << 29));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// does not fit with a 1 GB history
+		}
+	}
+
+	@Test
+	public void testHistoryOnlyForEnginesThatTrackChanges() {
+		BoardConfig config = new BoardConfig(100, 100);
+		config.setEngine("counting");
+		assertEquals(GenerationHistory.DEFAULT_BUDGET, config
+				.getHistoryBudget());
+		// these would have to be copied whole every generation
+		for (String name : new String[] { "scalar", "blocklut", "sparse",
+				"hashlife" }) {
+			config.setEngine(name);
+			assertEquals(name, 0, config.getHistoryBudget());
+		}
+		config.setHistoryBudget(1 << 20);
+		assertEquals(1 << 20, config.getHistoryBudget());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefusesBoardThatDoesNotFit() {
+		BoardConfig config = new BoardConfig(10000, 10000);
+		config.checkMemory(config.estimateBytes() - 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRefusesArraysJavaCannotAllocate() {
+		BoardConfig config = new BoardConfig(1000000, 1000000);
+		config.setEngine("scalar");
+		config.estimateBytes();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsUnknownEngine() throws IOException {
+		BoardConfig.parse(new String[] { "--engine", "abacus" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsEmptyBoard() throws IOException {
+		BoardConfig.parse(new String[] { "0", "10" });
+	}
+}
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestCheckpoint {
+
+	@Test
+	public void testRoundTripRawAndCompressed() throws IOException {
+		Rule rule = Rule.parse("B36/S23");
+		BitPackedEngine engine = new BitPackedEngine(130, 200, rule);
+		Patterns.random(engine, 130, 200, 0.3, new Random(3));
+		engine.step();
+		BoardSnapshot snapshot = new BoardSnapshot(130, 200);
+		snapshot.copyCells(engine);
+
+		for (boolean compress : new boolean[] { false, true }) {
+			Path file = Files.createTempFile("life", ".ckpt");
+			Checkpoint.write(snapshot, rule, 12345, file, compress);
+			Checkpoint saved = Checkpoint.open(file);
+			assertEquals(130, saved.getRows());
+			assertEquals(200, saved.getColumns());
+			assertEquals(12345, saved.getGeneration());
+			assertEquals(engine.getPopulation(), saved.getPopulation());
+			assertEquals(rule, saved.getRule());
+			assertEquals(compress, saved.isCompressed());
+
+			// bit-packed engines load whole words, the others cell by cell
+			LifeEngine[] engines = { new TiledEngine(130, 200, rule),
+					new ScalarEngine(130, 200, rule) };
+			for (LifeEngine copy : engines) {
+				copy.setAlive(0, 0, true);
+				saved.restore(copy);
+				assertSameCells(engine, copy, 130, 200);
+				assertEquals(engine.getPopulation(), copy.getPopulation());
+			}
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testEmptyTilesAreSkipped() throws IOException {
+		BitPackedEngine engine = new BitPackedEngine(1024, 1024);
+		TestEngines.setGlider(engine, 500, 500);
+		BoardSnapshot snapshot = new BoardSnapshot(1024, 1024);
+		snapshot.copyCells(engine);
+		Path file = Files.createTempFile("life", ".ckpt");
+		Checkpoint.write(snapshot, engine.getRule(), 0, file, false);
+		// header, a 256-bit tile map and one tile of 64 words
+		assertTrue(Files.size(file) < 1024);
+
+		BitPackedEngine copy = new BitPackedEngine(1024, 1024);
+		Checkpoint.open(file).restore(copy);
+		assertEquals(engine.getHash(), copy.getHash());
+		Files.delete(file);
+	}
+
+	@Test
+	public void testDamageIsNoticed() throws IOException {
+		BitPackedEngine engine = new BitPackedEngine(64, 64);
+		TestEngines.setGlider(engine, 10, 10);
+		BoardSnapshot snapshot = new BoardSnapshot(64, 64);
+		snapshot.copyCells(engine);
+		Path file = Files.createTempFile("life", ".ckpt");
+		Checkpoint.write(snapshot, engine.getRule(), 0, file, false);
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			// flip a bit in the last word of the tile
+			raf.seek(raf.length() - 1);
+			int b = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(b ^ 1);
+		}
+		boolean failed = false;
+		try {
+			Checkpoint.open(file).restore(new BitPackedEngine(64, 64));
+		} catch (IOException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+
+		Files.write(file, new byte[] { 'n', 'o', 'p', 'e' });
+		failed = false;
+		try {
+			Checkpoint.open(file);
+		} catch (IOException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+		Files.delete(file);
+	}
+
+	@Test
+	public void testFailedWriteLeavesNoTemporaryFile() throws IOException {
+		BoardSnapshot snapshot = new BoardSnapshot(64, 64);
+		// a directory with something in it cannot be replaced by the file
+		Path dir = Files.createTempDirectory("life");
+		Path file = dir.resolve("board.ckpt");
+		Path inside = Files.createFile(Files.createDirectory(file).resolve(
+				"x"));
+		boolean failed = false;
+		try {
+			Checkpoint.write(snapshot, Rule.CONWAY, 0, file, false);
+		} catch (IOException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+		assertFalse(Files.exists(dir.resolve("board.ckpt.tmp")));
+		Files.delete(inside);
+		Files.delete(file);
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testRestoreEstimatesTheSavedSize() throws IOException {
+		Path file = Files.createTempFile("life", ".ckpt");
+		Checkpoint.write(new BoardSnapshot(2000, 2000), Rule.CONWAY, 0,
+				file, true);
+		BatchRunner runner = new BatchRunner(new BoardConfig(10, 10));
+		runner.setCheckpoint(file, 0, false);
+		long small = runner.estimateBytes();
+		runner.checkMemory(1 << 20);
+		runner.restore(file);
+		// the engine's two buffers and the checkpoint writer's copy
+		assertTrue(runner.estimateBytes() >= 3 * 8 * 2000 * 32);
+		assertTrue(runner.estimateBytes() > 1000 * small);
+		boolean failed = false;
+		try {
+			runner.checkMemory(1 << 20);
+		} catch (IllegalArgumentException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+		Files.delete(file);
+	}
+
+	@Test
+	public void testBatchRunnerContinuesFromCheckpoint() throws IOException {
+		Path file = Files.createTempFile("life", ".ckpt");
+		BatchRunner first = new BatchRunner(new BoardConfig(100, 100));
+		first.setSeed(9);
+		first.setGenerations(60);
+		first.setCheckpoint(file, 25, true);
+		first.run();
+		assertEquals(null, first.getCheckpointError());
+
+		BoardConfig config = new BoardConfig(10, 10);
+		config.setEngine("tiled");
+		BatchRunner second = new BatchRunner(config);
+		second.restore(file);
+		assertEquals(60, second.getGeneration());
+		second.setGenerations(100);
+		second.run();
+
+		BatchRunner straight = new BatchRunner(new BoardConfig(100, 100));
+		straight.setSeed(9);
+		straight.setGenerations(100);
+		straight.run();
+		assertEquals(100, second.getGeneration());
+		assertSameCells(straight.getEngine(), second.getEngine(), 100, 100);
+		Files.delete(file);
+	}
+
+	private static void assertSameCells(LifeEngine expected,
+			LifeEngine actual, int rows, int columns) {
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				assertEquals("cell [" + i + ", " + j + "]", expected.isAlive(i,
+						j), actual.isAlive(i, j));
+			}
+		}
+	}
+}
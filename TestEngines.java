@@ -0,0 +1,614 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestEngines {
+
+	// board sizes that cover single-word, multi-word and ragged rows
+	private static final int[][] SIZES = { { 5, 5 }, { 10, 10 }, { 7, 64 },
+			{ 9, 65 }, { 70, 120 }, { 33, 200 } };
+
+	@Test
+	public void testBitPackedMatchesReference() {
+		for (int[] size : SIZES) {
+			assertMatchesReference(new BitPackedEngine(size[0], size[1]),
+					size[0], size[1]);
+		}
+	}
+
+	@Test
+	public void testBitPackedBlinker() {
+		LifeEngine engine = new BitPackedEngine(10, 10);
+		engine.setAlive(5, 4, true);
+		engine.setAlive(5, 5, true);
+		engine.setAlive(5, 6, true);
+
+		engine.step();
+		assertTrue(engine.isAlive(4, 5));
+		assertTrue(engine.isAlive(5, 5));
+		assertTrue(engine.isAlive(6, 5));
+		assertEquals(3, engine.getPopulation());
+
+		engine.step();
+		assertTrue(engine.isAlive(5, 4));
+		assertTrue(engine.isAlive(5, 6));
+		assertEquals(3, engine.getPopulation());
+		assertEquals(2, engine.getGeneration());
+	}
+
+	@Test
+	public void testBitPackedGliderWrapsAroundTorus() {
+		int size = 70;
+		LifeEngine engine = new BitPackedEngine(size, size);
+		setGlider(engine, 0, 0);
+
+		// a glider moves one cell diagonally every 4 generations
+		for (int i = 0; i < 4 * size; i++) {
+			engine.step();
+		}
+		assertEquals(5, engine.getPopulation());
+		assertTrue(engine.isAlive(0, 1));
+		assertTrue(engine.isAlive(1, 2));
+		assertTrue(engine.isAlive(2, 0));
+		assertTrue(engine.isAlive(2, 1));
+		assertTrue(engine.isAlive(2, 2));
+	}
+
+	@Test
+	public void testTiledMatchesReference() {
+		for (int[] size : SIZES) {
+			assertMatchesReference(new TiledEngine(size[0], size[1]),
+					size[0], size[1]);
+		}
+	}
+
+	@Test
+	public void testTiledStillLifeGoesToSleep() {
+		TiledEngine engine = new TiledEngine(256, 256);
+		// a block is a still life
+		engine.setAlive(100, 100, true);
+		engine.setAlive(100, 101, true);
+		engine.setAlive(101, 100, true);
+		engine.setAlive(101, 101, true);
+
+		// every tile is computed once, then the block tile never changes
+		engine.step();
+		assertEquals(16, engine.getActiveTileCount());
+		engine.step();
+		assertEquals(0, engine.getActiveTileCount());
+		assertEquals(4, engine.getPopulation());
+
+		// poking a sleeping tile wakes it up again
+		setGlider(engine, 10, 10);
+		engine.step();
+		assertEquals(9, engine.getActiveTileCount());
+		assertEquals(9, engine.getPopulation());
+	}
+
+	@Test
+	public void testParallelMatchesReference() {
+		for (int[] size : SIZES) {
+			ParallelEngine engine = new ParallelEngine(size[0], size[1], 4);
+			assertMatchesReference(engine, size[0], size[1]);
+			engine.shutdown();
+		}
+		// large enough to be split into bands
+		ParallelEngine engine = new ParallelEngine(300, 4096, 4);
+		assertMatchesReference(engine, 300, 4096);
+		engine.shutdown();
+	}
+
+	@Test
+	public void testScalarMatchesReference() {
+		for (int[] size : SIZES) {
+			assertMatchesReference(new ScalarEngine(size[0], size[1]),
+					size[0], size[1]);
+		}
+	}
+
+	@Test
+	public void testVectorMatchesReference() {
+		// BitPackedEngine unless run with the vector engine compiled and
+		// jdk.incubator.vector added
+		for (int[] size : SIZES) {
+			assertMatchesReference(Engines.create("vector", size[0], size[1],
+					Rule.CONWAY), size[0], size[1]);
+		}
+		assertMatchesReference(Engines.create("vector", 50, 64 * 37,
+				Rule.CONWAY), 50, 64 * 37);
+	}
+
+	@Test
+	public void testCountingMatchesReference() {
+		for (int[] size : SIZES) {
+			assertMatchesReference(new CountingEngine(size[0], size[1]),
+					size[0], size[1]);
+		}
+	}
+
+	@Test
+	public void testCountingTracksChanges() {
+		CountingEngine engine = new CountingEngine(70, 120);
+		engine.setAlive(5, 4, true);
+		engine.setAlive(5, 5, true);
+		engine.setAlive(5, 6, true);
+		// a blinker flips four cells every generation
+		for (int g = 0; g < 10; g++) {
+			engine.step();
+			assertEquals(4, engine.getChangeCount());
+			assertEquals(3, engine.getPopulation());
+		}
+
+		// toggling a cell twice before a step is not a change
+		engine.clear();
+		engine.setAlive(30, 30, true);
+		engine.setAlive(30, 30, false);
+		engine.step();
+		assertEquals(0, engine.getChangeCount());
+		assertEquals(0, engine.getPopulation());
+	}
+
+	@Test
+	public void testBlockLutMatchesReference() {
+		// 126 and 128 put the last block of a word on both sides of a
+		// word boundary
+		int[][] sizes = { { 2, 2 }, { 10, 10 }, { 8, 62 }, { 6, 64 },
+				{ 70, 120 }, { 12, 126 }, { 12, 128 }, { 34, 200 } };
+		for (int[] size : sizes) {
+			assertMatchesReference(new BlockLutEngine(size[0], size[1]),
+					size[0], size[1]);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testPackedEngineRejectsCellsPastTheEdge() {
+		// column 20 would be a padding bit of the row's only word
+		new BitPackedEngine(20, 20).setAlive(3, 20, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlockLutRejectsOddBoard() {
+		new BlockLutEngine(9, 10);
+	}
+
+	@Test
+	public void testEveryNamedEngineRunsAGlider() {
+		for (String name : Engines.NAMES) {
+			LifeEngine engine = Engines.create(name, 20, 20, Rule.CONWAY);
+			setGlider(engine, 5, 5);
+			for (int g = 0; g < 8; g++) {
+				engine.step();
+			}
+			assertEquals(name, 5, engine.getPopulation());
+			assertTrue(name, engine.isAlive(7, 8));
+			assertTrue(name, engine.isAlive(9, 9));
+		}
+	}
+
+	@Test
+	public void testDirtyRowsFollowChanges() {
+		LifeEngine[] engines = { new BitPackedEngine(70, 120),
+				new TiledEngine(70, 120), new CountingEngine(70, 120) };
+		for (LifeEngine engine : engines) {
+			DirtyRows dirty = ((ChangeTracking) engine).getDirtyRows();
+			engine.setAlive(5, 99, true);
+			engine.setAlive(5, 100, true);
+			engine.setAlive(5, 101, true);
+			assertTrue(dirty.isDirty(5));
+			dirty.clear();
+
+			// the blinker turns vertical: rows 4 and 6 gain a cell, row 5
+			// loses two
+			engine.step();
+			for (int i = 0; i < 70; i++) {
+				assertEquals(i >= 4 && i <= 6, dirty.isDirty(i));
+			}
+			assertTrue(dirty.getFirst(5) <= 99 && dirty.getLast(5) >= 101);
+			dirty.clear();
+
+			// a still life marks nothing
+			engine.clear();
+			dirty.clear();
+			engine.setAlive(30, 30, true);
+			engine.setAlive(30, 31, true);
+			engine.setAlive(31, 30, true);
+			engine.setAlive(31, 31, true);
+			dirty.clear();
+			engine.step();
+			for (int i = 0; i < 70; i++) {
+				assertTrue(!dirty.isDirty(i));
+			}
+		}
+	}
+
+	@Test
+	public void testPublisherSkipsFramesButKeepsTheirChanges() {
+		LifeEngine engine = new BitPackedEngine(20, 70);
+		FramePublisher publisher = new FramePublisher(20, 70);
+		assertTrue(publisher.poll() == null);
+
+		setGlider(engine, 0, 0);
+		engine.step();
+		assertTrue(publisher.publish(engine));
+		BoardSnapshot first = publisher.poll();
+		assertEquals(1, first.getGeneration());
+		first.getDirtyRows().clear();
+
+		// a blinker far from the glider, then generations nobody draws
+		engine.setAlive(10, 60, true);
+		engine.setAlive(10, 61, true);
+		engine.setAlive(10, 62, true);
+		engine.step();
+		assertTrue(publisher.publish(engine));
+		for (int i = 0; i < 6; i++) {
+			engine.step();
+			assertTrue(!publisher.publish(engine));
+		}
+		engine.step();
+
+		BoardSnapshot second = publisher.poll();
+		assertEquals(2, second.getGeneration());
+		second.getDirtyRows().clear();
+		assertTrue(publisher.poll() == null);
+		assertTrue(publisher.publish(engine));
+		BoardSnapshot last = publisher.poll();
+		assertEquals(9, last.getGeneration());
+		assertEquals(engine.getPopulation(), last.getPopulation());
+		for (int i = 0; i < 20; i++) {
+			for (int j = 0; j < 70; j++) {
+				assertEquals(engine.isAlive(i, j), last.isAlive(i, j));
+			}
+		}
+		// the skipped generations moved the glider, so their rows are dirty
+		// in the snapshot that was drawn next
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(last.getDirtyRows().isDirty(i));
+		}
+		assertTrue(!last.getDirtyRows().isDirty(15));
+	}
+
+	@Test
+	public void testDensityPyramidFollowsDirtyTiles() {
+		int rows = 300;
+		int columns = 200;
+		LifeEngine engine = new BitPackedEngine(rows, columns);
+		BoardSnapshot snapshot = new BoardSnapshot(rows, columns);
+		DensityPyramid density = new DensityPyramid(rows, columns);
+		Random random = new Random(7);
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				engine.setAlive(i, j, random.nextInt(3) == 0);
+			}
+		}
+		for (int g = 0; g < 20; g++) {
+			snapshot.capture(engine);
+			density.update(snapshot, snapshot.getDirtyRows());
+			snapshot.getDirtyRows().clear();
+			engine.step();
+		}
+		snapshot.capture(engine);
+		density.update(snapshot, snapshot.getDirtyRows());
+
+		assertEquals(4, density.getLevels());
+		for (int level = 0; level < density.getLevels(); level++) {
+			int size = DensityPyramid.TILE << level;
+			for (int t = 0; t * size < rows; t++) {
+				for (int u = 0; u * size < columns; u++) {
+					long count = 0;
+					for (int i = t * size; i < Math.min(rows, (t + 1) * size); i++) {
+						for (int j = u * size; j < Math.min(columns, (u + 1)
+								* size); j++) {
+							count += engine.isAlive(i, j) ? 1 : 0;
+						}
+					}
+					assertEquals(count, density.count(level, t, u));
+				}
+			}
+		}
+		assertEquals(engine.getPopulation(), density.count(3, 0, 0));
+	}
+
+	@Test
+	public void testHashLifeMatchesBitPacked() {
+		assertMatchesBitPacked(new HashLifeEngine());
+	}
+
+	@Test
+	public void testHashLifeAdvanceMatchesSingleSteps() {
+		HashLifeEngine jump = new HashLifeEngine();
+		HashLifeEngine single = new HashLifeEngine();
+		setAcorn(jump, 0, 0);
+		setAcorn(single, 0, 0);
+
+		jump.advance(10);
+		for (int g = 0; g < 1024; g++) {
+			single.step();
+		}
+		assertEquals(1024, jump.getGeneration());
+		assertEquals(single.getPopulation(), jump.getPopulation());
+		for (int i = -200; i < 200; i++) {
+			for (int j = -200; j < 200; j++) {
+				assertEquals(single.isAlive(i, j), jump.isAlive(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testHashLifeAcornStabilises() {
+		// Acorn settles at 633 cells plus gliders after 5206 generations;
+		// at generation 2^13 and beyond the population is 633
+		HashLifeEngine engine = new HashLifeEngine(1 << 12,
+				HashLifeEngine.Eviction.REACHABLE);
+		setAcorn(engine, 0, 0);
+		engine.advance(13);
+		assertEquals(633, engine.getPopulation());
+		engine.advance(30);
+		assertEquals(633, engine.getPopulation());
+	}
+
+	@Test
+	public void testSparseMatchesBitPacked() {
+		assertMatchesBitPacked(new SparseEngine());
+	}
+
+	@Test
+	public void testSparseAcornDoesNotWrap() {
+		// on the 70x120 torus Acorn runs into itself; unbounded it settles
+		// at 633 cells after 5206 generations
+		LifeEngine engine = new SparseEngine();
+		setAcorn(engine, 0, 0);
+		for (int g = 0; g < 5206; g++) {
+			engine.step();
+		}
+		assertEquals(633, engine.getPopulation());
+	}
+
+	@Test
+	public void testLongHashSetRemove() {
+		LongHashSet set = new LongHashSet();
+		Random r = new Random(3);
+		Set<Long> expected = new HashSet<Long>();
+		for (int i = 0; i < 20000; i++) {
+			long key = r.nextInt(2000) - 1000;
+			if (r.nextBoolean()) {
+				assertEquals(expected.add(key), set.add(key));
+			} else {
+				assertEquals(expected.remove(key), set.remove(key));
+			}
+			assertEquals(expected.size(), set.size());
+		}
+		for (long key = -1000; key < 1000; key++) {
+			assertEquals(expected.contains(key), set.contains(key));
+		}
+	}
+
+	// a soup in the middle of a large torus never reaches the edges in 40
+	// generations, so an unbounded engine must agree with it
+	static void assertMatchesBitPacked(LifeEngine engine) {
+		LifeEngine expected = new BitPackedEngine(200, 200);
+		Random r = new Random(7);
+		for (int i = 80; i < 120; i++) {
+			for (int j = 80; j < 120; j++) {
+				if (r.nextInt(100) < 40) {
+					expected.setAlive(i, j, true);
+					engine.setAlive(i - 100, j - 100, true);
+				}
+			}
+		}
+
+		for (int g = 0; g < 40; g++) {
+			expected.step();
+			engine.step();
+			assertEquals(expected.getPopulation(), engine.getPopulation());
+		}
+		for (int i = 0; i < 200; i++) {
+			for (int j = 0; j < 200; j++) {
+				assertEquals(expected.isAlive(i, j),
+						engine.isAlive(i - 100, j - 100));
+			}
+		}
+	}
+
+	static void setAcorn(LifeEngine engine, int row, int col) {
+		engine.setAlive(row, col + 1, true);
+		engine.setAlive(row + 1, col + 3, true);
+		engine.setAlive(row + 2, col, true);
+		engine.setAlive(row + 2, col + 1, true);
+		engine.setAlive(row + 2, col + 4, true);
+		engine.setAlive(row + 2, col + 5, true);
+		engine.setAlive(row + 2, col + 6, true);
+	}
+
+	static void setGlider(LifeEngine engine, int row, int col) {
+		engine.setAlive(row, col + 1, true);
+		engine.setAlive(row + 1, col + 2, true);
+		engine.setAlive(row + 2, col, true);
+		engine.setAlive(row + 2, col + 1, true);
+		engine.setAlive(row + 2, col + 2, true);
+	}
+
+	@Test
+	public void testPopulationIsKeptUpToDate() {
+		// the unbounded engines would grow past the counted box
+		String[] bounded = { "bitpacked", "tiled", "parallel", "vector",
+				"blocklut", "counting", "scalar" };
+		for (String name : bounded) {
+			LifeEngine engine = Engines.create(name, 64, 130, Rule.CONWAY);
+			Random r = new Random(19);
+			for (int i = 0; i < 64; i++) {
+				for (int j = 0; j < 130; j++) {
+					engine.setAlive(i, j, r.nextInt(100) < 35);
+				}
+			}
+			// setting a cell to the state it already has changes nothing
+			engine.setAlive(3, 3, engine.isAlive(3, 3));
+			for (int g = 0; g < 40; g++) {
+				assertEquals(name + " generation " + g, countLive(engine, 64,
+						130), engine.getPopulation());
+				engine.step();
+				engine.setAlive(g, g, !engine.isAlive(g, g));
+			}
+			engine.clear();
+			assertEquals(name, 0, engine.getPopulation());
+			if (engine instanceof ParallelEngine) {
+				((ParallelEngine) engine).shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testParallelBandsSumPopulation() {
+		ParallelEngine engine = new ParallelEngine(1024, 1024, Rule.CONWAY, 4);
+		Random r = new Random(7);
+		for (int i = 0; i < 1024; i++) {
+			for (int j = 0; j < 1024; j++) {
+				engine.setAlive(i, j, r.nextInt(100) < 30);
+			}
+		}
+		for (int g = 0; g < 5; g++) {
+			engine.step();
+		}
+		assertEquals(countLive(engine, 1024, 1024), engine.getPopulation());
+		engine.shutdown();
+	}
+
+	@Test
+	public void testBoundsFollowTheCells() {
+		BitPackedEngine engine = new TiledEngine(100, 200);
+		assertTrue(engine.getBounds().isEmpty());
+		setGlider(engine, 10, 70);
+		assertEquals(new Bounds(10, 70, 12, 72), engine.getBounds());
+		assertEquals(3, engine.getRowPopulation(12));
+
+		// the glider moves one cell down and right every 4 generations
+		for (int g = 0; g < 4; g++) {
+			engine.step();
+		}
+		assertEquals(new Bounds(11, 71, 13, 73), engine.getBounds());
+
+		engine.setAlive(90, 150, true);
+		assertEquals(new Bounds(11, 71, 90, 150), engine.getBounds());
+		assertEquals(80, engine.getBounds().getWidth());
+		engine.clear();
+		assertEquals(Bounds.EMPTY, engine.getBounds());
+	}
+
+	@Test
+	public void testHashFollowsTheCells() {
+		ParallelEngine engine = new ParallelEngine(40, 150, Rule.CONWAY, 2);
+		assertEquals(0, engine.getHash());
+		setGlider(engine, 5, 60);
+		long glider = engine.getHash();
+		for (int g = 0; g < 4; g++) {
+			engine.step();
+		}
+		// the same shape one cell further on is a different board
+		assertTrue(engine.getHash() != glider);
+
+		// a board built directly in that state hashes the same
+		BitPackedEngine copy = new BitPackedEngine(40, 150);
+		setGlider(copy, 6, 61);
+		assertEquals(copy.getHash(), engine.getHash());
+		copy.setAlive(0, 0, true);
+		copy.setAlive(0, 0, false);
+		assertEquals(copy.getHash(), engine.getHash());
+		engine.shutdown();
+	}
+
+	@Test
+	public void testCycleDetectorFindsPeriodAndStart() {
+		CycleDetector detector = new CycleDetector(4);
+		long[] hashes = { 10, 11, 12, 13, 12, 13, 12, 14 };
+		boolean[] found = new boolean[hashes.length];
+		for (int g = 0; g < hashes.length; g++) {
+			found[g] = detector.observe(g, hashes[g], 5);
+		}
+		assertTrue(found[4]);
+		assertTrue(!found[5] && !found[6]);
+		assertEquals(0, detector.getPeriod());
+		assertTrue(!found[7]);
+
+		// generations observed every 8 steps report periods in generations
+		detector.reset();
+		detector.observe(0, 1, 5);
+		detector.observe(8, 2, 5);
+		assertTrue(detector.observe(16, 1, 5));
+		assertEquals(16, detector.getPeriod());
+		assertEquals(0, detector.getStart());
+
+		// going back to generation 0 starts over
+		assertTrue(!detector.observe(0, 1, 5));
+		assertTrue(!detector.isSettled());
+
+		// periods longer than the ring are missed
+		detector = new CycleDetector(2);
+		for (int g = 0; g < 6; g++) {
+			assertTrue(!detector.observe(g, g % 3, 5));
+		}
+	}
+
+	private static long countLive(LifeEngine engine, int rows, int columns) {
+		long live = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				if (engine.isAlive(i, j)) {
+					live++;
+				}
+			}
+		}
+		return live;
+	}
+
+	// fill the engine with a random soup and compare it with a plain
+	// per-cell implementation of the torus for a few generations
+	static void assertMatchesReference(LifeEngine engine, int rows,
+			int columns) {
+		Random r = new Random(rows * 31 + columns);
+		boolean[][] expected = new boolean[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				expected[i][j] = r.nextInt(100) < 35;
+				engine.setAlive(i, j, expected[i][j]);
+			}
+		}
+
+		for (int g = 0; g < 30; g++) {
+			expected = referenceStep(expected);
+			engine.step();
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					assertEquals("generation " + (g + 1) + " cell [" + i + ", "
+							+ j + "] on " + rows + "x" + columns,
+							expected[i][j], engine.isAlive(i, j));
+				}
+			}
+		}
+	}
+
+	static boolean[][] referenceStep(boolean[][] cells) {
+		int rows = cells.length;
+		int columns = cells[0].length;
+		boolean[][] next = new boolean[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				int n = 0;
+				for (int di = -1; di <= 1; di++) {
+					for (int dj = -1; dj <= 1; dj++) {
+						if ((di != 0 || dj != 0)
+								&& cells[(i + di + rows) % rows][(j + dj + columns)
+										% columns]) {
+							n++;
+						}
+					}
+				}
+				next[i][j] = n == 3 || (n == 2 && cells[i][j]);
+			}
+		}
+		return next;
+	}
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Test;
+
+public class TestFrameRecorder {
+
+	@Test
+	public void testPngSequenceShowsEveryGeneration() throws IOException {
+		Path dir = Files.createTempDirectory("frames");
+		BitPackedEngine engine = new BitPackedEngine(20, 70);
+		TestEngines.setGlider(engine, 2, 60);
+		FrameRecorder recorder = new FrameRecorder(dir, 20, 70, 2,
+				FrameRecorder.Policy.BLOCK, 2, 3);
+		BitPackedEngine[] boards = new BitPackedEngine[6];
+		for (int g = 0; g < boards.length; g++) {
+			assertTrue(recorder.capture(engine));
+			boards[g] = new BitPackedEngine(20, 70);
+			TestEngines.setGlider(boards[g], 2, 60);
+			for (int k = 0; k < g; k++) {
+				boards[g].step();
+			}
+			engine.step();
+		}
+		recorder.close();
+		assertEquals(6, recorder.getWritten());
+		assertEquals(0, recorder.getDropped());
+
+		for (int g = 0; g < boards.length; g++) {
+			File file = dir.resolve(String.format("frame-%08d.png", g))
+					.toFile();
+			BufferedImage image = ImageIO.read(file);
+			assertEquals(140, image.getWidth());
+			assertEquals(40, image.getHeight());
+			for (int i = 0; i < 20; i++) {
+				for (int j = 0; j < 70; j++) {
+					int rgb = image.getRGB(2 * j + 1, 2 * i + 1) & 0xFFFFFF;
+					assertEquals("generation " + g + " cell [" + i + ", " + j
+							+ "]", boards[g].isAlive(i, j), rgb == (Color.gray
+							.getRGB() & 0xFFFFFF));
+				}
+			}
+			file.delete();
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testGifHasAFramePerCapture() throws IOException {
+		Path file = Files.createTempFile("life", ".gif");
+		ScalarEngine engine = new ScalarEngine(40, 40);
+		Patterns.random(engine, 40, 40, 0.3, new Random(8));
+		FrameRecorder recorder = new FrameRecorder(file, 40, 40, 1,
+				FrameRecorder.Policy.BLOCK);
+		for (int g = 0; g < 10; g++) {
+			recorder.capture(engine);
+			engine.step();
+		}
+		recorder.close();
+		assertEquals(10, recorder.getWritten());
+
+		ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+		try (ImageInputStream in = ImageIO.createImageInputStream(file
+				.toFile())) {
+			reader.setInput(in);
+			assertEquals(10, reader.getNumImages(true));
+			BufferedImage first = reader.read(0);
+			ScalarEngine start = new ScalarEngine(40, 40);
+			Patterns.random(start, 40, 40, 0.3, new Random(8));
+			for (int i = 0; i < 40; i++) {
+				for (int j = 0; j < 40; j++) {
+					int rgb = first.getRGB(j, i) & 0xFFFFFF;
+					assertEquals(start.isAlive(i, j), rgb == (Color.gray
+							.getRGB() & 0xFFFFFF));
+				}
+			}
+		} finally {
+			reader.dispose();
+		}
+		Files.delete(file);
+	}
+
+	@Test
+	public void testDropAndSlowNeverWait() throws IOException {
+		for (FrameRecorder.Policy policy : new FrameRecorder.Policy[] {
+				FrameRecorder.Policy.DROP, FrameRecorder.Policy.SLOW }) {
+			Path dir = Files.createTempDirectory("frames");
+			BitPackedEngine engine = new BitPackedEngine(512, 512);
+			Patterns.random(engine, 512, 512, 0.3, new Random(1));
+			FrameRecorder recorder = new FrameRecorder(dir, 512, 512, 2,
+					policy, 1, 1);
+			int skipped = 0;
+			for (int g = 0; g < 200; g++) {
+				if (!recorder.capture(engine)) {
+					skipped++;
+				}
+				engine.step();
+			}
+			// the pool holds one frame and encoding one takes much longer
+			// than a step, so most generations are left out
+			assertTrue(skipped > 0);
+			if (policy == FrameRecorder.Policy.SLOW) {
+				assertTrue(recorder.getDropped() < skipped);
+			} else {
+				assertEquals(skipped, recorder.getDropped());
+			}
+			recorder.close();
+			assertEquals(recorder.getCaptured(), recorder.getWritten());
+			assertEquals(200, recorder.getCaptured() + skipped);
+			for (File file : dir.toFile().listFiles()) {
+				file.delete();
+			}
+			Files.delete(dir);
+		}
+	}
+}
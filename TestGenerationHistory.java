@@ -0,0 +1,222 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestGenerationHistory {
+
+	@Test
+	public void testSeekInAnyOrder() {
+		BitPackedEngine engine = new BitPackedEngine(100, 130);
+		Patterns.random(engine, 100, 130, 0.3, new Random(11));
+		GenerationHistory history = new GenerationHistory(100, 130, 1L << 30,
+				16);
+		long[] hashes = new long[300];
+		long[] populations = new long[300];
+		for (int g = 0; g < 300; g++) {
+			history.record(g, engine);
+			hashes[g] = engine.getHash();
+			populations[g] = engine.getPopulation();
+			engine.step();
+		}
+		assertEquals(0, history.getOldestGeneration());
+		assertEquals(299, history.getNewestGeneration());
+
+		BitPackedEngine copy = new BitPackedEngine(100, 130);
+		Random random = new Random(2);
+		for (int k = 0; k < 200; k++) {
+			// mostly short hops, as when scrubbing, and some long jumps
+			int g = k % 4 == 0 ? random.nextInt(300) : Math.max(0, Math.min(
+					299, (int) history.getNewestGeneration() - k));
+			assertEquals(g, history.seek(g, copy));
+			assertEquals("generation " + g, hashes[g], copy.getHash());
+			assertEquals(populations[g], copy.getPopulation());
+			assertEquals(populations[g], history.getPopulation(g));
+		}
+
+		// engines without words get the cells one by one
+		ScalarEngine scalar = new ScalarEngine(100, 130);
+		history.seek(123, scalar);
+		history.seek(123, copy);
+		for (int i = 0; i < 100; i++) {
+			for (int j = 0; j < 130; j++) {
+				assertEquals(copy.isAlive(i, j), scalar.isAlive(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testEditsBetweenGenerationsAreRecorded() {
+		BitPackedEngine engine = new BitPackedEngine(70, 200);
+		Patterns.random(engine, 70, 200, 0.2, new Random(3));
+		GenerationHistory history = new GenerationHistory(70, 200);
+		long[] hashes = new long[100];
+		Random random = new Random(9);
+		for (int g = 0; g < 100; g++) {
+			if (g % 3 == 0) {
+				// a single cell flipped by hand changes one word of one row
+				int i = random.nextInt(70);
+				int j = random.nextInt(200);
+				engine.setAlive(i, j, !engine.isAlive(i, j));
+			}
+			history.record(g, engine);
+			hashes[g] = engine.getHash();
+			if (g % 5 != 0) {
+				engine.step();
+			}
+		}
+		BitPackedEngine copy = new BitPackedEngine(70, 200);
+		for (int g = 99; g >= 0; g--) {
+			history.seek(g, copy);
+			assertEquals("generation " + g, hashes[g], copy.getHash());
+		}
+	}
+
+	@Test
+	public void testCountingEngineIsReadByItsDirtyRows() {
+		CountingEngine engine = new CountingEngine(60, 150);
+		BitPackedEngine reference = new BitPackedEngine(60, 150);
+		Patterns.random(engine, 60, 150, 0.25, new Random(5));
+		Patterns.random(reference, 60, 150, 0.25, new Random(5));
+		GenerationHistory history = new GenerationHistory(60, 150);
+		// the renderer takes the engine's dirty rows now and then
+		BoardSnapshot renderer = new BoardSnapshot(60, 150);
+		Random random = new Random(8);
+		long[] hashes = new long[120];
+		for (int g = 0; g < 120; g++) {
+			if (g % 7 == 0) {
+				int i = random.nextInt(60);
+				int j = random.nextInt(150);
+				engine.setAlive(i, j, !engine.isAlive(i, j));
+				reference.setAlive(i, j, !reference.isAlive(i, j));
+			}
+			if (g % 2 == 0) {
+				renderer.capture(engine);
+			}
+			history.record(g, engine);
+			hashes[g] = reference.getHash();
+			engine.step();
+			reference.step();
+			if (g % 3 == 0) {
+				renderer.capture(engine);
+			}
+		}
+		BitPackedEngine copy = new BitPackedEngine(60, 150);
+		for (int g = 0; g < 120; g++) {
+			assertEquals(g, history.seek(g, copy));
+			assertEquals("generation " + g, hashes[g], copy.getHash());
+		}
+
+		// step on from a rewound generation of the same engine
+		assertEquals(50, history.seek(50, engine));
+		renderer.capture(engine);
+		engine.step();
+		history.record(51, engine);
+		assertEquals(51, history.seek(51, copy));
+		assertEquals(hashes[51], copy.getHash());
+	}
+
+	@Test
+	public void testBudgetDropsTheOldestGenerations() {
+		BitPackedEngine engine = new BitPackedEngine(256, 256);
+		Patterns.random(engine, 256, 256, 0.3, new Random(4));
+		long budget = 256 << 10;
+		GenerationHistory history = new GenerationHistory(256, 256, budget,
+				32);
+		for (int g = 0; g < 1000; g++) {
+			history.record(g, engine);
+			engine.step();
+		}
+		assertEquals(999, history.getNewestGeneration());
+		assertTrue(history.getOldestGeneration() > 0);
+		assertTrue(history.getBytes() <= budget);
+		assertEquals(-1, history.seek(history.getOldestGeneration() - 1,
+				new BitPackedEngine(256, 256)));
+	}
+
+	@Test
+	public void testRecordingThePastStartsANewFuture() {
+		BitPackedEngine engine = new BitPackedEngine(64, 64);
+		TestEngines.setGlider(engine, 5, 5);
+		GenerationHistory history = new GenerationHistory(64, 64);
+		for (int g = 0; g < 20; g++) {
+			history.record(g, engine);
+			engine.step();
+		}
+		BitPackedEngine board = new BitPackedEngine(64, 64);
+		assertEquals(10, history.seek(10, board));
+		board.setAlive(60, 60, true);
+		history.record(10, board);
+		assertEquals(10, history.getNewestGeneration());
+		board.step();
+		history.record(11, board);
+
+		BitPackedEngine copy = new BitPackedEngine(64, 64);
+		history.seek(11, copy);
+		assertEquals(board.getHash(), copy.getHash());
+		history.seek(9, copy);
+		assertEquals(5, copy.getPopulation());
+	}
+
+	@Test
+	public void testRewoundBoardKeepsItsGeneration() throws IOException {
+		BitPackedEngine engine = new BitPackedEngine(32, 32);
+		TestEngines.setGlider(engine, 2, 2);
+		GenerationHistory history = new GenerationHistory(32, 32);
+		for (int g = 0; g < 10; g++) {
+			history.record(g, engine);
+			engine.step();
+		}
+		assertEquals(5, history.seek(5, engine));
+		assertEquals(5, engine.getGeneration());
+
+		// frames recorded after rewinding are named after their own
+		// generations, not counted again from 0
+		Path dir = Files.createTempDirectory("frames");
+		FrameRecorder recorder = new FrameRecorder(dir, 32, 32, 1,
+				FrameRecorder.Policy.BLOCK, 1, 1);
+		for (int g = 0; g < 3; g++) {
+			engine.step();
+			recorder.capture(engine);
+		}
+		recorder.close();
+		assertEquals(8, engine.getGeneration());
+		String[] names = dir.toFile().list();
+		Arrays.sort(names);
+		assertEquals(Arrays.asList("frame-00000006.png", "frame-00000007.png",
+				"frame-00000008.png"), Arrays.asList(names));
+		for (File file : dir.toFile().listFiles()) {
+			file.delete();
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testLongHistoryOfABigBoardStaysSmall() {
+		BitPackedEngine engine = new BitPackedEngine(512, 512);
+		Patterns.place(engine, Patterns.GOSPER_GLIDER_GUN, 10, 10);
+		GenerationHistory history = new GenerationHistory(512, 512);
+		for (int g = 0; g < 10000; g++) {
+			history.record(g, engine);
+			engine.step();
+		}
+		assertEquals(10000, history.getFrames());
+		// a few hundred copies of the 32 KB board, not ten thousand
+		assertTrue(history.getBytes() < 500L * 32 * 1024);
+		BitPackedEngine copy = new BitPackedEngine(512, 512);
+		history.seek(9999, copy);
+		engine.clear();
+		Patterns.place(engine, Patterns.GOSPER_GLIDER_GUN, 10, 10);
+		for (int g = 0; g < 9999; g++) {
+			engine.step();
+		}
+		assertEquals(engine.getHash(), copy.getHash());
+	}
+}
@@ -0,0 +1,97 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class TestMetrics {
+
+	@Test
+	public void testBucketsCoverEveryValue() {
+		int last = -1;
+		for (long value = 0; value < 100000; value++) {
+			int index = LatencyHistogram.index(value);
+			assertTrue(index == last || index == last + 1);
+			assertTrue(value <= LatencyHistogram.highest(index));
+			last = index;
+		}
+		int top = LatencyHistogram.index(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highest(top));
+	}
+
+	@Test
+	public void testPercentilesWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 10000; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000500.0, histogram.getMean(), 0.001);
+		assertClose(5000000, histogram.getPercentile(50));
+		assertClose(9900000, histogram.getPercentile(99));
+		assertEquals(10000000, histogram.getPercentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+	private static void assertClose(long expected, long actual) {
+		assertTrue(actual + " is not near " + expected,
+				Math.abs(actual - expected) <= expected / 16);
+	}
+
+	@Test
+	public void testMetricsOverJmx() throws Exception {
+		SimulationMetrics metrics = new SimulationMetrics();
+		metrics.register();
+		for (int g = 0; g < 100; g++) {
+			metrics.recordGeneration(2000000, 2500000, 70 * 120);
+		}
+		metrics.recordFrame(1000000);
+		Thread.sleep(10);
+		metrics.sample();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(SimulationMetrics.OBJECT_NAME);
+		assertEquals(100L, server.getAttribute(name, "Generations"));
+		assertEquals(840000L, server.getAttribute(name, "CellUpdates"));
+		assertEquals(1L, server.getAttribute(name, "Frames"));
+		double p99 = (Double) server.getAttribute(name, "TickMillisP99");
+		assertTrue(p99 >= 2.5 && p99 < 2.7);
+		assertTrue(metrics.getGenerationsPerSecond() > 0);
+		assertEquals(4, metrics.describe().length);
+
+		server.invoke(name, "reset", null, null);
+		assertEquals(0L, server.getAttribute(name, "Generations"));
+		server.unregisterMBean(name);
+	}
+
+	@Test
+	public void testPopulationHistoryKeepsTheLastGenerations() {
+		PopulationHistory history = new PopulationHistory(8);
+		assertTrue(history.isEmpty());
+		for (long g = 1; g <= 20; g++) {
+			history.record(g, g * 10);
+		}
+		assertEquals(13, history.getOldestGeneration());
+		assertEquals(20, history.getLatestGeneration());
+		assertEquals(150, history.getPopulation(15));
+		assertArrayEquals(new long[] { 180, 190, 200 }, history.getRecent(3));
+
+		// skipped generations repeat the last value
+		history.record(23, 5);
+		assertArrayEquals(new long[] { 200, 200, 200, 5 },
+				history.getRecent(4));
+
+		// a cleared board starts over
+		history.record(0, 7);
+		assertArrayEquals(new long[] { 7 }, history.getRecent(8));
+	}
+}
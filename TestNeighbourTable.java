@@ -0,0 +1,89 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestNeighbourTable {
+	private static final int ROWS = 70;
+	private static final int COLUMNS = 120;
+
+	// generous bound for the bookkeeping of the measurement itself
+	private static final long ALLOWED_BYTES = 4 * 1024;
+
+	@Test
+	public void testCorners() {
+		NeighbourTable table = new NeighbourTable(10, 10);
+
+		// up-left corner, same order as RunFrame.getNeighbours
+		assertArrayEquals(new int[] { 99, 90, 91, 1, 11, 10, 19, 9 },
+				neighbours(table, 0, 0));
+		// up-right corner
+		assertArrayEquals(new int[] { 98, 99, 90, 0, 10, 19, 18, 8 },
+				neighbours(table, 0, 9));
+		// normal cell
+		assertArrayEquals(new int[] { 44, 45, 46, 56, 66, 65, 64, 54 },
+				neighbours(table, 5, 5));
+		// bottom-right corner
+		assertArrayEquals(new int[] { 88, 89, 80, 90, 0, 9, 8, 98 },
+				neighbours(table, 9, 9));
+	}
+
+	@Test
+	public void testScalarStepDoesNotAllocate() {
+		assertStepDoesNotAllocate(new ScalarEngine(ROWS, COLUMNS));
+	}
+
+	@Test
+	public void testPackedStepsDoNotAllocate() {
+		assertStepDoesNotAllocate(new BitPackedEngine(ROWS, COLUMNS));
+		assertStepDoesNotAllocate(new TiledEngine(ROWS, COLUMNS));
+	}
+
+	private int[] neighbours(NeighbourTable table, int row, int col) {
+		int[] result = new int[NeighbourTable.NEIGHBOURS];
+		for (int n = 0; n < result.length; n++) {
+			result[n] = table.get(row * table.getColumns() + col, n);
+		}
+		return result;
+	}
+
+	// the per-thread allocation counter is a HotSpot extension, skip the
+	// check on VMs that do not have it
+	private void assertStepDoesNotAllocate(LifeEngine engine) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Random r = new Random(1);
+		for (int i = 0; i < ROWS; i++) {
+			for (int j = 0; j < COLUMNS; j++) {
+				engine.setAlive(i, j, r.nextInt(100) % 5 == 0);
+			}
+		}
+		for (int g = 0; g < 100; g++) {
+			engine.step();
+		}
+
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int g = 0; g < 500; g++) {
+			engine.step();
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		assertTrue(engine.getClass().getName() + " allocated " + allocated
+				+ " bytes in 500 generations", allocated < ALLOWED_BYTES);
+		assertEquals(600, engine.getGeneration());
+	}
+}
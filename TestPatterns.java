@@ -0,0 +1,234 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestPatterns {
+
+	@Test
+	public void testRleReadsRunsAndHeader() throws IOException {
+		RleFormat rle = new RleFormat(new StringReader("#N Glider\n"
+				+ "#C a comment\n" + "x = 3, y = 3, rule = B36/S23\n"
+				+ "bo$2bo$3o!\n"));
+		assertEquals("Glider", rle.getName());
+		assertEquals(3, rle.getWidth());
+		assertEquals(3, rle.getHeight());
+		assertEquals(Rule.parse("B36/S23"), rle.getRule());
+		BitPackedEngine engine = new BitPackedEngine(20, 20);
+		assertEquals(5, rle.read(engine, 4, 6, 20, 20));
+		BitPackedEngine glider = new BitPackedEngine(20, 20);
+		TestEngines.setGlider(glider, 4, 6);
+		assertSameCells(glider, engine, 20, 20);
+
+		// multi-digit runs, runs of '$' and lines broken inside a run
+		rle = new RleFormat(new StringReader("x = 12, y = 4\n12o3$1\n1o!"));
+		assertEquals(null, rle.getRule());
+		engine = new BitPackedEngine(20, 20);
+		assertEquals(23, rle.read(engine, 0, 0, 20, 20));
+		assertEquals(12, engine.getRowPopulation(0));
+		assertEquals(11, engine.getRowPopulation(3));
+	}
+
+	@Test
+	public void testRleRoundTrip() throws IOException {
+		BitPackedEngine engine = new BitPackedEngine(100, 150);
+		Patterns.random(engine, 100, 150, 0.3, new Random(5));
+		StringWriter out = new StringWriter();
+		RleFormat.write(engine, engine.getBounds(), engine.getRule(), "soup",
+				out);
+		for (String line : out.toString().split("\n")) {
+			assertTrue(line.length() <= 70);
+		}
+
+		RleFormat rle = new RleFormat(new StringReader(out.toString()));
+		assertEquals("soup", rle.getName());
+		assertEquals(engine.getBounds().getWidth(), rle.getWidth());
+		BitPackedEngine copy = new BitPackedEngine(100, 150);
+		Bounds bounds = engine.getBounds();
+		assertEquals(engine.getPopulation(), rle.read(copy, bounds.getTop(),
+				bounds.getLeft(), 100, 150));
+		assertSameCells(engine, copy, 100, 150);
+	}
+
+	@Test
+	public void testCellsMeasureAndRoundTrip() throws IOException {
+		String text = "!Name: Acorn\n!\n\n.O\n...O\nOO..OOO\n";
+		Bounds box = CellsFormat.measure(new StringReader(text));
+		assertEquals(new Bounds(1, 0, 3, 6), box);
+		ScalarEngine engine = new ScalarEngine(30, 30);
+		assertEquals(7, CellsFormat.read(new StringReader(text), engine, 10,
+				10, 30, 30));
+		ScalarEngine acorn = new ScalarEngine(30, 30);
+		Patterns.place(acorn, Patterns.ACORN, 11, 10);
+		assertSameCells(acorn, engine, 30, 30);
+
+		StringWriter out = new StringWriter();
+		CellsFormat.write(engine, new Bounds(11, 10, 13, 16), "Acorn", out);
+		assertEquals("!Name: Acorn\n.O\n...O\nOO..OOO\n", out.toString());
+	}
+
+	@Test
+	public void testMacrocellRoundTrip() throws IOException {
+		HashLifeEngine engine = new HashLifeEngine();
+		Patterns.place(engine, Patterns.GOSPER_GLIDER_GUN, 0, 0);
+		while (engine.getGeneration() < 100) {
+			engine.step();
+		}
+		StringWriter out = new StringWriter();
+		MacrocellFormat.write(engine, out);
+		assertTrue(out.toString().startsWith("[M2]"));
+
+		// HashLife takes the tree as it is, centred on the origin
+		MacrocellFormat mc = new MacrocellFormat(new StringReader(out
+				.toString()));
+		assertEquals(Rule.CONWAY, mc.getRule());
+		HashLifeEngine copy = new HashLifeEngine();
+		mc.load(copy);
+		assertEquals(engine.getPopulation(), copy.getPopulation());
+		assertSameCells(engine, copy, -300, -300, 600, 600);
+
+		// any other engine gets the live cells placed where asked
+		Bounds box = mc.getBounds();
+		BitPackedEngine board = new BitPackedEngine(box.getHeight() + 20, box
+				.getWidth() + 20);
+		assertEquals(engine.getPopulation(), mc.read(board, 10, 10, board
+				.getRows(), board.getColumns()));
+		Bounds placed = board.getBounds();
+		assertEquals(10, placed.getTop());
+		assertEquals(10, placed.getLeft());
+		int top = Integer.MAX_VALUE;
+		int left = Integer.MAX_VALUE;
+		for (int i = -300; i < 300; i++) {
+			for (int j = -300; j < 300; j++) {
+				if (engine.isAlive(i, j)) {
+					top = Math.min(top, i);
+					left = Math.min(left, j);
+				}
+			}
+		}
+		for (int i = 0; i < box.getHeight(); i++) {
+			for (int j = 0; j < box.getWidth(); j++) {
+				assertEquals(engine.isAlive(top + i, left + j), board.isAlive(
+						10 + i, 10 + j));
+			}
+		}
+	}
+
+	@Test
+	public void testPatternFilesCentreOnTheBoard() throws IOException {
+		Path file = Files.createTempFile("life", ".rle");
+		Files.write(file, "x = 3, y = 3\nbo$2bo$3o!\n"
+				.getBytes(StandardCharsets.UTF_8));
+		BatchRunner runner = new BatchRunner(new BoardConfig(11, 11));
+		runner.load(file);
+		BitPackedEngine glider = new BitPackedEngine(11, 11);
+		TestEngines.setGlider(glider, 4, 4);
+		assertSameCells(glider, runner.getEngine(), 11, 11);
+
+		runner.setGenerations(4);
+		runner.run();
+		Path saved = Files.createTempFile("life", ".cells");
+		runner.save(saved);
+		BitPackedEngine moved = new BitPackedEngine(11, 11);
+		Patterns.load(saved, moved, 11, 11);
+		assertSameCells(glider, moved, 11, 11);
+		Files.delete(file);
+		Files.delete(saved);
+	}
+
+	@Test
+	public void testBuiltInPatternsAreCentred() {
+		BitPackedEngine engine = new BitPackedEngine(20, 20);
+		Patterns.placeCentred(engine, Patterns.ACORN, 20, 20);
+		assertEquals(new Bounds(8, 6, 10, 12), engine.getBounds());
+		try {
+			Patterns.placeCentred(engine, Patterns.GOSPER_GLIDER_GUN, 20, 20);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// 9x36 does not fit
+		}
+		assertEquals(7, engine.getPopulation());
+	}
+
+	@Test
+	public void testBadFilesAreRejected() {
+		String[] rle = { "bo$2bo$3o!", "x = 3, y = 3\nbo$2bo$3o",
+				"x = 3, y = 3\nbo$2bq$3o!" };
+		for (String text : rle) {
+			boolean failed = false;
+			try {
+				new RleFormat(new StringReader(text)).read(new BitPackedEngine(
+						10, 10), 0, 0, 10, 10);
+			} catch (IOException e) {
+				failed = true;
+			}
+			assertTrue(text, failed);
+		}
+		String[] mc = { "4 0 0 0 0", "[M2]\n", "[M2]\n4 1 0 0 0",
+				"[M2]\n.*$\n5 1 0 0 0", "[M2]\n.........$" };
+		for (String text : mc) {
+			boolean failed = false;
+			try {
+				new MacrocellFormat(new StringReader(text));
+			} catch (IOException e) {
+				failed = true;
+			}
+			assertTrue(text, failed);
+		}
+	}
+
+	@Test
+	public void testCellsOutsideTheBoardAreRejected() throws IOException {
+		// bodies larger than their header, or than the board
+		String[] rle = { "x = 3, y = 3\n5o!", "x = 3, y = 3\no4$o!",
+				"x = 30, y = 3\n30o!" };
+		for (String text : rle) {
+			try {
+				new RleFormat(new StringReader(text)).read(new BitPackedEngine(
+						10, 10), 0, 0, 10, 10);
+				fail(text);
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("outside"));
+			}
+		}
+		try {
+			CellsFormat.read(new StringReader("O\n...........O\n"),
+					new BitPackedEngine(10, 10), 0, 0, 10, 10);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("outside the board"));
+		}
+		MacrocellFormat mc = new MacrocellFormat(new StringReader(
+				"[M2]\n*$$$$$$$.......*$\n"));
+		try {
+			mc.read(new BitPackedEngine(10, 10), 4, 4, 10, 10);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("outside the board"));
+		}
+	}
+
+	private static void assertSameCells(LifeEngine expected,
+			LifeEngine actual, int rows, int columns) {
+		assertSameCells(expected, actual, 0, 0, rows, columns);
+	}
+
+	private static void assertSameCells(LifeEngine expected,
+			LifeEngine actual, int top, int left, int rows, int columns) {
+		for (int i = top; i < top + rows; i++) {
+			for (int j = left; j < left + columns; j++) {
+				assertEquals("cell [" + i + ", " + j + "]", expected.isAlive(i,
+						j), actual.isAlive(i, j));
+			}
+		}
+	}
+}
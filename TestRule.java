@@ -0,0 +1,156 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestRule {
+
+	@Test
+	public void testParseBirthSurvival() {
+		Rule rule = Rule.parse("b36/s23");
+		assertEquals("B36/S23", rule.toString());
+		assertEquals(2, rule.getStates());
+		assertTrue(rule.isLifeLike());
+		assertEquals((1 << 3) | (1 << 6), rule.getBirthMask());
+		assertEquals((1 << 2) | (1 << 3), rule.getSurvivalMask());
+
+		// legacy S/B order
+		assertEquals(Rule.CONWAY, Rule.parse("23/3"));
+	}
+
+	@Test
+	public void testParseGenerations() {
+		Rule brain = Rule.parse("B2/S/C3");
+		assertEquals("B2/S/C3", brain.toString());
+		assertEquals(3, brain.getStates());
+		assertFalse(brain.isLifeLike());
+		assertEquals(brain, Rule.parse("/2/3"));
+
+		// dead -> alive with 2, alive -> dying, dying -> dead
+		assertEquals(1, brain.next(0, 2));
+		assertEquals(0, brain.next(0, 3));
+		assertEquals(2, brain.next(1, 2));
+		assertEquals(0, brain.next(2, 2));
+	}
+
+	@Test
+	public void testParseLargerThanLife() {
+		Rule bosco = Rule.parse("R5,C0,M1,S34..58,B34..45,NM");
+		assertEquals("R5,C0,M1,S34..58,B34..45,NM", bosco.toString());
+		assertEquals(5, bosco.getRange());
+		assertEquals(121, bosco.getMaxCount());
+		assertTrue(bosco.isCentreIncluded());
+		assertEquals(1, bosco.next(0, 34));
+		assertEquals(0, bosco.next(0, 46));
+		assertEquals(1, bosco.next(1, 58));
+		assertEquals(0, bosco.next(1, 59));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectBadDigit() {
+		Rule.parse("B39/S23");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectVonNeumann() {
+		Rule.parse("R2,C0,M0,S3..5,B3..4,NN");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectNegativeCount() {
+		Rule.parse("R2,C0,S-1,B3");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPackedEngineRejectsGenerations() {
+		new BitPackedEngine(10, 10, Rule.parse("B2/S/C3"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSparseEngineRejectsB0() {
+		new SparseEngine(Rule.parse("B0123478/S01234678"));
+	}
+
+	@Test
+	public void testLifeLikeRulesAgreeAcrossEngines() {
+		String[] rules = { "B36/S23", "B3/S012345678", "B1357/S1357",
+				"B0123478/S01234678" };
+		for (String notation : rules) {
+			Rule rule = Rule.parse(notation);
+			int rows = 33;
+			int columns = 130;
+			ScalarEngine expected = new ScalarEngine(rows, columns, rule);
+			LifeEngine[] engines = { new BitPackedEngine(rows, columns, rule),
+					Engines.create("vector", rows, columns, rule),
+					new TiledEngine(rows, columns, rule) };
+			Random r = new Random(11);
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					boolean alive = r.nextInt(100) < 30;
+					expected.setAlive(i, j, alive);
+					for (LifeEngine engine : engines) {
+						engine.setAlive(i, j, alive);
+					}
+				}
+			}
+			for (int g = 0; g < 20; g++) {
+				expected.step();
+				for (LifeEngine engine : engines) {
+					engine.step();
+					for (int i = 0; i < rows; i++) {
+						for (int j = 0; j < columns; j++) {
+							assertEquals(notation + " " + engine.getClass()
+									.getName(), expected.isAlive(i, j), engine
+									.isAlive(i, j));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLargerThanLifeMatchesDirectCount() {
+		Rule rule = Rule.parse("R2,C3,M0,S5..9,B5..7,NM");
+		int rows = 20;
+		int columns = 25;
+		ScalarEngine engine = new ScalarEngine(rows, columns, rule);
+		int[][] states = new int[rows][columns];
+		Random r = new Random(5);
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				states[i][j] = r.nextInt(3);
+				engine.setState(i, j, states[i][j]);
+			}
+		}
+
+		for (int g = 0; g < 10; g++) {
+			int[][] next = new int[rows][columns];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					int count = 0;
+					for (int di = -2; di <= 2; di++) {
+						for (int dj = -2; dj <= 2; dj++) {
+							if ((di != 0 || dj != 0)
+									&& states[(i + di + rows) % rows][(j + dj + columns)
+											% columns] == 1) {
+								count++;
+							}
+						}
+					}
+					next[i][j] = rule.next(states[i][j], count);
+				}
+			}
+			states = next;
+			engine.step();
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					assertEquals(states[i][j], engine.getState(i, j));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestSimulationScheduler {
+
+	// counts its steps; stepping stops at limit
+	static class CountingTask implements SimulationScheduler.Task {
+		final AtomicInteger steps = new AtomicInteger();
+		final AtomicInteger idles = new AtomicInteger();
+		volatile int limit = Integer.MAX_VALUE;
+		volatile long stepNanos;
+
+		@Override
+		public void step() {
+			steps.incrementAndGet();
+		}
+
+		@Override
+		public boolean canStep() {
+			return steps.get() < limit;
+		}
+
+		@Override
+		public long getStepNanos() {
+			return stepNanos;
+		}
+
+		@Override
+		public void idle() {
+			idles.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testStepsAddUp() {
+		CountingTask task = new CountingTask();
+		SimulationScheduler scheduler = new SimulationScheduler(task, "test");
+		for (int i = 0; i < 3; i++) {
+			scheduler.step();
+		}
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(3, task.steps.get());
+		assertEquals(3, scheduler.getGenerations());
+		assertEquals(SimulationScheduler.State.PAUSED, scheduler.getState());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testRunForAndRunUntil() {
+		final CountingTask task = new CountingTask();
+		SimulationScheduler scheduler = new SimulationScheduler(task, "test");
+		scheduler.runFor(100);
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(100, task.steps.get());
+
+		scheduler.runUntil(new SimulationScheduler.Condition() {
+			@Override
+			public boolean reached() {
+				return task.steps.get() >= 250;
+			}
+		});
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(250, task.steps.get());
+		assertEquals(2, task.idles.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testPauseStopsRunning() {
+		CountingTask task = new CountingTask();
+		SimulationScheduler scheduler = new SimulationScheduler(task, "test");
+		scheduler.start();
+		while (task.steps.get() < 1000) {
+			Thread.yield();
+		}
+		assertTrue(scheduler.pauseAndWait(10, TimeUnit.SECONDS));
+		int steps = task.steps.get();
+		assertEquals(steps, scheduler.getGenerations());
+		assertEquals(steps, task.steps.get());
+
+		// an empty board pauses by itself
+		task.limit = steps + 10;
+		scheduler.start();
+		while (scheduler.getState() != SimulationScheduler.State.PAUSED
+				|| !scheduler.isIdle()) {
+			Thread.yield();
+		}
+		assertEquals(steps + 10, task.steps.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testPacingWakesUpForCommands() {
+		CountingTask task = new CountingTask();
+		task.stepNanos = TimeUnit.SECONDS.toNanos(30);
+		SimulationScheduler scheduler = new SimulationScheduler(task, "test");
+		scheduler.start();
+		// the first generation is due at once, the next one in 30 s
+		while (task.steps.get() < 1) {
+			Thread.yield();
+		}
+		long start = System.nanoTime();
+		assertTrue(scheduler.pauseAndWait(10, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		assertEquals(1, task.steps.get());
+
+		// single steps are not paced
+		scheduler.step();
+		scheduler.step();
+		assertTrue(scheduler.awaitIdle(5, TimeUnit.SECONDS));
+		assertEquals(3, task.steps.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testNoLockIsHeldWhileStepping() throws InterruptedException {
+		final CountDownLatch inside = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		CountingTask task = new CountingTask() {
+			@Override
+			public void step() {
+				inside.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.step();
+			}
+		};
+		SimulationScheduler scheduler = new SimulationScheduler(task, "test");
+		scheduler.start();
+		inside.await();
+		// commands go through while a generation is being computed
+		long start = System.nanoTime();
+		scheduler.pause();
+		scheduler.step();
+		scheduler.pause();
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		assertTrue(!scheduler.awaitIdle(50, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(1, task.steps.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testFailedStepPauses() {
+		CountingTask task = new CountingTask() {
+			@Override
+			public void step() {
+				super.step();
+				if (steps.get() == 5) {
+					throw new IllegalStateException("broken board");
+				}
+			}
+		};
+		final SimulationScheduler scheduler = new SimulationScheduler(task,
+				"test");
+		final Throwable[] told = new Throwable[1];
+		scheduler.setListener(new SimulationScheduler.Listener() {
+			@Override
+			public void stateChanged(SimulationScheduler.State state) {
+				if (state == SimulationScheduler.State.PAUSED) {
+					told[0] = scheduler.getError();
+				}
+			}
+		});
+		scheduler.start();
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(SimulationScheduler.State.PAUSED, scheduler.getState());
+		assertEquals(5, task.steps.get());
+		assertEquals("broken board", scheduler.getError().getMessage());
+		assertEquals(scheduler.getError(), told[0]);
+
+		// the thread is still there and takes commands
+		scheduler.runFor(3);
+		assertTrue(scheduler.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(8, task.steps.get());
+		assertEquals(null, scheduler.getError());
+		scheduler.shutdown();
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Bit-packed torus split into tiles of 64 rows by one 64-bit word. Only tiles
+ * that changed in the last generation, and their neighbours, are recomputed;
+ * every other tile is asleep and costs nothing. A sleeping tile did not change
+ * between the two buffers, so the back buffer already holds its next state.
+ */
+public class TiledEngine extends BitPackedEngine {
+	public static final int TILE_ROWS = 64;
+
+	private final int tileRows;
+	private final int tileCols;
+
+	// tiles whose cells changed in the last generation
+	private boolean[] changed;
+	private boolean[] nextChanged;
+	// tiles to recompute in the coming generation
+	private final boolean[] active;
+	private int activeTiles;
+
+	public TiledEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public TiledEngine(int rows, int columns, Rule rule) {
+		super(rows, columns, rule);
+		this.tileRows = (rows + TILE_ROWS - 1) / TILE_ROWS;
+		this.tileCols = wordsPerRow;
+		this.changed = new boolean[tileRows * tileCols];
+		this.nextChanged = new boolean[tileRows * tileCols];
+		this.active = new boolean[tileRows * tileCols];
+		wakeAll();
+	}
+
+	@Override
+	public void setAlive(int row, int col, boolean alive) {
+		super.setAlive(row, col, alive);
+		// the back buffer of this tile is stale now, wake it up
+		changed[(row / TILE_ROWS) * tileCols + (col >>> 6)] = true;
+	}
+
+	@Override
+	public void setWord(int row, int w, long word) {
+		super.setWord(row, w, word);
+		changed[(row / TILE_ROWS) * tileCols + w] = true;
+	}
+
+	@Override
+	public void step() {
+		markActiveTiles();
+
+		long[] cur = current;
+		long[] nxt = next;
+		int wpr = wordsPerRow;
+		long delta = 0;
+
+		for (int tr = 0; tr < tileRows; tr++) {
+			int firstRow = tr * TILE_ROWS;
+			int lastRow = Math.min(firstRow + TILE_ROWS, rows);
+			for (int w = 0; w < tileCols; w++) {
+				int tile = tr * tileCols + w;
+				if (!active[tile]) {
+					nextChanged[tile] = false;
+					continue;
+				}
+				boolean tileChanged = false;
+				for (int r = firstRow; r < lastRow; r++) {
+					int up = (r == 0 ? rows - 1 : r - 1) * wpr;
+					int mid = r * wpr;
+					int down = (r == rows - 1 ? 0 : r + 1) * wpr;
+					long word = nextWord(cur, up, mid, down, w);
+					if (word != cur[mid + w]) {
+						tileChanged = true;
+						delta += markWord(r, w, cur[mid + w], word);
+					}
+					nxt[mid + w] = word;
+				}
+				nextChanged[tile] = tileChanged;
+			}
+		}
+
+		boolean[] temp = changed;
+		changed = nextChanged;
+		nextChanged = temp;
+		current = nxt;
+		next = cur;
+		generation++;
+		addPopulation(delta);
+	}
+
+	// a tile is recomputed when it or one of its eight neighbours changed
+	private void markActiveTiles() {
+		for (int i = 0; i < active.length; i++) {
+			active[i] = false;
+		}
+		activeTiles = 0;
+		for (int tr = 0; tr < tileRows; tr++) {
+			for (int tc = 0; tc < tileCols; tc++) {
+				if (!changed[tr * tileCols + tc]) {
+					continue;
+				}
+				for (int dr = -1; dr <= 1; dr++) {
+					int r = (tr + dr + tileRows) % tileRows;
+					for (int dc = -1; dc <= 1; dc++) {
+						int c = (tc + dc + tileCols) % tileCols;
+						if (!active[r * tileCols + c]) {
+							active[r * tileCols + c] = true;
+							activeTiles++;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		for (int i = 0; i < next.length; i++) {
+			next[i] = 0L;
+		}
+		wakeAll();
+	}
+
+	// every tile is computed at least once, which also lets B0 rules fill
+	// an empty board
+	private void wakeAll() {
+		for (int i = 0; i < changed.length; i++) {
+			changed[i] = true;
+		}
+	}
+
+	// number of tiles recomputed by the last step
+	public int getActiveTileCount() {
+		return activeTiles;
+	}
+
+	public int getTileCount() {
+		return tileRows * tileCols;
+	}
+}
@@ -0,0 +1,24 @@
+package life.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The usual JMH command line, always with the GC profiler so every result
+ * comes with its allocation rate (gc.alloc.rate.norm is bytes per
+ * operation). For example:
+ *
+ * java -jar benchmarks/target/benchmarks.jar StepBenchmark -p size=1024
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,65 @@
+package life.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The whole-board operations around the step: the isAllDead check the
+ * simulation thread makes every generation, and filling the board with the
+ * frame's random pattern.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+	@Param({ "bitpacked", "tiled", "counting", "scalar", "sparse" })
+	public String engine;
+
+	@Param({ "128", "1024" })
+	public int size;
+
+	private Object life;
+	private Random random;
+
+	@Setup
+	public void setUp() {
+		life = Life.createEngine(engine, size, size);
+		random = new Random(42);
+		Life.randomFill(life, size, size, 0.2, random);
+	}
+
+	@TearDown
+	public void shutdown() {
+		Life.shutdown(life);
+	}
+
+	// RunFrame.isAllDead()
+	@Benchmark
+	public boolean isAllDead() {
+		return Life.getPopulation(life) == 0;
+	}
+
+	// RunFrame.random()
+	@Benchmark
+	public void randomFill() {
+		Life.clear(life);
+		Life.randomFill(life, size, size, 0.2, random);
+	}
+}
@@ -0,0 +1,98 @@
+package life.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The GameCell path the frame used before the engines: for every cell, look
+ * up its eight neighbours into a fresh GameCell[] the way
+ * RunFrame.getNeighbours does, and ask GameCell.getNextStatus for its next
+ * state. Compare one generation of this with StepBenchmark at the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CellBenchmark {
+	private static final int NEIGHBOURS = 8;
+
+	@Param({ "70", "256" })
+	public int size;
+
+	private Object[] cells;
+	private Object table;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		cells = new Object[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				cells[i * size + j] = Life.newCell(i, j,
+						random.nextInt(100) % 5 == 0);
+			}
+		}
+		table = Life.newNeighbourTable(size, size);
+	}
+
+	private Object[] getNeighbours(int index) {
+		Object[] neighbours = Life.newCellArray(NEIGHBOURS);
+		for (int n = 0; n < NEIGHBOURS; n++) {
+			neighbours[n] = cells[Life.neighbour(table, index, n)];
+		}
+		return neighbours;
+	}
+
+	// one whole generation through getNeighbours and getNextStatus
+	@Benchmark
+	public void generation(Blackhole blackhole) {
+		for (int index = 0; index < cells.length; index++) {
+			blackhole.consume(Life.getNextStatus(cells[index],
+					getNeighbours(index)));
+		}
+	}
+
+	@Benchmark
+	public void getNeighbours(Blackhole blackhole) {
+		for (int index = 0; index < cells.length; index++) {
+			blackhole.consume(getNeighbours(index));
+		}
+	}
+
+	// getNextStatus alone, on neighbour arrays built once
+	@State(Scope.Thread)
+	public static class Looked {
+		Object[][] neighbours;
+
+		@Setup
+		public void setUp(CellBenchmark board) {
+			neighbours = new Object[board.cells.length][];
+			for (int index = 0; index < neighbours.length; index++) {
+				neighbours[index] = board.getNeighbours(index);
+			}
+		}
+	}
+
+	@Benchmark
+	public void getNextStatus(Looked looked, Blackhole blackhole) {
+		for (int index = 0; index < cells.length; index++) {
+			blackhole.consume(Life.getNextStatus(cells[index],
+					looked.neighbours[index]));
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package life.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+
+/**
+ * Calls into the game's classes, which live in the default package. JMH will
+ * not generate code for benchmarks in the default package, and Java source
+ * in a named package cannot name default-package classes, so the benchmarks
+ * reach them through method handles. The handles are static finals, which
+ * the JIT treats as constants and inlines like direct calls.
+ */
+final class Life {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	static final Class<?> LIFE_ENGINE = type("LifeEngine");
+	static final Class<?> RULE = type("Rule");
+	static final Class<?> GAME_CELL = type("GameCell");
+	static final Class<?> CELL_STATUS = type("CellStatus");
+	static final Class<?> NEIGHBOUR_TABLE = type("NeighbourTable");
+
+	private static final Object CONWAY = field(RULE, "CONWAY");
+	private static final Object ALIVE = field(CELL_STATUS, "Alive");
+	private static final Object DEAD = field(CELL_STATUS, "Dead");
+
+	// (String, int, int, Rule) -> LifeEngine
+	private static final MethodHandle CREATE = method(type("Engines"),
+			"create", true, LIFE_ENGINE, String.class, int.class, int.class,
+			RULE);
+	private static final MethodHandle STEP = method(LIFE_ENGINE, "step",
+			false, void.class);
+	private static final MethodHandle GET_POPULATION = method(LIFE_ENGINE,
+			"getPopulation", false, long.class);
+	private static final MethodHandle SET_ALIVE = method(LIFE_ENGINE,
+			"setAlive", false, void.class, int.class, int.class, boolean.class);
+	private static final MethodHandle CLEAR = method(LIFE_ENGINE, "clear",
+			false, void.class);
+	private static final MethodHandle RANDOM_FILL = method(type("Patterns"),
+			"random", true, void.class, LIFE_ENGINE, int.class, int.class,
+			double.class, Random.class);
+
+	private static final MethodHandle NEW_CELL = constructor(GAME_CELL,
+			int.class, int.class);
+	private static final MethodHandle SET_STATUS = method(GAME_CELL,
+			"setStatus", false, void.class, CELL_STATUS);
+	private static final MethodHandle GET_NEXT_STATUS = method(GAME_CELL,
+			"getNextStatus", false, CELL_STATUS, arrayOf(GAME_CELL));
+	private static final MethodHandle NEW_TABLE = constructor(
+			NEIGHBOUR_TABLE, int.class, int.class);
+	private static final MethodHandle TABLE_GET = method(NEIGHBOUR_TABLE,
+			"get", false, int.class, int.class, int.class);
+
+	private static final MethodHandle NEW_CANVAS = constructor(
+			type("LifeCanvas"), LIFE_ENGINE, int.class, int.class, int.class,
+			int.class);
+	private static final MethodHandle CLEAR_TRAIL = method(type("LifeCanvas"),
+			"clearTrail", false, void.class);
+	private static final MethodHandle RENDER = method(type("LifeCanvas"),
+			"render", false, void.class);
+
+	private Life() {
+	}
+
+	static Object createEngine(String name, int rows, int columns) {
+		try {
+			return CREATE.invokeExact(name, rows, columns, CONWAY);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static void step(Object engine) {
+		try {
+			STEP.invokeExact(engine);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static long getPopulation(Object engine) {
+		try {
+			return (long) GET_POPULATION.invokeExact(engine);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static void setAlive(Object engine, int row, int col, boolean alive) {
+		try {
+			SET_ALIVE.invokeExact(engine, row, col, alive);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static void clear(Object engine) {
+		try {
+			CLEAR.invokeExact(engine);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static void randomFill(Object engine, int rows, int columns,
+			double density, Random random) {
+		try {
+			RANDOM_FILL.invokeExact(engine, rows, columns, density, random);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	// stops the worker threads of the parallel engine
+	static void shutdown(Object engine) {
+		if (engine.getClass().getName().equals("ParallelEngine")) {
+			try {
+				engine.getClass().getMethod("shutdown").invoke(engine);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	static Object newCell(int row, int col, boolean alive) {
+		try {
+			Object cell = NEW_CELL.invokeExact(row, col);
+			SET_STATUS.invokeExact(cell, alive ? ALIVE : DEAD);
+			return cell;
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static Object[] newCellArray(int length) {
+		return (Object[]) java.lang.reflect.Array.newInstance(GAME_CELL,
+				length);
+	}
+
+	static Object getNextStatus(Object cell, Object[] neighbours) {
+		try {
+			return GET_NEXT_STATUS.invokeExact(cell, neighbours);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static Object newNeighbourTable(int rows, int columns) {
+		try {
+			return NEW_TABLE.invokeExact(rows, columns);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static int neighbour(Object table, int index, int n) {
+		try {
+			return (int) TABLE_GET.invokeExact(table, index, n);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static Object newCanvas(Object engine, int rows, int columns, int width,
+			int height) {
+		try {
+			return NEW_CANVAS.invokeExact(engine, rows, columns, width, height);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	// redraws every cell in view
+	static void clearTrail(Object canvas) {
+		try {
+			CLEAR_TRAIL.invokeExact(canvas);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	// draws what changed in the engine since the last render
+	static void render(Object canvas) {
+		try {
+			RENDER.invokeExact(canvas);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static Class<?> type(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Game class " + name
+					+ " is not on the class path", e);
+		}
+	}
+
+	private static Class<?> arrayOf(Class<?> type) {
+		return java.lang.reflect.Array.newInstance(type, 0).getClass();
+	}
+
+	private static Object field(Class<?> owner, String name) {
+		try {
+			return owner.getField(name).get(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// a handle typed with Object for every game class, so callers can use
+	// invokeExact without naming them
+	private static MethodHandle method(Class<?> owner, String name,
+			boolean isStatic, Class<?> returnType, Class<?>... parameters) {
+		try {
+			MethodType type = MethodType.methodType(returnType, parameters);
+			MethodHandle handle = isStatic ? LOOKUP.findStatic(owner, name,
+					type) : LOOKUP.findVirtual(owner, name, type);
+			return handle.asType(erased(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MethodHandle constructor(Class<?> owner,
+			Class<?>... parameters) {
+		try {
+			MethodHandle handle = LOOKUP.findConstructor(owner,
+					MethodType.methodType(void.class, parameters));
+			return handle.asType(erased(handle.type()));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MethodType erased(MethodType type) {
+		MethodType result = type.changeReturnType(erase(type.returnType()));
+		for (int i = 0; i < type.parameterCount(); i++) {
+			result = result.changeParameterType(i, erase(type.parameterType(i)));
+		}
+		return result;
+	}
+
+	// game classes become Object, arrays of them Object[]
+	private static Class<?> erase(Class<?> type) {
+		if (type.isPrimitive() || type.getClassLoader() == null) {
+			return type;
+		}
+		return type.isArray() ? Object[].class : Object.class;
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e);
+	}
+}
@@ -0,0 +1,74 @@
+package life.benchmarks;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Painting LifeCanvas into an offscreen image the size of the frame's board
+ * panel. fullFrame redraws every cell in view and blits it, as after a new
+ * pattern or a zoom; stepAndRender is the running case, one generation and
+ * a redraw of what it changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PaintBenchmark {
+	private static final int WIDTH = 984;
+	private static final int HEIGHT = 729;
+
+	@Param({ "70", "1024", "4096" })
+	public int size;
+
+	private Object life;
+	private JComponent canvas;
+	private BufferedImage screen;
+	private Graphics graphics;
+
+	@Setup
+	public void setUp() {
+		life = Life.createEngine("bitpacked", size, size);
+		Life.randomFill(life, size, size, 0.2, new Random(42));
+		canvas = (JComponent) Life.newCanvas(life, size, size, WIDTH, HEIGHT);
+		canvas.setSize(WIDTH, HEIGHT);
+		screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		graphics = screen.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public void fullFrame() {
+		Life.clearTrail(canvas);
+		canvas.paint(graphics);
+	}
+
+	@Benchmark
+	public void stepAndRender() {
+		Life.step(life);
+		Life.render(canvas);
+		canvas.paint(graphics);
+	}
+}
@@ -0,0 +1,64 @@
+package life.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One generation of every engine on square boards of several sizes, seeded
+ * with a sparse and a dense random soup. The soup is refilled before every
+ * iteration so it does not burn out into still lifes while being measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class StepBenchmark {
+
+	@Param({ "bitpacked", "tiled", "parallel", "vector", "blocklut",
+			"counting", "scalar", "sparse", "hashlife" })
+	public String engine;
+
+	@Param({ "128", "1024", "4096" })
+	public int size;
+
+	@Param({ "0.05", "0.35" })
+	public double density;
+
+	private Object life;
+
+	@Setup(Level.Iteration)
+	public void fill() {
+		if (life == null) {
+			life = Life.createEngine(engine, size, size);
+		} else {
+			Life.clear(life);
+		}
+		Life.randomFill(life, size, size, density, new Random(42));
+	}
+
+	@TearDown(Level.Trial)
+	public void shutdown() {
+		Life.shutdown(life);
+	}
+
+	@Benchmark
+	public void step() {
+		Life.step(life);
+	}
+}
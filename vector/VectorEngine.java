@@ -0,0 +1,149 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BitPackedEngine with its B3/S23 adder run on LongVector lanes, so one pass
+ * computes as many packed words as the CPU's widest vector holds. The words
+ * at both ends of a row wrap around the torus and are done one at a time, as
+ * are the words left over after the last whole vector; other rules step
+ * through BitPackedEngine.
+ *
+ * jdk.incubator.vector is not part of the default build, so this class lives
+ * in its own directory and is compiled and run with the module added:
+ *
+ *   javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorEngine.java
+ *   java --add-modules jdk.incubator.vector -Dlife.engine=vector RunFrame
+ *
+ * Engines.create("vector") loads it by name and falls back to
+ * BitPackedEngine when it is missing or the module is not there.
+ */
+public class VectorEngine extends BitPackedEngine {
+	private static final VectorSpecies<Long> SPECIES =
+			LongVector.SPECIES_PREFERRED;
+
+	private final boolean conway;
+
+	public VectorEngine(int rows, int columns) {
+		this(rows, columns, Rule.CONWAY);
+	}
+
+	public VectorEngine(int rows, int columns, Rule rule) {
+		super(rows, columns, rule);
+		this.conway = rule.equals(Rule.CONWAY);
+	}
+
+	@Override
+	public void step() {
+		if (!conway) {
+			super.step();
+			return;
+		}
+		long[] cur = current;
+		long[] nxt = next;
+		int wpr = wordsPerRow;
+		int lanes = SPECIES.length();
+		long delta = 0;
+		for (int r = 0; r < rows; r++) {
+			int up = (r == 0 ? rows - 1 : r - 1) * wpr;
+			int mid = r * wpr;
+			int down = (r == rows - 1 ? 0 : r + 1) * wpr;
+
+			delta += stepWord(cur, nxt, r, up, mid, down, 0);
+			// whole vectors between the first and the last word, whose
+			// neighbour words are all in the same row
+			int w = 1;
+			for (; w + lanes < wpr; w += lanes) {
+				delta += stepVector(cur, nxt, r, up, mid, down, w);
+			}
+			for (; w < wpr; w++) {
+				delta += stepWord(cur, nxt, r, up, mid, down, w);
+			}
+		}
+		current = nxt;
+		next = cur;
+		generation++;
+		addPopulation(delta);
+	}
+
+	private long stepWord(long[] cur, long[] nxt, int r, int up, int mid,
+			int down, int w) {
+		long word = nextWord(cur, up, mid, down, w);
+		nxt[mid + w] = word;
+		return word != cur[mid + w] ? markWord(r, w, cur[mid + w], word) : 0;
+	}
+
+	// words w .. w + lanes - 1 of row r, the same adder as nextWord()
+	private long stepVector(long[] cur, long[] nxt, int r, int up, int mid,
+			int down, int w) {
+		LongVector above = LongVector.fromArray(SPECIES, cur, up + w);
+		LongVector upW = west(cur, up + w, above);
+		LongVector upE = east(cur, up + w, above);
+		LongVector alive = LongVector.fromArray(SPECIES, cur, mid + w);
+		LongVector midW = west(cur, mid + w, alive);
+		LongVector midE = east(cur, mid + w, alive);
+		LongVector below = LongVector.fromArray(SPECIES, cur, down + w);
+		LongVector downW = west(cur, down + w, below);
+		LongVector downE = east(cur, down + w, below);
+
+		// column sums of the rows above and below (0..3 each)
+		LongVector u0 = upW.lanewise(VectorOperators.XOR, above).lanewise(
+				VectorOperators.XOR, upE);
+		LongVector u1 = upW.and(above).or(upE.and(upW.lanewise(
+				VectorOperators.XOR, above)));
+		LongVector l0 = downW.lanewise(VectorOperators.XOR, below).lanewise(
+				VectorOperators.XOR, downE);
+		LongVector l1 = downW.and(below).or(downE.and(downW.lanewise(
+				VectorOperators.XOR, below)));
+
+		// add them together (0..6)
+		LongVector t0 = u0.lanewise(VectorOperators.XOR, l0);
+		LongVector c0 = u0.and(l0);
+		LongVector t1 = u1.lanewise(VectorOperators.XOR, l1).lanewise(
+				VectorOperators.XOR, c0);
+		LongVector t2 = u1.and(l1).or(c0.and(u1.lanewise(VectorOperators.XOR,
+				l1)));
+
+		// add the left and right neighbours of the same row (0..2)
+		LongVector m0 = midW.lanewise(VectorOperators.XOR, midE);
+		LongVector m1 = midW.and(midE);
+		LongVector s0 = t0.lanewise(VectorOperators.XOR, m0);
+		LongVector c1 = t0.and(m0);
+		LongVector s1 = t1.lanewise(VectorOperators.XOR, m1).lanewise(
+				VectorOperators.XOR, c1);
+		LongVector c2 = t1.and(m1).or(c1.and(t1.lanewise(VectorOperators.XOR,
+				m1)));
+
+		// B3/S23: exactly 3, or exactly 2 and already alive
+		LongVector word = s1.and(t2.or(c2).not()).and(s0.or(alive));
+		word.intoArray(nxt, mid + w);
+
+		VectorMask<Long> changed = word.compare(VectorOperators.NE, alive);
+		if (!changed.anyTrue()) {
+			return 0;
+		}
+		long delta = 0;
+		for (int k = 0; k < SPECIES.length(); k++) {
+			if (changed.laneIsSet(k)) {
+				delta += markWord(r, w + k, cur[mid + w + k], nxt[mid + w
+						+ k]);
+			}
+		}
+		return delta;
+	}
+
+	// the words at offset, shifted so each bit sees its left neighbour
+	private static LongVector west(long[] cur, int offset, LongVector words) {
+		return words.lanewise(VectorOperators.LSHL, 1).or(LongVector
+				.fromArray(SPECIES, cur, offset - 1).lanewise(
+						VectorOperators.LSHR, 63));
+	}
+
+	// the words at offset, shifted so each bit sees its right neighbour
+	private static LongVector east(long[] cur, int offset, LongVector words) {
+		return words.lanewise(VectorOperators.LSHR, 1).or(LongVector
+				.fromArray(SPECIES, cur, offset + 1).lanewise(
+						VectorOperators.LSHL, 63));
+	}
+}